@@ -0,0 +1,86 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.repositories.JdbcStockRepository;
+import com.scholanova.projectstore.repositories.JdbcStoreRepository;
+import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import com.scholanova.projectstore.repositories.StoreRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class BenchmarkDatabase {
+
+    private static final int POOL_SIZE = 2;
+
+    private final HikariDataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final List<Store> stores = new ArrayList<>();
+    private final List<Stock> stocks = new ArrayList<>();
+
+    private BenchmarkDatabase(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    public static BenchmarkDatabase seeded(int storeCount, int stocksPerStore) throws LiquibaseException {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(POOL_SIZE);
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db-changelog.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        BenchmarkDatabase benchmarkDatabase = new BenchmarkDatabase(dataSource);
+        benchmarkDatabase.seed(storeCount, stocksPerStore);
+        return benchmarkDatabase;
+    }
+
+    private void seed(int storeCount, int stocksPerStore) {
+        StoreRepository storeRepository = new JdbcStoreRepository(jdbcTemplate);
+        StockRepository stockRepository = new JdbcStockRepository(jdbcTemplate, new StockTypeRegistry(jdbcTemplate));
+        Random random = new Random(42);
+
+        for (int storeIndex = 0; storeIndex < storeCount; storeIndex++) {
+            Store store = storeRepository.create(new Store(null, "Store " + storeIndex));
+            stores.add(store);
+
+            List<Stock> storeStocks = new ArrayList<>(stocksPerStore);
+            for (int stockIndex = 0; stockIndex < stocksPerStore; stockIndex++) {
+                String type = random.nextInt(3) == 0 ? "Nail" : "Fruit";
+                storeStocks.add(new Stock(null, type + " " + stockIndex, type, 1 + random.nextInt(500), store.getId()));
+            }
+            stocks.addAll(stockRepository.addStocksByStoreId(store.getId(), storeStocks));
+        }
+    }
+
+    public NamedParameterJdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public List<Store> getStores() {
+        return stores;
+    }
+
+    public List<Stock> getStocks() {
+        return stocks;
+    }
+
+    public void shutdown() {
+        jdbcTemplate.getJdbcTemplate().execute("SHUTDOWN");
+        dataSource.close();
+    }
+}
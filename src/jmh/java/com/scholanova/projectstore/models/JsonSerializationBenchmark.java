@@ -0,0 +1,47 @@
+package com.scholanova.projectstore.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Stock> stocks;
+    private List<StoreWithTotalValue> stores;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        stocks = new ArrayList<>(size);
+        stores = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            stocks.add(new Stock(i, "Poire " + i, i % 3 == 0 ? "Nail" : "Fruit", 1 + i % 500, 1 + i % 100));
+            stores.add(new StoreWithTotalValue(i, "Store " + i, 1000L * i));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeStocks() throws Exception {
+        return objectMapper.writeValueAsBytes(stocks);
+    }
+
+    @Benchmark
+    public byte[] serializeStoresWithTotalValue() throws Exception {
+        return objectMapper.writeValueAsBytes(stores);
+    }
+}
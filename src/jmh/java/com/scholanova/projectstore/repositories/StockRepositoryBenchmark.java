@@ -0,0 +1,129 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.BenchmarkDatabase;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockRepositoryBenchmark {
+
+    @Param({"100"})
+    public int storeCount;
+
+    @Param({"1000"})
+    public int stocksPerStore;
+
+    @Param({"jdbc", "edge"})
+    public String storage;
+
+    private BenchmarkDatabase database;
+    private EdgeStorageEngine engine;
+    private StockRepository stockRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.seeded(storeCount, stocksPerStore);
+        if ("edge".equals(storage)) {
+            engine = seededEngine(Files.createTempDirectory("edge-benchmark"));
+            stockRepository = new EdgeStockRepository(engine);
+        } else {
+            stockRepository = new JdbcStockRepository(database.getJdbcTemplate(), new StockTypeRegistry(database.getJdbcTemplate()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (engine != null) {
+            engine.close();
+        }
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Stock getById() throws Exception {
+        return stockRepository.getById(randomStock().getId());
+    }
+
+    @Benchmark
+    public List<Stock> listStocksByStoreId() throws Exception {
+        return stockRepository.listStocksByStoreId(randomStoreId());
+    }
+
+    @Benchmark
+    public List<Stock> listFirstPage() {
+        return stockRepository.listStocksByStoreIdAfter(randomStoreId(), null, 0, 100);
+    }
+
+    @Benchmark
+    public List<Stock> listDeepPage() {
+        Stock stock = randomStock();
+        return stockRepository.listStocksByStoreIdAfter(stock.getStoreId(), null, stock.getId(), 100);
+    }
+
+    @Benchmark
+    public List<Stock> getStoreStockByType() throws Exception {
+        return stockRepository.getStoreStockByType(randomStoreId(), "Nail");
+    }
+
+    @Benchmark
+    public Long getStoreTotalValue() {
+        return stockRepository.getStoreTotalValue(randomStoreId());
+    }
+
+    @Benchmark
+    public void streamStocksByStoreId(Blackhole blackhole) {
+        stockRepository.streamStocksByStoreId(randomStoreId(), blackhole::consume);
+    }
+
+    @Benchmark
+    public Stock addThenDeleteStock() throws Exception {
+        int storeId = randomStoreId();
+        Stock createdStock = stockRepository.addStockByStoreId(storeId, new Stock(null, "Poire", "Fruit", 10, storeId));
+        return stockRepository.deleteById(createdStock.getId());
+    }
+
+    // the same stores and stocks in the same order, so both storages hand out the ids the benchmarks pick from
+    private EdgeStorageEngine seededEngine(Path directory) throws IOException {
+        EdgeStorageEngine seededEngine = new EdgeStorageEngine(directory, List.of("Fruit", "Nail"), 256);
+        List<Stock> stocks = database.getStocks();
+        int stockIndex = 0;
+        for (Store store : database.getStores()) {
+            List<Stock> storeStocks = new ArrayList<>();
+            while (stockIndex < stocks.size() && stocks.get(stockIndex).getStoreId() == store.getId()) {
+                storeStocks.add(stocks.get(stockIndex++));
+            }
+            Store seededStore = seededEngine.createStore(store.getName());
+            List<Stock> seededStocks = seededEngine.addStocks(seededStore.getId(), storeStocks);
+            if (!seededStore.getId().equals(store.getId())
+                    || (!storeStocks.isEmpty() && seededStocks.get(0).getId() != storeStocks.get(0).getId())) {
+                throw new IllegalStateException("Edge ids diverge from the database ones at store " + store.getId());
+            }
+        }
+        return seededEngine;
+    }
+
+    private int randomStoreId() {
+        List<Store> stores = database.getStores();
+        return stores.get(ThreadLocalRandom.current().nextInt(stores.size())).getId();
+    }
+
+    private Stock randomStock() {
+        List<Stock> stocks = database.getStocks();
+        return stocks.get(ThreadLocalRandom.current().nextInt(stocks.size()));
+    }
+}
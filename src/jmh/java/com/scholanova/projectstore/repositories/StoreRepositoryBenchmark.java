@@ -0,0 +1,65 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.BenchmarkDatabase;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreRepositoryBenchmark {
+
+    @Param({"100"})
+    public int storeCount;
+
+    @Param({"1000"})
+    public int stocksPerStore;
+
+    private BenchmarkDatabase database;
+    private StoreRepository storeRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.seeded(storeCount, stocksPerStore);
+        storeRepository = new JdbcStoreRepository(database.getJdbcTemplate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Store getById() throws Exception {
+        return storeRepository.getById(randomStoreId());
+    }
+
+    @Benchmark
+    public StoreWithTotalValue getStoreWithTotalValue() throws Exception {
+        return storeRepository.getStoreWithTotalValue(randomStoreId());
+    }
+
+    @Benchmark
+    public List<StoreWithTotalValue> getStoreWithMinimumStockValue() throws Exception {
+        return storeRepository.getStoreWithMinimumStockValue(250 * stocksPerStore);
+    }
+
+    @Benchmark
+    public void createThenDeleteStore() throws Exception {
+        Store createdStore = storeRepository.create(new Store(null, "Auchan"));
+        storeRepository.deleteById(createdStore.getId());
+    }
+
+    private int randomStoreId() {
+        List<Store> stores = database.getStores();
+        return stores.get(ThreadLocalRandom.current().nextInt(stores.size())).getId();
+    }
+}
@@ -0,0 +1,58 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.BenchmarkDatabase;
+import com.scholanova.projectstore.exceptions.StockNotValidException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockServiceBenchmark {
+
+    private BenchmarkDatabase database;
+    private StockService stockService;
+    private Stock validStock;
+    private Stock invalidStock;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.seeded(0, 0);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        stockService = new StockService(null, null, meterRegistry, new ReadYourWritesWindow(Duration.ZERO),
+                new StockCreationBatcher(null, null, meterRegistry, false, 1, Duration.ZERO, 1, Duration.ZERO),
+                new StockTypeRegistry(database.getJdbcTemplate()),
+                new StockEventBroadcaster(meterRegistry, 1, 0, Duration.ZERO, Duration.ZERO, 1));
+        validStock = new Stock(null, "Torsadé", "Nail", 20, 1);
+        invalidStock = new Stock(null, "Torsadé", "Nails", 20, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Stock verifyValidStock() throws StockNotValidException {
+        stockService.verifyStock(validStock);
+        return validStock;
+    }
+
+    @Benchmark
+    public StockNotValidException verifyInvalidStock() {
+        try {
+            stockService.verifyStock(invalidStock);
+            return null;
+        } catch (StockNotValidException ex) {
+            return ex;
+        }
+    }
+}
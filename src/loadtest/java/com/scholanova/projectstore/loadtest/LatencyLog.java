@@ -0,0 +1,75 @@
+package com.scholanova.projectstore.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyLog implements AutoCloseable {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Operation operation;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_LATENCY, SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_LATENCY, SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+    private final HistogramLogWriter writer;
+    private Histogram interval;
+
+    public LatencyLog(Operation operation, File outputDirectory, long startTimeMillis) throws FileNotFoundException {
+        this.operation = operation;
+        this.writer = new HistogramLogWriter(new File(outputDirectory, operation.getKey() + ".hlog"));
+        writer.outputLogFormatVersion();
+        writer.outputStartTime(startTimeMillis);
+        writer.setBaseTime(startTimeMillis);
+        writer.outputLegend();
+    }
+
+    public void record(long latencyNanos, boolean successful) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_LATENCY));
+        if (!successful) {
+            errors.increment();
+        }
+    }
+
+    public synchronized void writeInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        writer.outputIntervalHistogram(interval);
+    }
+
+    public synchronized void reset() {
+        interval = recorder.getIntervalHistogram(interval);
+        errors.reset();
+    }
+
+    public synchronized String summary() {
+        return String.format("%-20s %10d %8d %10.2f %10.2f %10.2f %10.2f",
+                operation.getKey(),
+                total.getTotalCount(),
+                errors.sum(),
+                toMillis(total.getValueAtPercentile(50)),
+                toMillis(total.getValueAtPercentile(99)),
+                toMillis(total.getValueAtPercentile(99.9)),
+                toMillis(total.getMaxValue()));
+    }
+
+    public static String summaryHeader() {
+        return String.format("%-20s %10s %8s %10s %10s %10s %10s",
+                "operation", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    @Override
+    public synchronized void close() {
+        writer.close();
+    }
+}
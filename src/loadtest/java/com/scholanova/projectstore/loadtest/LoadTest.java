@@ -0,0 +1,203 @@
+package com.scholanova.projectstore.loadtest;
+
+import com.scholanova.projectstore.ProjectStoreApplication;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the application, seeds it through the HTTP API and drives an open-loop request mix at a fixed
+ * arrival rate. Latency is measured from the time each request was scheduled to start, not from the time
+ * a worker picked it up, so queueing behind slow requests is counted (coordinated omission correction).
+ * One HdrHistogram interval log per operation is written to {@code loadtest.output-dir}.
+ */
+public class LoadTest {
+
+    private static final String[] STOCK_TYPES = {"Fruit", "Nail"};
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private final StoreApiClient client;
+    private final Settings settings;
+    private final List<Integer> storeIds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Integer> deletableStockIds = new ConcurrentLinkedQueue<>();
+    private final Map<Operation, LatencyLog> latencyLogs = new EnumMap<>(Operation.class);
+
+    public LoadTest(StoreApiClient client, Settings settings) {
+        this.client = client;
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjectStoreApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN", "store.rate-limit.enabled=false")
+                .run(args);
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadTest loadTest = new LoadTest(new StoreApiClient("http://localhost:" + port), new Settings(context.getEnvironment()));
+            loadTest.seed();
+            loadTest.run();
+        } finally {
+            context.close();
+        }
+    }
+
+    void seed() {
+        Random random = new Random(42);
+        for (int storeIndex = 0; storeIndex < settings.stores; storeIndex++) {
+            Store store = client.createStore("Load test store " + storeIndex);
+            storeIds.add(store.getId());
+
+            List<Stock> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int stockIndex = 0; stockIndex < settings.stocksPerStore; stockIndex++) {
+                batch.add(randomStock(random, store.getId(), stockIndex));
+                if (batch.size() == SEED_BATCH_SIZE || stockIndex == settings.stocksPerStore - 1) {
+                    for (Stock stock : client.createStocks(store.getId(), batch)) {
+                        deletableStockIds.add(stock.getId());
+                    }
+                    batch.clear();
+                }
+            }
+        }
+        System.out.printf("Seeded %d stores with %d stocks each%n", settings.stores, settings.stocksPerStore);
+    }
+
+    void run() throws IOException, InterruptedException {
+        File outputDirectory = new File(settings.outputDirectory);
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + outputDirectory);
+        }
+        long startTimeMillis = System.currentTimeMillis();
+        for (Operation operation : settings.mix.operations()) {
+            latencyLogs.put(operation, new LatencyLog(operation, outputDirectory, startTimeMillis));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(settings.threads);
+        Random random = new Random(7);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        long warmupNanos = TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long durationNanos = warmupNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+
+        long start = System.nanoTime();
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        boolean warmingUp = warmupNanos > 0;
+        for (long request = 0; ; request++) {
+            long intendedStart = start + request * intervalNanos;
+            if (intendedStart - start >= durationNanos) {
+                break;
+            }
+            while (nextReport <= intendedStart) {
+                waitUntil(nextReport);
+                if (warmingUp && nextReport - start >= warmupNanos) {
+                    warmingUp = false;
+                    latencyLogs.values().forEach(LatencyLog::reset);
+                } else if (!warmingUp) {
+                    latencyLogs.values().forEach(LatencyLog::writeInterval);
+                }
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+            }
+            waitUntil(intendedStart);
+
+            Operation operation = settings.mix.next(random);
+            workers.execute(() -> execute(operation, intendedStart));
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        latencyLogs.values().forEach(LatencyLog::writeInterval);
+
+        System.out.println(LatencyLog.summaryHeader());
+        for (LatencyLog latencyLog : latencyLogs.values()) {
+            System.out.println(latencyLog.summary());
+            latencyLog.close();
+        }
+        System.out.printf("HdrHistogram logs written to %s%n", outputDirectory.getAbsolutePath());
+    }
+
+    private void execute(Operation operation, long intendedStart) {
+        boolean successful;
+        try {
+            successful = send(operation).getStatusCode().is2xxSuccessful();
+        } catch (RuntimeException ex) {
+            successful = false;
+        }
+        latencyLogs.get(operation).record(System.nanoTime() - intendedStart, successful);
+    }
+
+    private ResponseEntity<?> send(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int storeId = storeIds.get(random.nextInt(storeIds.size()));
+        switch (operation) {
+            case GET_STORE:
+                return client.getStore(storeId);
+            case LIST_STOCKS:
+                return client.listStocks(storeId);
+            case LIST_STOCKS_BY_TYPE:
+                return client.listStocksByType(storeId, STOCK_TYPES[random.nextInt(STOCK_TYPES.length)]);
+            case CREATE_STOCK:
+                ResponseEntity<Stock> created = client.createStock(storeId, randomStock(random, storeId, random.nextInt(1000)));
+                if (created.getStatusCode().is2xxSuccessful() && created.getBody() != null) {
+                    deletableStockIds.add(created.getBody().getId());
+                }
+                return created;
+            case DELETE_STOCK:
+                Integer stockId = deletableStockIds.poll();
+                return client.deleteStock(stockId == null ? 0 : stockId);
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+        }
+    }
+
+    private static Stock randomStock(Random random, int storeId, int index) {
+        String type = STOCK_TYPES[random.nextInt(STOCK_TYPES.length)];
+        return new Stock(null, type + " " + index, type, 1 + random.nextInt(500), storeId);
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    static class Settings {
+
+        final int stores;
+        final int stocksPerStore;
+        final int rate;
+        final int durationSeconds;
+        final int warmupSeconds;
+        final int threads;
+        final OperationMix mix;
+        final String outputDirectory;
+
+        Settings(Environment environment) {
+            this.stores = environment.getProperty("loadtest.stores", Integer.class, 100);
+            this.stocksPerStore = environment.getProperty("loadtest.stocks-per-store", Integer.class, 100);
+            this.rate = environment.getProperty("loadtest.rate", Integer.class, 200);
+            this.durationSeconds = environment.getProperty("loadtest.duration", Integer.class, 60);
+            this.warmupSeconds = environment.getProperty("loadtest.warmup", Integer.class, 10);
+            this.threads = environment.getProperty("loadtest.threads", Integer.class, 64);
+            this.mix = OperationMix.parse(environment.getProperty("loadtest.mix",
+                    "get-store:40,list-stocks:15,list-stocks-by-type:25,create-stock:10,delete-stock:10"));
+            this.outputDirectory = environment.getProperty("loadtest.output-dir", "target/loadtest");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.scholanova.projectstore.loadtest;
+
+import java.util.Arrays;
+
+public enum Operation {
+
+    GET_STORE("get-store"),
+    LIST_STOCKS("list-stocks"),
+    LIST_STOCKS_BY_TYPE("list-stocks-by-type"),
+    CREATE_STOCK("create-stock"),
+    DELETE_STOCK("delete-stock");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Operation fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown load test operation: " + key));
+    }
+}
@@ -0,0 +1,77 @@
+package com.scholanova.projectstore.loadtest;
+
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class StoreApiClient {
+
+    private final RestTemplate restTemplate;
+
+    public StoreApiClient(String baseUrl) {
+        this.restTemplate = new RestTemplateBuilder()
+                .rootUri(baseUrl)
+                .errorHandler(new IgnoringErrorHandler())
+                .build();
+    }
+
+    public Store createStore(String name) {
+        return restTemplate.postForObject("/stores", new Store(null, name), Store.class);
+    }
+
+    public List<Stock> createStocks(int storeId, List<Stock> stocks) {
+        return Arrays.asList(restTemplate.postForObject("/stores/{storeId}/stocks:batch",
+                stocks.stream().map(StoreApiClient::toRequestBody).collect(Collectors.toList()), Stock[].class, storeId));
+    }
+
+    public ResponseEntity<Void> getStore(int storeId) {
+        return restTemplate.getForEntity("/stores/{id}", Void.class, storeId);
+    }
+
+    public ResponseEntity<Void> listStocks(int storeId) {
+        return restTemplate.getForEntity("/stores/{storeId}/stocks", Void.class, storeId);
+    }
+
+    public ResponseEntity<Void> listStocksByType(int storeId, String type) {
+        return restTemplate.getForEntity("/stores/{storeId}/stocks?type={type}", Void.class, storeId, type);
+    }
+
+    public ResponseEntity<Stock> createStock(int storeId, Stock stock) {
+        return restTemplate.postForEntity("/stores/{storeId}/stocks", toRequestBody(stock), Stock.class, storeId);
+    }
+
+    public ResponseEntity<Void> deleteStock(int stockId) {
+        return restTemplate.exchange("/stocks/{stockId}", HttpMethod.DELETE, null, Void.class, stockId);
+    }
+
+    private static Map<String, Object> toRequestBody(Stock stock) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("name", stock.getName());
+        body.put("type", stock.getType());
+        body.put("value", stock.getValue());
+        return body;
+    }
+
+    private static class IgnoringErrorHandler implements ResponseErrorHandler {
+
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.repositories.AdaptiveConcurrencyLimiter;
+import com.scholanova.projectstore.repositories.ConcurrencyLimitAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limit around the store and stock repositories. The edge profile keeps everything in
+ * memory and has nothing to protect.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!edge")
+@ConditionalOnProperty(name = "store.repository.concurrency.enabled", havingValue = "true")
+public class ConcurrencyLimitConfiguration {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter repositoryConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${store.repository.concurrency.initial-limit}") int initialLimit,
+            @Value("${store.repository.concurrency.min-limit}") int minLimit,
+            @Value("${store.repository.concurrency.max-limit}") int maxLimit,
+            @Value("${store.repository.concurrency.max-queue-length}") int maxQueueLength,
+            @Value("${store.repository.concurrency.max-wait}") Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(meterRegistry, initialLimit, minLimit, maxLimit, maxQueueLength, maxWait);
+    }
+
+    @Bean
+    public ConcurrencyLimitAspect repositoryConcurrencyLimitAspect(
+            AdaptiveConcurrencyLimiter repositoryConcurrencyLimiter,
+            @Value("${store.repository.concurrency.export-limit}") int exportLimit,
+            @Value("${store.repository.concurrency.valuation-limit}") int valuationLimit,
+            @Value("${store.repository.concurrency.stream-max-wait}") Duration streamMaxWait) {
+        return new ConcurrencyLimitAspect(repositoryConcurrencyLimiter, exportLimit, valuationLimit, streamMaxWait);
+    }
+}
@@ -0,0 +1,33 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.repositories.EdgeStorageEngine;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Edge deployment: stores and stocks are kept in memory and journaled to a local file, with no database at all.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("edge")
+public class EdgeConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public EdgeStorageEngine edgeStorageEngine(@Value("${store.edge.data-dir}") String dataDirectory,
+                                               @Value("${store.edge.stock-types}") List<String> stockTypes,
+                                               @Value("${store.edge.journal.max-batch-size:256}") int maxBatchSize) throws IOException {
+        return new EdgeStorageEngine(Paths.get(dataDirectory), stockTypes, maxBatchSize);
+    }
+
+    // the types are fixed at startup here, refreshing only copies the engine's dictionary again
+    @Bean
+    public StockTypeRegistry stockTypeRegistry(EdgeStorageEngine edgeStorageEngine) {
+        return new StockTypeRegistry(edgeStorageEngine::getStockTypeIds);
+    }
+}
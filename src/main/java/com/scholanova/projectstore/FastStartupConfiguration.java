@@ -0,0 +1,52 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.repositories.ChecksumGuardedLiquibase;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+/**
+ * Startup mode for scale-out: Liquibase is skipped while the schema checksum is unchanged, and with
+ * {@code spring.main.lazy-initialization} beans are only created on first use.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("fast-startup")
+@EnableConfigurationProperties(LiquibaseProperties.class)
+public class FastStartupConfiguration {
+
+    // replaces Boot's own SpringLiquibase, which backs off when one is already defined
+    @Bean
+    @Profile("!edge")
+    public SpringLiquibase liquibase(DataSource dataSource,
+                                     LiquibaseProperties properties,
+                                     @Value("${store.fast-startup.schema-locations}") String schemaLocations) {
+        ChecksumGuardedLiquibase liquibase = new ChecksumGuardedLiquibase(schemaLocations);
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(properties.getChangeLog());
+        liquibase.setContexts(properties.getContexts());
+        liquibase.setLabels(properties.getLabels());
+        liquibase.setDefaultSchema(properties.getDefaultSchema());
+        liquibase.setDropFirst(properties.isDropFirst());
+        liquibase.setShouldRun(properties.isEnabled());
+        liquibase.setChangeLogParameters(properties.getParameters());
+        return liquibase;
+    }
+
+    // @Scheduled methods are only registered when their bean is created, a lazy one would never run
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(beanType))
+                .anyMatch(method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+    }
+}
@@ -0,0 +1,89 @@
+package com.scholanova.projectstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scholanova.projectstore.controllers.RateLimitInterceptor;
+import com.scholanova.projectstore.repositories.WaitTrackingDataSource;
+import com.scholanova.projectstore.services.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-client rate limits in front of the store and stock routes, with load shedding driven by how long
+ * requests wait for a database connection.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "store.rate-limit.enabled", havingValue = "true")
+public class RateLimitConfiguration {
+
+    @Bean
+    public static BeanPostProcessor waitTrackingDataSourcePostProcessor(
+            @Value("${store.rate-limit.shedding.window:1s}") Duration window) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // a lazy proxy only takes a connection on the first statement, the wait is timed underneath it
+                if (bean instanceof LazyConnectionDataSourceProxy) {
+                    DataSource target = ((LazyConnectionDataSourceProxy) bean).getTargetDataSource();
+                    return new LazyConnectionDataSourceProxy(new WaitTrackingDataSource(target, window));
+                }
+                if (bean instanceof DataSource && !(bean instanceof WaitTrackingDataSource)) {
+                    return new WaitTrackingDataSource((DataSource) bean, window);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public RateLimiter rateLimiter(Environment environment,
+                                   @Value("${store.rate-limit.max-clients:100000}") int maxClients,
+                                   @Value("${store.rate-limit.shedding.burst-ratio:0.25}") double sheddingBurstRatio) {
+        Map<String, RateLimiter.Budget> budgets = Binder.get(environment)
+                .bind("store.rate-limit.budgets", Bindable.mapOf(String.class, RateLimiter.Budget.class))
+                .orElseThrow(() -> new IllegalStateException("Missing store.rate-limit.budgets settings"));
+        return new RateLimiter(budgets, maxClients, sheddingBurstRatio);
+    }
+
+    @Bean
+    public WebMvcConfigurer rateLimitWebMvcConfigurer(RateLimiter rateLimiter,
+                                                      ObjectProvider<DataSource> dataSource,
+                                                      @Value("${store.rate-limit.client-header:X-Api-Key}") String clientHeader,
+                                                      @Value("${store.rate-limit.api-keys:}") Set<String> apiKeys,
+                                                      @Value("${store.rate-limit.shedding.pool-wait-threshold:100ms}") Duration overloadThreshold,
+                                                      ObjectMapper objectMapper,
+                                                      MeterRegistry meterRegistry) {
+        // the edge profile has no data source and so is never considered overloaded
+        SingletonSupplier<WaitTrackingDataSource> waitTracker = SingletonSupplier.of(() -> {
+            DataSource available = dataSource.getIfAvailable();
+            return available != null ? DataSourceUnwrapper.unwrap(available, WaitTrackingDataSource.class) : null;
+        });
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(rateLimiter, clientHeader, apiKeys, waitTracker,
+                overloadThreshold, objectMapper, meterRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/stores/**", "/stocks/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.repositories.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+@Configuration
+@ConditionalOnProperty("spring.datasource.replica.url")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    public DataSource dataSource(Environment environment) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = createPool(binder, "spring.datasource", "primary");
+        HikariDataSource replica = createPool(binder, "spring.datasource.replica", "replica");
+
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingPoolMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> {
+            ReplicaRoutingDataSource routingDataSource = DataSourceUnwrapper.unwrap(dataSource.getObject(), ReplicaRoutingDataSource.class);
+            for (DataSource pool : Arrays.asList(routingDataSource.getPrimary(), routingDataSource.getReplica())) {
+                HikariDataSource hikari = DataSourceUnwrapper.unwrap(pool, HikariDataSource.class);
+                if (hikari.getMetricRegistry() == null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        };
+    }
+
+    static HikariDataSource createPool(Binder binder, String prefix, String poolName) {
+        DataSourceProperties properties = binder.bind(prefix, DataSourceProperties.class)
+                .orElseThrow(() -> new IllegalStateException("Missing " + prefix + " settings"));
+
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind(prefix + ".hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        return pool;
+    }
+}
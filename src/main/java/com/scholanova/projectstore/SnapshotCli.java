@@ -0,0 +1,56 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.exceptions.InventoryNotEmptyException;
+import com.scholanova.projectstore.exceptions.InventoryNotExportableException;
+import com.scholanova.projectstore.models.InventorySnapshot;
+import com.scholanova.projectstore.services.InventorySnapshotService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Exports or restores an inventory snapshot without starting the web server, e.g. from the packaged jar:
+ * {@code java -Dloader.main=com.scholanova.projectstore.SnapshotCli -cp project-store.jar
+ * org.springframework.boot.loader.PropertiesLauncher export inventory.snapshot --spring.datasource.url=...}
+ */
+public class SnapshotCli {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2 || !(args[0].equals("export") || args[0].equals("restore"))) {
+			System.err.println("Usage: SnapshotCli export|restore <file> [--spring.property=value ...]");
+			System.exit(2);
+		}
+
+		Path path = Paths.get(args[1]);
+		SpringApplicationBuilder application = new SpringApplicationBuilder(ProjectStoreApplication.class)
+				.web(WebApplicationType.NONE);
+		try (ConfigurableApplicationContext context = application.run(Arrays.copyOfRange(args, 2, args.length))) {
+			InventorySnapshotService inventorySnapshotService = context.getBean(InventorySnapshotService.class);
+
+			long start = System.nanoTime();
+			InventorySnapshot snapshot;
+			try {
+				snapshot = args[0].equals("export")
+						? inventorySnapshotService.export(path)
+						: inventorySnapshotService.restore(path);
+			} catch (InventoryNotEmptyException ex) {
+				System.err.println("The inventory must be empty to restore a snapshot");
+				System.exit(1);
+				return;
+			} catch (InventoryNotExportableException ex) {
+				System.err.println("Some stocks have no value or no store, fix them before exporting a snapshot");
+				System.exit(1);
+				return;
+			}
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+			System.out.printf("%s %d stores and %d stocks in %d ms%n",
+					args[0].equals("export") ? "Exported" : "Restored",
+					snapshot.getStoreCount(), snapshot.getStockCount(), elapsedMillis);
+		}
+	}
+}
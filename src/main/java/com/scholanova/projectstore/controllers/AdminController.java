@@ -0,0 +1,82 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.exceptions.InventoryNotEmptyException;
+import com.scholanova.projectstore.exceptions.InventoryNotExportableException;
+import com.scholanova.projectstore.services.InventorySnapshotService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@Profile("!reactive & !edge")
+public class AdminController {
+
+    private final InventorySnapshotService inventorySnapshotService;
+
+    public AdminController(InventorySnapshotService inventorySnapshotService) {
+        this.inventorySnapshotService = inventorySnapshotService;
+    }
+
+    @GetMapping(path = "/admin/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void exportSnapshot(HttpServletResponse response) throws IOException, InventoryNotExportableException {
+        Path snapshot = Files.createTempFile("inventory-", ".snapshot");
+        try {
+            inventorySnapshotService.export(snapshot);
+
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"inventory.snapshot\"");
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                long size = channel.size();
+                response.setContentLengthLong(size);
+                WritableByteChannel body = Channels.newChannel(response.getOutputStream());
+                for (long position = 0; position < size; ) {
+                    position += channel.transferTo(position, size - position, body);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @PostMapping(path = "/admin/snapshot", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> restoreSnapshot(HttpServletRequest request) throws IOException {
+        Path snapshot = Files.createTempFile("inventory-", ".snapshot");
+        try {
+            Files.copy(request.getInputStream(), snapshot, StandardCopyOption.REPLACE_EXISTING);
+            return ResponseEntity.ok()
+                    .body(inventorySnapshotService.restore(snapshot));
+        } catch (InventoryNotEmptyException ex) {
+            Map<String, String> erroMsg = new HashMap<>();
+            erroMsg.put("msg", "inventory is not empty");
+            return ResponseEntity.status(409).body(erroMsg);
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    // the export only produces a snapshot, so its error has to say it is JSON itself
+    @ExceptionHandler(InventoryNotExportableException.class)
+    public ResponseEntity<?> handleInventoryNotExportable(InventoryNotExportableException ex) {
+        Map<String, String> erroMsg = new HashMap<>();
+        erroMsg.put("msg", "inventory holds stocks without a value or a store");
+        return ResponseEntity.status(409).contentType(MediaType.APPLICATION_JSON).body(erroMsg);
+    }
+}
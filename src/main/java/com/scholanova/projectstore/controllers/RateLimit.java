@@ -0,0 +1,17 @@
+package com.scholanova.projectstore.controllers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the {@code store.rate-limit.budgets.*} budget a route draws from. Routes without it use the
+ * {@code read} budget for GET and HEAD requests and the {@code write} budget otherwise.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    String value();
+}
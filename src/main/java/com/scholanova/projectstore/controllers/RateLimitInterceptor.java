@@ -0,0 +1,98 @@
+package com.scholanova.projectstore.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scholanova.projectstore.repositories.WaitTrackingDataSource;
+import com.scholanova.projectstore.services.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Applies the client's budget for the route before the controller runs. A client over its own budget gets
+ * {@code 429}; while connections wait longer than the threshold, a client bursting above its steady rate is
+ * shed with {@code 503}. Both carry a {@code Retry-After}.
+ * <p>
+ * A client is identified by its API key only when the key is one of the configured ones, otherwise by its
+ * address: made-up keys would let a client start a fresh budget at will and fill the limiter with entries.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final String clientHeader;
+    private final Set<String> apiKeys;
+    private final Supplier<WaitTrackingDataSource> waitTracker;
+    private final long overloadThresholdNanos;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, String> routeBudgets = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, String clientHeader, Set<String> apiKeys,
+                                Supplier<WaitTrackingDataSource> waitTracker, Duration overloadThreshold,
+                                ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.clientHeader = clientHeader;
+        this.apiKeys = apiKeys;
+        this.waitTracker = waitTracker;
+        this.overloadThresholdNanos = overloadThreshold.toNanos();
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        String budget = budgetOf((HandlerMethod) handler, request.getMethod());
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(clientOf(request), budget, isOverloaded());
+        if (decision.isAdmitted()) {
+            return true;
+        }
+
+        String reason = decision.isShed() ? "shed" : "throttled";
+        meterRegistry.counter("ratelimit.rejections", "budget", budget, "reason", reason).increment();
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(decision.getRetryAfterNanos() + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(decision.isShed() ? 503 : 429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                Collections.singletonMap("msg", decision.isShed() ? "Service overloaded" : "Too many requests"));
+        return false;
+    }
+
+    private String budgetOf(HandlerMethod handler, String httpMethod) {
+        String budget = routeBudgets.computeIfAbsent(handler.getMethod(), method -> {
+            RateLimit rateLimit = handler.getMethodAnnotation(RateLimit.class);
+            return rateLimit != null ? rateLimit.value() : "";
+        });
+        if (!budget.isEmpty()) {
+            return budget;
+        }
+        return "GET".equals(httpMethod) || "HEAD".equals(httpMethod) ? "read" : "write";
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client != null && apiKeys.contains(client) ? client : request.getRemoteAddr();
+    }
+
+    private boolean isOverloaded() {
+        WaitTrackingDataSource tracker = waitTracker.get();
+        return tracker != null && tracker.getRecentWaitNanos() > overloadThresholdNanos;
+    }
+}
@@ -1,30 +1,68 @@
 package com.scholanova.projectstore.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
 import com.scholanova.projectstore.exceptions.ModelNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotValidException;
 
 import com.scholanova.projectstore.exceptions.StoreNotFoundException;
 import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.services.IdempotencyService;
+import com.scholanova.projectstore.services.StockEventBroadcaster;
 import com.scholanova.projectstore.services.StockService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 public class StockController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final StockService stockService;
+    private final StockEventBroadcaster stockEvents;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
-    public StockController(StockService stockService) {
+    public StockController(StockService stockService, StockEventBroadcaster stockEvents,
+                           IdempotencyService idempotencyService, ObjectMapper objectMapper) {
         this.stockService = stockService;
+        this.stockEvents = stockEvents;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping(path = "/stores/{storeId}/stocks")
-    public ResponseEntity<?> createStock(@PathVariable int storeId, @RequestBody Stock stock) throws ModelNotFoundException {
+    public ResponseEntity<?> createStock(@PathVariable int storeId, @RequestBody Stock stock,
+                                         @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) throws ModelNotFoundException {
+        if (idempotencyKey == null) {
+            return createStock(storeId, stock);
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > IdempotencyService.MAX_KEY_LENGTH) {
+            Map<String, String> erroMsg = new HashMap<>();
+            erroMsg.put("msg", "Invalid Idempotency-Key");
+            return ResponseEntity.status(400).body(erroMsg);
+        }
+        return idempotencyService.execute("stock", idempotencyKey, Arrays.asList(storeId, stock),
+                () -> createStock(storeId, stock));
+    }
+
+    private ResponseEntity<?> createStock(int storeId, Stock stock) throws ModelNotFoundException {
         try{
             Stock createdStock = stockService.create(storeId, stock);
             return ResponseEntity.ok()
@@ -36,8 +74,35 @@ public class StockController {
         }
     }
 
+    @RateLimit("batch")
+    @PostMapping(path = "/stores/{storeId}/stocks:batch")
+    public ResponseEntity<?> createStocks(@PathVariable int storeId, @RequestBody List<Stock> stocks) {
+        try {
+            List<Stock> createdStocks = stockService.createBatch(storeId, stocks);
+            return ResponseEntity.ok()
+                    .body(createdStocks);
+        }catch (StockNotValidException ex) {
+            Map<String, String> erroMsg = new HashMap<>();
+            erroMsg.put("msg", "Invalid stock");
+            return ResponseEntity.status(400).body(erroMsg);
+        }
+    }
+
     @GetMapping(path = "/stores/{storeId}/stocks")
-    public ResponseEntity<?> listStock(@PathVariable int storeId, @RequestParam Optional<String> type) {
+    public ResponseEntity<?> listStock(@PathVariable int storeId,
+                                       @RequestParam Optional<String> type,
+                                       @RequestParam Optional<Integer> limit,
+                                       @RequestParam Optional<Integer> after,
+                                       WebRequest request) {
+        // the version is read before the stocks, so a concurrent change can only make the ETag older than the body
+        Long version = stockService.getStoreVersion(storeId);
+        if (version != null && request.checkNotModified(String.valueOf(version))) {
+            return null;
+        }
+        if (limit.isPresent() || after.isPresent()) {
+            return ResponseEntity.ok()
+                    .body(stockService.getStoreStockPage(storeId, type.orElse(""), after.orElse(null), limit.orElse(null)));
+        }
         try {
             return ResponseEntity.ok()
                     .body(stockService.getStoreStockByType(storeId, type.orElse("")));
@@ -48,6 +113,57 @@ public class StockController {
         }
     }
 
+    @GetMapping(path = "/stores/{storeId}/stocks/summary")
+    public ResponseEntity<?> getStockSummary(@PathVariable int storeId, WebRequest request) {
+        Long version = stockService.getStoreVersion(storeId);
+        if (version != null && request.checkNotModified(String.valueOf(version))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .body(stockService.getStoreStockSummary(storeId));
+    }
+
+    @RateLimit("analytics")
+    @GetMapping(path = "/stocks/summary")
+    public ResponseEntity<?> getStockSummary() {
+        return ResponseEntity.ok()
+                .body(stockService.getStockSummary());
+    }
+
+    @RateLimit("export")
+    @GetMapping(path = "/stores/{storeId}/stocks/export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportStock(@PathVariable int storeId, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            stockService.exportStoreStock(storeId, stock -> {
+                try {
+                    generator.writeObject(stock);
+                    generator.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // replaces polling the stock list: a client lists the stocks once, then applies the events, and lists them
+    // again whenever it receives a resync event
+    @GetMapping(path = "/stores/{storeId}/stocks/events")
+    public ResponseEntity<SseEmitter> streamStockEvents(@PathVariable int storeId) throws StoreNotFoundException {
+        if (stockService.getStoreVersion(storeId) == null) {
+            throw new StoreNotFoundException();
+        }
+        SseEmitter emitter = stockEvents.subscribe(storeId);
+        if (emitter == null) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     @DeleteMapping(path = "/stocks/{stockId}")
     public ResponseEntity<?> deleteStock(@PathVariable int stockId) {
         try {
@@ -60,4 +176,18 @@ public class StockController {
         }
     }
 
+    // the event stream's return type only allows an emitter body, so its 404 is rendered here
+    @ExceptionHandler(StoreNotFoundException.class)
+    public ResponseEntity<?> handleStoreNotFound(StoreNotFoundException ex) {
+        Map<String, String> erroMsg = new HashMap<>();
+        erroMsg.put("msg", "Store not found");
+        return ResponseEntity.status(404).body(erroMsg);
+    }
+
+    @ExceptionHandler(DatabaseOverloadedException.class)
+    public ResponseEntity<?> handleDatabaseOverloaded(DatabaseOverloadedException ex) {
+        Map<String, String> erroMsg = new HashMap<>();
+        erroMsg.put("msg", "Service overloaded");
+        return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "1").body(erroMsg);
+    }
 }
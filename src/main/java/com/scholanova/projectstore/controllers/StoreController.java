@@ -1,31 +1,55 @@
 package com.scholanova.projectstore.controllers;
 
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
 import com.scholanova.projectstore.exceptions.ModelNotFoundException;
 import com.scholanova.projectstore.exceptions.StoreNameCannotBeEmptyException;
 import com.scholanova.projectstore.exceptions.StoreNotFoundException;
 import com.scholanova.projectstore.models.Store;
 import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.services.IdempotencyService;
 import com.scholanova.projectstore.services.StockService;
 import com.scholanova.projectstore.services.StoreService;
+import com.scholanova.projectstore.services.StoreValuationService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 public class StoreController {
 
     private final StoreService storeService;
+    private final StoreValuationService storeValuationService;
+    private final IdempotencyService idempotencyService;
 
-    public StoreController(StoreService storeService) {
+    public StoreController(StoreService storeService, StoreValuationService storeValuationService,
+                           IdempotencyService idempotencyService) {
         this.storeService = storeService;
+        this.storeValuationService = storeValuationService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    @RateLimit("analytics")
+    @GetMapping(path = "/stores/valuation")
+    public ResponseEntity<?> getValuation(@RequestParam Optional<Integer> buckets,
+                                          @RequestParam Optional<Integer> ranked) {
+        return ResponseEntity.ok()
+                .body(storeValuationService.valuate(buckets.orElse(null), ranked.orElse(null)));
     }
 
     @GetMapping(path = "/stores/{id}")
-    public ResponseEntity<?> getStation(@PathVariable int id) {
+    public ResponseEntity<?> getStation(@PathVariable int id, WebRequest request) {
         try {
             StoreWithTotalValue store = storeService.getStore(id);
+            if (store.getVersion() != null && request.checkNotModified(String.valueOf(store.getVersion()))) {
+                return null;
+            }
             return ResponseEntity.ok()
                     .body(store);
         }catch (ModelNotFoundException ex) {
@@ -48,7 +72,20 @@ public class StoreController {
     }
 
     @PostMapping(path = "/stores")
-    public ResponseEntity<?> createStore(@RequestBody Store store) throws StoreNameCannotBeEmptyException {
+    public ResponseEntity<?> createStore(@RequestBody Store store,
+                                         @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createStore(store);
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > IdempotencyService.MAX_KEY_LENGTH) {
+            Map<String, String> erroMsg = new HashMap<>();
+            erroMsg.put("msg", "Invalid Idempotency-Key");
+            return ResponseEntity.status(400).body(erroMsg);
+        }
+        return idempotencyService.execute("store", idempotencyKey, store, () -> createStore(store));
+    }
+
+    private ResponseEntity<?> createStore(Store store) {
         try{
             Store createdStore = storeService.create(store);
             return ResponseEntity.ok()
@@ -59,4 +96,12 @@ public class StoreController {
             return ResponseEntity.status(400).body(erroMsg);
         }
     }
+
+    // the repositories turned the call away instead of queueing it on the pool, the client can retry shortly
+    @ExceptionHandler(DatabaseOverloadedException.class)
+    public ResponseEntity<?> handleDatabaseOverloaded(DatabaseOverloadedException ex) {
+        Map<String, String> erroMsg = new HashMap<>();
+        erroMsg.put("msg", "Service overloaded");
+        return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "1").body(erroMsg);
+    }
 }
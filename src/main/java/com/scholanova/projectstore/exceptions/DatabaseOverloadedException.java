@@ -0,0 +1,10 @@
+package com.scholanova.projectstore.exceptions;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+public class DatabaseOverloadedException extends TransientDataAccessResourceException {
+
+    public DatabaseOverloadedException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,4 @@
+package com.scholanova.projectstore.exceptions;
+
+public class InventoryNotExportableException extends Exception {
+}
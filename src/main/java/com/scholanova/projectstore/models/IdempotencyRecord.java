@@ -0,0 +1,56 @@
+package com.scholanova.projectstore.models;
+
+public class IdempotencyRecord {
+
+    private String requestHash;
+    private Integer status;
+    private String body;
+    private boolean abandoned;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String requestHash, Integer status, String body) {
+        this.requestHash = requestHash;
+        this.status = status;
+        this.body = body;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    // set on a pending key whose request failed, or was reserved longer ago than a request takes and died
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public void setAbandoned(boolean abandoned) {
+        this.abandoned = abandoned;
+    }
+
+    // a reserved key whose request is still running, or died before recording its response
+    public boolean isPending() {
+        return status == null;
+    }
+}
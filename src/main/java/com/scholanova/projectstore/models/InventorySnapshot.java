@@ -0,0 +1,31 @@
+package com.scholanova.projectstore.models;
+
+public class InventorySnapshot {
+
+    private Long storeCount;
+    private Long stockCount;
+
+    public InventorySnapshot() {
+    }
+
+    public InventorySnapshot(Long storeCount, Long stockCount) {
+        this.storeCount = storeCount;
+        this.stockCount = stockCount;
+    }
+
+    public Long getStoreCount() {
+        return storeCount;
+    }
+
+    public void setStoreCount(Long storeCount) {
+        this.storeCount = storeCount;
+    }
+
+    public Long getStockCount() {
+        return stockCount;
+    }
+
+    public void setStockCount(Long stockCount) {
+        this.stockCount = stockCount;
+    }
+}
@@ -0,0 +1,33 @@
+package com.scholanova.projectstore.models;
+
+import java.util.List;
+
+public class StockPage {
+
+    private List<Stock> stocks;
+    private Integer nextCursor;
+
+    public StockPage() {
+    }
+
+    public StockPage(List<Stock> stocks, Integer nextCursor) {
+        this.stocks = stocks;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Stock> getStocks() {
+        return stocks;
+    }
+
+    public void setStocks(List<Stock> stocks) {
+        this.stocks = stocks;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
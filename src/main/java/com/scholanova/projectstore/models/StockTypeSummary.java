@@ -0,0 +1,68 @@
+package com.scholanova.projectstore.models;
+
+public class StockTypeSummary {
+
+    private String type;
+    private Long stockCount;
+    private Long totalValue;
+    private Integer minValue;
+    private Integer maxValue;
+
+    public StockTypeSummary() {
+    }
+
+    public StockTypeSummary(String type, Long stockCount, Long totalValue, Integer minValue, Integer maxValue) {
+        this.type = type;
+        this.stockCount = stockCount;
+        this.totalValue = totalValue;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getStockCount() {
+        return stockCount;
+    }
+
+    public void setStockCount(Long stockCount) {
+        this.stockCount = stockCount;
+    }
+
+    public Long getTotalValue() {
+        return totalValue;
+    }
+
+    public void setTotalValue(Long totalValue) {
+        this.totalValue = totalValue;
+    }
+
+    public Integer getMinValue() {
+        return minValue;
+    }
+
+    public void setMinValue(Integer minValue) {
+        this.minValue = minValue;
+    }
+
+    public Integer getMaxValue() {
+        return maxValue;
+    }
+
+    public void setMaxValue(Integer maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    public Double getAverageValue() {
+        if (stockCount == null || stockCount == 0) {
+            return null;
+        }
+        return (double) totalValue / stockCount;
+    }
+}
@@ -0,0 +1,59 @@
+package com.scholanova.projectstore.models;
+
+public class StoreTotalCheck {
+
+    private Integer storeId;
+    private Long recordedTotal;
+    private Long actualTotal;
+    private boolean typeTotalsDrifted;
+
+    public StoreTotalCheck() {
+    }
+
+    public StoreTotalCheck(Integer storeId, Long recordedTotal, Long actualTotal) {
+        this.storeId = storeId;
+        this.recordedTotal = recordedTotal;
+        this.actualTotal = actualTotal;
+    }
+
+    public StoreTotalCheck(Integer storeId, Long recordedTotal, Long actualTotal, boolean typeTotalsDrifted) {
+        this(storeId, recordedTotal, actualTotal);
+        this.typeTotalsDrifted = typeTotalsDrifted;
+    }
+
+    public Integer getStoreId() {
+        return storeId;
+    }
+
+    public void setStoreId(Integer storeId) {
+        this.storeId = storeId;
+    }
+
+    public Long getRecordedTotal() {
+        return recordedTotal;
+    }
+
+    public void setRecordedTotal(Long recordedTotal) {
+        this.recordedTotal = recordedTotal;
+    }
+
+    public Long getActualTotal() {
+        return actualTotal;
+    }
+
+    public void setActualTotal(Long actualTotal) {
+        this.actualTotal = actualTotal;
+    }
+
+    public boolean isTypeTotalsDrifted() {
+        return typeTotalsDrifted;
+    }
+
+    public void setTypeTotalsDrifted(boolean typeTotalsDrifted) {
+        this.typeTotalsDrifted = typeTotalsDrifted;
+    }
+
+    public boolean hasDrifted() {
+        return typeTotalsDrifted || !recordedTotal.equals(actualTotal);
+    }
+}
@@ -0,0 +1,106 @@
+package com.scholanova.projectstore.models;
+
+import java.util.List;
+import java.util.Map;
+
+public class StoreValuation {
+
+    private Long storeCount;
+    private Long totalValue;
+    private Long minValue;
+    private Long maxValue;
+    private Double meanValue;
+    private Map<String, Long> percentiles;
+    private List<StoreValueBucket> buckets;
+    private List<StoreWithTotalValue> top;
+    private List<StoreWithTotalValue> bottom;
+
+    public StoreValuation() {
+    }
+
+    public StoreValuation(Long storeCount, Long totalValue, Long minValue, Long maxValue, Double meanValue,
+                          Map<String, Long> percentiles, List<StoreValueBucket> buckets,
+                          List<StoreWithTotalValue> top, List<StoreWithTotalValue> bottom) {
+        this.storeCount = storeCount;
+        this.totalValue = totalValue;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.meanValue = meanValue;
+        this.percentiles = percentiles;
+        this.buckets = buckets;
+        this.top = top;
+        this.bottom = bottom;
+    }
+
+    public Long getStoreCount() {
+        return storeCount;
+    }
+
+    public void setStoreCount(Long storeCount) {
+        this.storeCount = storeCount;
+    }
+
+    public Long getTotalValue() {
+        return totalValue;
+    }
+
+    public void setTotalValue(Long totalValue) {
+        this.totalValue = totalValue;
+    }
+
+    public Long getMinValue() {
+        return minValue;
+    }
+
+    public void setMinValue(Long minValue) {
+        this.minValue = minValue;
+    }
+
+    public Long getMaxValue() {
+        return maxValue;
+    }
+
+    public void setMaxValue(Long maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    public Double getMeanValue() {
+        return meanValue;
+    }
+
+    public void setMeanValue(Double meanValue) {
+        this.meanValue = meanValue;
+    }
+
+    public Map<String, Long> getPercentiles() {
+        return percentiles;
+    }
+
+    public void setPercentiles(Map<String, Long> percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    public List<StoreValueBucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<StoreValueBucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    public List<StoreWithTotalValue> getTop() {
+        return top;
+    }
+
+    public void setTop(List<StoreWithTotalValue> top) {
+        this.top = top;
+    }
+
+    public List<StoreWithTotalValue> getBottom() {
+        return bottom;
+    }
+
+    public void setBottom(List<StoreWithTotalValue> bottom) {
+        this.bottom = bottom;
+    }
+}
@@ -0,0 +1,41 @@
+package com.scholanova.projectstore.models;
+
+public class StoreValueBucket {
+
+    private Long fromValue;
+    private Long toValue;
+    private Long storeCount;
+
+    public StoreValueBucket() {
+    }
+
+    public StoreValueBucket(Long fromValue, Long toValue, Long storeCount) {
+        this.fromValue = fromValue;
+        this.toValue = toValue;
+        this.storeCount = storeCount;
+    }
+
+    public Long getFromValue() {
+        return fromValue;
+    }
+
+    public void setFromValue(Long fromValue) {
+        this.fromValue = fromValue;
+    }
+
+    public Long getToValue() {
+        return toValue;
+    }
+
+    public void setToValue(Long toValue) {
+        this.toValue = toValue;
+    }
+
+    public Long getStoreCount() {
+        return storeCount;
+    }
+
+    public void setStoreCount(Long storeCount) {
+        this.storeCount = storeCount;
+    }
+}
@@ -1,29 +1,42 @@
 package com.scholanova.projectstore.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class StoreWithTotalValue {
 
     private Integer id;
     private String name;
 
-    private Integer stockTotalValue;
+    private Long stockTotalValue;
+
+    @JsonIgnore
+    private Long version;
 
     public StoreWithTotalValue() {
     }
 
-    public StoreWithTotalValue(Integer id, String name, Integer stockTotalValue) {
+    public StoreWithTotalValue(Integer id, String name, Long stockTotalValue) {
         this.id = id;
         this.name = name;
         this.stockTotalValue = stockTotalValue;
     }
 
-    public Integer getStockTotalValue() {
+    public Long getStockTotalValue() {
         return stockTotalValue;
     }
 
-    public void setStockTotalValue(Integer stockTotalValue) {
+    public void setStockTotalValue(Long stockTotalValue) {
         this.stockTotalValue = stockTotalValue;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Integer getId() {
         return id;
     }
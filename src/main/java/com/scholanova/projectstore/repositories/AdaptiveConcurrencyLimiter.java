@@ -0,0 +1,167 @@
+package com.scholanova.projectstore.repositories;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the calls in flight to the database with a limit that follows the observed round-trip times, the way
+ * Netflix's gradient limit does: the limit is scaled by how the latest RTT compares to a long-term average, so
+ * it shrinks as soon as calls start queueing for a connection and grows back while the RTT stays flat.
+ * <p>
+ * A call over the limit waits briefly for a permit and is rejected once the wait or the queue is full, instead
+ * of piling up on the pool where every call behind it would slow down too.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+    private static final int WARMUP_SAMPLES = 10;
+    private static final int QUEUE_ALLOWANCE = 4;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueLength;
+    private final long maxWaitNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Counter rejections;
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRttNanos;
+    private int samples;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry, int initialLimit, int minLimit, int maxLimit,
+                                      int maxQueueLength, Duration maxWait) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("The limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueLength = maxQueueLength;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+
+        Gauge.builder("repository.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("repository.concurrency.in.flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("repository.concurrency.queued", waiting, AtomicInteger::get).register(meterRegistry);
+        this.rejections = meterRegistry.counter("repository.concurrency.rejections");
+    }
+
+    /**
+     * Takes a permit, waiting for one up to the configured time. Every successful call must be paired with
+     * {@link #release}.
+     */
+    public boolean acquire() {
+        if (tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > maxQueueLength) {
+            waiting.decrementAndGet();
+            rejections.increment();
+            return false;
+        }
+
+        lock.lock();
+        try {
+            long remainingNanos = maxWaitNanos;
+            while (!tryAcquire()) {
+                if (remainingNanos <= 0) {
+                    rejections.increment();
+                    return false;
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            rejections.increment();
+            return false;
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gives the permit back. The RTT is left out ({@code -1}) for calls whose duration says nothing about the
+     * database being loaded, such as streams running for as long as the client reads.
+     */
+    public void release(long rttNanos) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        int limitBefore = limit;
+        if (rttNanos >= 0) {
+            update(rttNanos, inFlightAtRelease);
+        }
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                // a grown limit frees more than the one permit given back
+                if (limit > limitBefore) {
+                    released.signalAll();
+                } else {
+                    released.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtRelease) {
+        if (rttNanos == 0) {
+            rttNanos = 1;
+        }
+        if (samples < WARMUP_SAMPLES) {
+            samples++;
+            longRttNanos += (rttNanos - longRttNanos) / samples;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        }
+
+        // once the load drops, the long-term RTT comes back down faster than the window alone would allow
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        // a limit that is not used says nothing about the database, it must not grow on its own
+        if (inFlightAtRelease < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rttNanos));
+        double newLimit = estimatedLimit * gradient + QUEUE_ALLOWANCE;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,108 @@
+package com.scholanova.projectstore.repositories;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Liquibase that records a checksum of the changelog and of every schema file once they are applied, and skips
+ * the whole update on later boots while that checksum is unchanged. Parsing the changelog, taking the lock and
+ * reading DATABASECHANGELOG are then replaced by a single primary key lookup.
+ */
+public class ChecksumGuardedLiquibase extends SpringLiquibase {
+
+    private final String schemaLocations;
+    private boolean shouldRun = true;
+
+    public ChecksumGuardedLiquibase(String schemaLocations) {
+        this.schemaLocations = schemaLocations;
+    }
+
+    @Override
+    public void setShouldRun(boolean shouldRun) {
+        super.setShouldRun(shouldRun);
+        this.shouldRun = shouldRun;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        if (!shouldRun || isDropFirst()) {
+            super.afterPropertiesSet();
+            return;
+        }
+
+        String checksum = computeChecksum();
+        if (checksum.equals(findAppliedChecksum())) {
+            log.info("Schema checksum " + checksum + " unchanged, skipping Liquibase");
+            return;
+        }
+        super.afterPropertiesSet();
+        recordChecksum(checksum);
+    }
+
+    String computeChecksum() throws LiquibaseException {
+        try {
+            List<Resource> schemaFiles = Arrays.asList(new PathMatchingResourcePatternResolver(getResourceLoader())
+                    .getResources(schemaLocations));
+            schemaFiles.sort(Comparator.comparing(Resource::getFilename, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            content.write((getChangeLog() + '|' + getContexts() + '|' + getLabels() + '|' + getDefaultSchema())
+                    .getBytes(StandardCharsets.UTF_8));
+            append(content, getResourceLoader().getResource(getChangeLog()));
+            for (Resource schemaFile : schemaFiles) {
+                content.write(('|' + schemaFile.getFilename() + '|').getBytes(StandardCharsets.UTF_8));
+                append(content, schemaFile);
+            }
+            return DigestUtils.md5DigestAsHex(content.toByteArray());
+        } catch (IOException ex) {
+            throw new LiquibaseException("Cannot compute the schema checksum", ex);
+        }
+    }
+
+    private String findAppliedChecksum() {
+        String query = "SELECT CHECKSUM FROM SCHEMA_CHECKSUM WHERE CHANGELOG = ?";
+
+        try {
+            return new JdbcTemplate(getDataSource()).query(query,
+                    resultSet -> resultSet.next() ? resultSet.getString("CHECKSUM") : null,
+                    getChangeLog());
+        } catch (DataAccessException ex) {
+            // the table itself comes from the changelog, so it is missing until Liquibase ran once
+            return null;
+        }
+    }
+
+    private void recordChecksum(String checksum) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(getDataSource());
+        int updated = jdbcTemplate.update("UPDATE SCHEMA_CHECKSUM SET CHECKSUM = ? WHERE CHANGELOG = ?", checksum, getChangeLog());
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO SCHEMA_CHECKSUM (CHANGELOG, CHECKSUM) VALUES (?, ?)", getChangeLog(), checksum);
+            } catch (DuplicateKeyException ex) {
+                // another node booting at the same time recorded it first, outside of the Liquibase lock
+                jdbcTemplate.update("UPDATE SCHEMA_CHECKSUM SET CHECKSUM = ? WHERE CHANGELOG = ?", checksum, getChangeLog());
+            }
+        }
+    }
+
+    private static void append(ByteArrayOutputStream content, Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            StreamUtils.copy(inputStream, content);
+        }
+    }
+}
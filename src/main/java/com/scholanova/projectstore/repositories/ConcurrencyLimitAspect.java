@@ -0,0 +1,98 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every call into the store and stock repositories under the {@link AdaptiveConcurrencyLimiter}. It wraps
+ * the transaction and {@code @Timed} advice, so a rejected call never asks the pool for a connection.
+ * <p>
+ * Streams hold their connection for as long as their reader runs, so they get fixed budgets of their own
+ * instead: however many exports run, the adaptive limit stays available to the short calls. Stock streams are
+ * client exports and store streams feed the valuation workers, and each has its own budget, so slow export
+ * clients never leave the valuation waiting.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConcurrencyLimitAspect {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final StreamBudget exports;
+    private final StreamBudget valuations;
+    private final long streamMaxWaitNanos;
+
+    public ConcurrencyLimitAspect(AdaptiveConcurrencyLimiter limiter, int exportLimit, int valuationLimit, Duration streamMaxWait) {
+        this.limiter = limiter;
+        this.exports = new StreamBudget("export", exportLimit);
+        this.valuations = new StreamBudget("valuation", valuationLimit);
+        this.streamMaxWaitNanos = streamMaxWait.toNanos();
+    }
+
+    @Around("execution(* com.scholanova.projectstore.repositories.StoreRepository+.*(..))"
+            + " || execution(* com.scholanova.projectstore.repositories.StockRepository+.*(..))")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        // a caller inside a transaction already holds a connection, making it wait for a permit could leave it
+        // waiting on callers that themselves wait for its connection
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        if (joinPoint.getSignature().getName().startsWith("stream")) {
+            return stream(joinPoint, joinPoint.getTarget() instanceof StoreRepository ? valuations : exports);
+        }
+        if (!limiter.acquire()) {
+            throw new DatabaseOverloadedException("Database concurrency limit of " + limiter.getLimit() + " reached");
+        }
+
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    public int getAvailableExportPermits() {
+        return exports.permits.availablePermits();
+    }
+
+    public int getAvailableValuationPermits() {
+        return valuations.permits.availablePermits();
+    }
+
+    private Object stream(ProceedingJoinPoint joinPoint, StreamBudget budget) throws Throwable {
+        try {
+            if (!budget.permits.tryAcquire(streamMaxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw new DatabaseOverloadedException("Database " + budget.name + " stream limit of " + budget.limit + " reached");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseOverloadedException("Interrupted while waiting for a database " + budget.name + " stream permit");
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            budget.permits.release();
+        }
+    }
+
+    private static class StreamBudget {
+        private final String name;
+        private final int limit;
+        private final Semaphore permits;
+
+        private StreamBudget(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.scholanova.projectstore.repositories;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the edge storage engine. Every record is framed as its payload length, a CRC32 of the
+ * payload and the payload, so a record torn by a crash is detected and cut off at replay.
+ * <p>
+ * Appends are queued and written by a single thread, which writes everything queued since its last pass and
+ * syncs it with one {@code force}: concurrent writers share the cost of a sync instead of paying one each.
+ */
+final class EdgeJournal implements Closeable {
+
+    static final String FILE_NAME = "inventory.journal";
+
+    static final byte SEQUENCES = 1;
+    static final byte STOCK_TYPE = 2;
+    static final byte STORE = 3;
+    static final byte STORE_DELETED = 4;
+    static final byte STOCKS = 5;
+    static final byte STOCK_DELETED = 6;
+    static final byte STORE_VERSION = 7;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EdgeJournal.class);
+    private static final int HEADER_SIZE = 8;
+    private static final PendingRecord CLOSE = new PendingRecord(new byte[0]);
+
+    private final FileChannel channel;
+    private final BlockingQueue<PendingRecord> queue;
+    private final int maxBatchSize;
+    private final Thread writer;
+    private volatile IOException failure;
+    private volatile boolean running = true;
+
+    private EdgeJournal(FileChannel channel, int maxBatchSize) {
+        this.channel = channel;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(maxBatchSize * 4);
+        this.writer = new Thread(this::writeBatches, "edge-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    interface Replay {
+
+        void sequences(int nextStoreId, int nextStockId);
+
+        void stockType(int id, String name);
+
+        void store(int id, long version, String name);
+
+        void storeDeleted(int id);
+
+        void stocks(int storeId, long version, int[] ids, short[] typeIds, int[] values, String[] names);
+
+        void stockDeleted(int id, long version);
+
+        void storeVersion(int id, long version);
+    }
+
+    interface Snapshot {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Replays the journal of the directory, then rewrites it from the replayed state so it starts again from
+     * one record per store and per chunk of stocks, and opens it for appends.
+     */
+    static EdgeJournal open(Path directory, Replay replay, Snapshot snapshot, int maxBatchSize) throws IOException {
+        Files.createDirectories(directory);
+        Path journal = directory.resolve(FILE_NAME);
+        if (Files.exists(journal)) {
+            replay(journal, replay);
+        }
+
+        Path compacted = directory.resolve(FILE_NAME + ".compacting");
+        try (OutputStream output = Files.newOutputStream(compacted);
+             BufferedOutputStream bufferedOutput = new BufferedOutputStream(output, 1 << 16)) {
+            snapshot.writeTo(new Writer(bufferedOutput));
+        }
+        try (FileChannel compactedChannel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            compactedChannel.force(true);
+        }
+        Files.move(compacted, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+
+        return new EdgeJournal(FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND), maxBatchSize);
+    }
+
+    /**
+     * Queues the records, the returned future completes once they are on disk.
+     */
+    CompletableFuture<Void> append(byte[] records) {
+        PendingRecord pending = new PendingRecord(records);
+        if (failure != null || !running) {
+            pending.written.completeExceptionally(failure != null ? failure : new IOException("Journal is closed"));
+            return pending.written;
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.written.completeExceptionally(new IOException("Interrupted while appending to the journal", e));
+        }
+        return pending.written;
+    }
+
+    boolean hasFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Stops the writer once everything queued before it has been written and synced. The writer is not
+     * interrupted: an interrupt inside {@code write} or {@code force} would close the channel under it.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            queue.put(CLOSE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // an append that got past the running check after the writer stopped is failed instead of left waiting
+        List<PendingRecord> stragglers = new ArrayList<>();
+        queue.drainTo(stragglers);
+        IOException closed = new IOException("Journal is closed");
+        for (PendingRecord pending : stragglers) {
+            pending.written.completeExceptionally(closed);
+        }
+        channel.close();
+    }
+
+    private void writeBatches() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            int close = batch.indexOf(CLOSE);
+            if (close >= 0) {
+                // appends queued behind the close marker are still written before the channel goes away
+                batch.remove(close);
+                queue.drainTo(batch);
+                batch.remove(CLOSE);
+                closing = true;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            int size = 0;
+            for (PendingRecord pending : batch) {
+                size += pending.records.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (PendingRecord pending : batch) {
+                buffer.put(pending.records);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            // what follows a failed write could land after a hole, so the journal stops accepting anything
+            failure = ex;
+            LOGGER.error("Could not write {} record batch(es) to the journal", batch.size(), ex);
+            for (PendingRecord pending : batch) {
+                pending.written.completeExceptionally(ex);
+            }
+            return;
+        }
+        for (PendingRecord pending : batch) {
+            pending.written.complete(null);
+        }
+    }
+
+    private static void replay(Path journal, Replay replay) throws IOException {
+        long validLength = 0;
+        try (InputStream input = Files.newInputStream(journal);
+             DataInputStream dataInput = new DataInputStream(new BufferedInputStream(input, 1 << 16))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = dataInput.readInt();
+                } catch (EOFException endOfJournal) {
+                    break;
+                }
+                int checksum;
+                byte[] payload;
+                try {
+                    checksum = dataInput.readInt();
+                    if (length <= 0 || length > Files.size(journal) - validLength - HEADER_SIZE) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    dataInput.readFully(payload);
+                } catch (EOFException tornRecord) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                apply(payload, replay);
+                validLength += HEADER_SIZE + length;
+            }
+        }
+
+        long length = Files.size(journal);
+        if (validLength < length) {
+            LOGGER.warn("Journal {} has an incomplete or corrupt record at byte {}, dropping the last {} byte(s)",
+                    journal, validLength, length - validLength);
+        }
+    }
+
+    private static void apply(byte[] payload, Replay replay) throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = record.readByte();
+        switch (type) {
+            case SEQUENCES:
+                replay.sequences(record.readInt(), record.readInt());
+                break;
+            case STOCK_TYPE:
+                replay.stockType(record.readShort(), readString(record));
+                break;
+            case STORE:
+                replay.store(record.readInt(), record.readLong(), readString(record));
+                break;
+            case STORE_DELETED:
+                replay.storeDeleted(record.readInt());
+                break;
+            case STOCKS:
+                int storeId = record.readInt();
+                long version = record.readLong();
+                int count = record.readInt();
+                int[] ids = new int[count];
+                short[] typeIds = new short[count];
+                int[] values = new int[count];
+                String[] names = new String[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = record.readInt();
+                    typeIds[i] = record.readShort();
+                    values[i] = record.readInt();
+                    names[i] = readString(record);
+                }
+                replay.stocks(storeId, version, ids, typeIds, values, names);
+                break;
+            case STOCK_DELETED:
+                replay.stockDeleted(record.readInt(), record.readLong());
+                break;
+            case STORE_VERSION:
+                replay.storeVersion(record.readInt(), record.readLong());
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    // names have no length limit, writeUTF would fail past 64KB of modified UTF-8
+    private static String readString(DataInputStream record) throws IOException {
+        byte[] bytes = new byte[record.readInt()];
+        record.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException ex) {
+            // not every platform lets a directory be opened, the rename is then as durable as it gets
+            LOGGER.debug("Could not sync journal directory {}", directory, ex);
+        }
+    }
+
+    /**
+     * Frames records, for appends as well as for the compacted journal.
+     */
+    static final class Writer {
+
+        private final OutputStream output;
+        private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+        private final CRC32 crc = new CRC32();
+
+        Writer(OutputStream output) {
+            this.output = output;
+        }
+
+        void sequences(int nextStoreId, int nextStockId) throws IOException {
+            payload.writeByte(SEQUENCES);
+            payload.writeInt(nextStoreId);
+            payload.writeInt(nextStockId);
+            frame();
+        }
+
+        void stockType(int id, String name) throws IOException {
+            payload.writeByte(STOCK_TYPE);
+            payload.writeShort(id);
+            writeString(name);
+            frame();
+        }
+
+        void store(int id, long version, String name) throws IOException {
+            payload.writeByte(STORE);
+            payload.writeInt(id);
+            payload.writeLong(version);
+            writeString(name);
+            frame();
+        }
+
+        void storeDeleted(int id) throws IOException {
+            payload.writeByte(STORE_DELETED);
+            payload.writeInt(id);
+            frame();
+        }
+
+        void stocks(int storeId, long version, int[] ids, short[] typeIds, int[] values, String[] names, int count) throws IOException {
+            payload.writeByte(STOCKS);
+            payload.writeInt(storeId);
+            payload.writeLong(version);
+            payload.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                payload.writeInt(ids[i]);
+                payload.writeShort(typeIds[i]);
+                payload.writeInt(values[i]);
+                writeString(names[i]);
+            }
+            frame();
+        }
+
+        void stockDeleted(int id, long version) throws IOException {
+            payload.writeByte(STOCK_DELETED);
+            payload.writeInt(id);
+            payload.writeLong(version);
+            frame();
+        }
+
+        void storeVersion(int id, long version) throws IOException {
+            payload.writeByte(STORE_VERSION);
+            payload.writeInt(id);
+            payload.writeLong(version);
+            frame();
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            payload.writeInt(bytes.length);
+            payload.write(bytes);
+        }
+
+        private void frame() throws IOException {
+            payload.flush();
+            byte[] bytes = payloadBytes.toByteArray();
+            payloadBytes.reset();
+            crc.reset();
+            crc.update(bytes, 0, bytes.length);
+
+            DataOutputStream framed = new DataOutputStream(output);
+            framed.writeInt(bytes.length);
+            framed.writeInt((int) crc.getValue());
+            framed.write(bytes);
+            framed.flush();
+        }
+    }
+
+    private static class PendingRecord {
+        private final byte[] records;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private PendingRecord(byte[] records) {
+            this.records = records;
+        }
+    }
+}
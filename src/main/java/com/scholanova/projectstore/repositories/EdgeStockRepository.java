@@ -0,0 +1,119 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.models.StoreTotalCheck;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("edge")
+public class EdgeStockRepository implements StockRepository {
+
+    private final EdgeStorageEngine engine;
+
+    public EdgeStockRepository(EdgeStorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Stock getById(Integer id) throws ModelNotFoundException {
+        return engine.getStock(id);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<Stock> listStocksByStoreId(Integer storeId) {
+        return engine.listStocks(storeId, null, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<Stock> listStocksByStoreIdAfter(Integer storeId, String type, Integer afterId, int limit) {
+        return engine.listStocks(storeId, type, afterId == null ? 0 : afterId, limit);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public void streamStocksByStoreId(Integer storeId, Consumer<Stock> consumer) {
+        engine.streamStocks(storeId, consumer);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Stock getStockByStockIdAndStoreId(Integer storeId, Integer stockId) throws ModelNotFoundException {
+        return engine.getStock(storeId, stockId);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Stock addStockByStoreId(Integer storeId, Stock stock) {
+        return engine.addStocks(storeId, Collections.singletonList(stock)).get(0);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<Stock> addStocksByStoreId(Integer storeId, List<Stock> stocks) {
+        return engine.addStocks(storeId, stocks);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Stock deleteById(Integer id) throws StockNotFoundException {
+        return engine.deleteStock(id);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Long getStoreTotalValue(Integer storeId) {
+        return engine.getStoreTotalValue(storeId);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Long getStoreVersion(Integer storeId) {
+        return engine.getStoreVersion(storeId);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<StoreTotalCheck> checkStoreTotals(Integer afterStoreId, int limit) {
+        return engine.checkStoreTotals(afterStoreId, limit);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public void repairStoreTotal(Integer storeId) {
+        engine.repairStoreTotal(storeId);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<StockTypeSummary> getStoreStockSummary(Integer storeId) {
+        return engine.getStoreStockSummary(storeId);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<StockTypeSummary> getStockSummary() {
+        return engine.getStockSummary();
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<Stock> getStoreStockByType(Integer storeId, String type) throws ModelNotFoundException {
+        List<Stock> stocks = engine.listStocks(storeId, type, 0, Integer.MAX_VALUE);
+        if (stocks.isEmpty()) {
+            throw new ModelNotFoundException();
+        }
+        return stocks;
+    }
+}
@@ -0,0 +1,699 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreTotalCheck;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory primary storage for edge deployments without a database. Stores and stocks live in int keyed
+ * maps, every store keeps its stock ids sorted as its secondary index along with its running total and per
+ * type rollups, so reads never scan the stocks of other stores.
+ * <p>
+ * Every change is applied in memory and queued to the {@link EdgeJournal} under the write lock, so records reach
+ * the journal in the order the changes were made, then the caller waits for the journal sync once the lock is
+ * released. A reader may therefore see a change a few
+ * hundred microseconds before it is durable, but a writer only returns once it is.
+ */
+public class EdgeStorageEngine implements Closeable {
+
+    private static final int STOCKS_PER_RECORD = 1000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntObjectHashMap<StoreState> stores = new IntObjectHashMap<>();
+    private final IntObjectHashMap<StockState> stocks = new IntObjectHashMap<>();
+    private final SortedIntList storeIds = new SortedIntList();
+    private final Map<String, Short> typeIdsByName = new HashMap<>();
+    private String[] typeNames = new String[8];
+    private int nextStoreId = 1;
+    private int nextStockId = 1;
+    private final EdgeJournal journal;
+
+    public EdgeStorageEngine(Path directory, List<String> stockTypes, int maxBatchSize) throws IOException {
+        this.journal = EdgeJournal.open(directory, new JournalReplay(), writer -> {
+            for (String stockType : stockTypes) {
+                if (!typeIdsByName.containsKey(stockType)) {
+                    addStockType((short) (typeIdsByName.size() + 1), stockType);
+                }
+            }
+            writeSnapshot(writer);
+        }, maxBatchSize);
+    }
+
+    public Map<String, Integer> getStockTypeIds() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> ids = new HashMap<>();
+            typeIdsByName.forEach((name, id) -> ids.put(name, (int) id));
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Store getStore(int id) throws ModelNotFoundException {
+        lock.readLock().lock();
+        try {
+            StoreState store = findStore(id);
+            if (store == null) {
+                throw new ModelNotFoundException();
+            }
+            return new Store(store.id, store.name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public StoreWithTotalValue getStoreWithTotalValue(int id) throws ModelNotFoundException {
+        lock.readLock().lock();
+        try {
+            StoreState store = findStore(id);
+            if (store == null) {
+                throw new ModelNotFoundException();
+            }
+            StoreWithTotalValue storeWithTotalValue = new StoreWithTotalValue(store.id, store.name, store.totalValue);
+            storeWithTotalValue.setVersion(store.version);
+            return storeWithTotalValue;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Store createStore(String name) {
+        StoreState store;
+        CompletableFuture<Void> written;
+        lock.writeLock().lock();
+        try {
+            checkJournal();
+            store = new StoreState(nextStoreId++, name, 0);
+            putStore(store);
+            written = journal.append(record(writer -> writer.store(store.id, store.version, store.name)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(written);
+        return new Store(store.id, store.name);
+    }
+
+    public void deleteStore(int id) throws StoreNotFoundException {
+        CompletableFuture<Void> written;
+        lock.writeLock().lock();
+        try {
+            checkJournal();
+            StoreState store = findStore(id);
+            if (store == null) {
+                throw new StoreNotFoundException();
+            }
+            if (store.stockIds.size() > 0) {
+                throw new DataIntegrityViolationException("Store " + id + " still has " + store.stockIds.size() + " stock(s)");
+            }
+            removeStore(id);
+            written = journal.append(record(writer -> writer.storeDeleted(id)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(written);
+    }
+
+    // stores without any stock are left out, as they are by the database query
+    public List<StoreWithTotalValue> getStoresWithMinimumValue(long minimumValue) {
+        lock.readLock().lock();
+        try {
+            List<StoreWithTotalValue> matchingStores = new ArrayList<>();
+            for (int i = 0; i < storeIds.size(); i++) {
+                StoreState store = stores.get(storeIds.get(i));
+                if (store.stockIds.size() > 0 && store.totalValue >= minimumValue) {
+                    matchingStores.add(new StoreWithTotalValue(store.id, store.name, store.totalValue));
+                }
+            }
+            return matchingStores;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] getStoreIdRange() {
+        lock.readLock().lock();
+        try {
+            return storeIds.size() == 0 ? null : new int[]{storeIds.get(0), storeIds.get(storeIds.size() - 1)};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void streamStoreValues(int fromId, int toId, Consumer<StoreWithTotalValue> consumer) {
+        List<StoreWithTotalValue> values = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int i = storeIds.indexAfter(fromId - 1); i < storeIds.size() && storeIds.get(i) <= toId; i++) {
+                StoreState store = stores.get(storeIds.get(i));
+                values.add(new StoreWithTotalValue(store.id, store.name, store.totalValue));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        values.forEach(consumer);
+    }
+
+    public Stock getStock(int id) throws ModelNotFoundException {
+        lock.readLock().lock();
+        try {
+            StockState stock = findStock(id);
+            if (stock == null) {
+                throw new ModelNotFoundException();
+            }
+            return toStock(stock, typeNames);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stock getStock(int storeId, int stockId) throws ModelNotFoundException {
+        lock.readLock().lock();
+        try {
+            StockState stock = findStock(stockId);
+            if (stock == null || stock.storeId != storeId) {
+                throw new ModelNotFoundException();
+            }
+            return toStock(stock, typeNames);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // a type filter that is not a known type matches nothing, an unknown store has no stock
+    public List<Stock> listStocks(int storeId, String type, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Stock> page = new ArrayList<>();
+            StoreState store = findStore(storeId);
+            Short typeId = type == null ? null : typeIdsByName.get(type);
+            if (store == null || (type != null && typeId == null)) {
+                return page;
+            }
+            for (int i = store.stockIds.indexAfter(afterId); i < store.stockIds.size() && page.size() < limit; i++) {
+                StockState stock = stocks.get(store.stockIds.get(i));
+                if (typeId == null || stock.typeId == typeId) {
+                    page.add(toStock(stock, typeNames));
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void streamStocks(int storeId, Consumer<Stock> consumer) {
+        StockState[] storeStocks;
+        String[] names;
+        lock.readLock().lock();
+        try {
+            StoreState store = findStore(storeId);
+            if (store == null) {
+                return;
+            }
+            storeStocks = new StockState[store.stockIds.size()];
+            for (int i = 0; i < storeStocks.length; i++) {
+                storeStocks[i] = stocks.get(store.stockIds.get(i));
+            }
+            names = typeNames;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // stock states are never modified, they are safe to read once the lock is released
+        for (StockState stock : storeStocks) {
+            consumer.accept(toStock(stock, names));
+        }
+    }
+
+    public List<Stock> addStocks(int storeId, List<Stock> stocksToAdd) {
+        List<Stock> createdStocks = new ArrayList<>(stocksToAdd.size());
+        CompletableFuture<Void> written;
+        lock.writeLock().lock();
+        try {
+            checkJournal();
+            StoreState store = findStore(storeId);
+            if (store == null) {
+                throw new DataIntegrityViolationException("Store " + storeId + " does not exist");
+            }
+            short[] typeIds = new short[stocksToAdd.size()];
+            for (int i = 0; i < typeIds.length; i++) {
+                Short typeId = typeIdsByName.get(stocksToAdd.get(i).getType());
+                if (typeId == null) {
+                    throw new DataIntegrityViolationException("Unknown stock type " + stocksToAdd.get(i).getType());
+                }
+                typeIds[i] = typeId;
+            }
+
+            int[] ids = new int[typeIds.length];
+            int[] values = new int[typeIds.length];
+            String[] names = new String[typeIds.length];
+            for (int i = 0; i < typeIds.length; i++) {
+                Stock stock = stocksToAdd.get(i);
+                ids[i] = nextStockId++;
+                values[i] = stock.getValue();
+                names[i] = stock.getName();
+                putStock(store, new StockState(ids[i], storeId, typeIds[i], values[i], names[i]));
+                createdStocks.add(new Stock(ids[i], names[i], stock.getType(), values[i], storeId));
+            }
+            store.version++;
+            long version = store.version;
+            written = journal.append(record(writer -> writer.stocks(storeId, version, ids, typeIds, values, names, ids.length)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(written);
+        return createdStocks;
+    }
+
+    public Stock deleteStock(int id) throws StockNotFoundException {
+        Stock deletedStock;
+        CompletableFuture<Void> written;
+        lock.writeLock().lock();
+        try {
+            checkJournal();
+            StockState stock = findStock(id);
+            if (stock == null) {
+                throw new StockNotFoundException();
+            }
+            StoreState store = stores.get(stock.storeId);
+            removeStock(store, stock);
+            store.version++;
+            long version = store.version;
+            deletedStock = toStock(stock, typeNames);
+            written = journal.append(record(writer -> writer.stockDeleted(id, version)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(written);
+        return deletedStock;
+    }
+
+    public long getStoreTotalValue(int storeId) {
+        lock.readLock().lock();
+        try {
+            StoreState store = findStore(storeId);
+            return store == null ? 0L : store.totalValue;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Long getStoreVersion(int storeId) {
+        lock.readLock().lock();
+        try {
+            StoreState store = findStore(storeId);
+            return store == null ? null : store.version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<StoreTotalCheck> checkStoreTotals(int afterStoreId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<StoreTotalCheck> checks = new ArrayList<>();
+            for (int i = storeIds.indexAfter(afterStoreId); i < storeIds.size() && checks.size() < limit; i++) {
+                StoreState store = stores.get(storeIds.get(i));
+                checks.add(new StoreTotalCheck(store.id, store.totalValue, sumStockValues(store),
+                        !sameTypeTotals(store.typeTotals, computeTypeTotals(store))));
+            }
+            return checks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void repairStoreTotal(int storeId) {
+        CompletableFuture<Void> written;
+        lock.writeLock().lock();
+        try {
+            checkJournal();
+            StoreState store = findStore(storeId);
+            if (store == null) {
+                return;
+            }
+            store.totalValue = sumStockValues(store);
+            store.typeTotals = computeTypeTotals(store);
+            store.version++;
+            long version = store.version;
+            written = journal.append(record(writer -> writer.storeVersion(storeId, version)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(written);
+    }
+
+    public List<StockTypeSummary> getStoreStockSummary(int storeId) {
+        lock.readLock().lock();
+        try {
+            List<StockTypeSummary> summaries = new ArrayList<>();
+            StoreState store = findStore(storeId);
+            if (store != null) {
+                store.typeTotals.forEachValue(totals -> summaries.add(totals.toSummary(typeNames[totals.typeId])));
+            }
+            summaries.sort(Comparator.comparing(StockTypeSummary::getType));
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // folds the per store rollups, so it reads stores times types entries and never the stocks
+    public List<StockTypeSummary> getStockSummary() {
+        lock.readLock().lock();
+        try {
+            TypeTotals[] totalsByType = new TypeTotals[typeNames.length];
+            stores.forEachValue(store -> store.typeTotals.forEachValue(storeTotals -> {
+                TypeTotals totals = totalsByType[storeTotals.typeId];
+                if (totals == null) {
+                    totalsByType[storeTotals.typeId] = totals = new TypeTotals(storeTotals.typeId);
+                }
+                totals.merge(storeTotals);
+            }));
+
+            List<StockTypeSummary> summaries = new ArrayList<>();
+            for (TypeTotals totals : totalsByType) {
+                if (totals != null) {
+                    summaries.add(totals.toSummary(typeNames[totals.typeId]));
+                }
+            }
+            summaries.sort(Comparator.comparing(StockTypeSummary::getType));
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // appends are made under the write lock, holding it here means none can race the journal's shutdown
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private StoreState findStore(int id) {
+        return id > 0 ? stores.get(id) : null;
+    }
+
+    private StockState findStock(int id) {
+        return id > 0 ? stocks.get(id) : null;
+    }
+
+    private void putStore(StoreState store) {
+        stores.put(store.id, store);
+        storeIds.add(store.id);
+        nextStoreId = Math.max(nextStoreId, store.id + 1);
+    }
+
+    private void removeStore(int id) {
+        stores.remove(id);
+        storeIds.remove(id);
+    }
+
+    private void putStock(StoreState store, StockState stock) {
+        stocks.put(stock.id, stock);
+        store.stockIds.add(stock.id);
+        store.totalValue += stock.value;
+        typeTotals(store, stock.typeId).add(stock.value);
+        nextStockId = Math.max(nextStockId, stock.id + 1);
+    }
+
+    // the minimum or maximum is only looked up again when the removed stock was holding it
+    private void removeStock(StoreState store, StockState stock) {
+        stocks.remove(stock.id);
+        store.stockIds.remove(stock.id);
+        store.totalValue -= stock.value;
+
+        TypeTotals totals = store.typeTotals.get(stock.typeId);
+        totals.count--;
+        totals.total -= stock.value;
+        if (totals.count == 0) {
+            store.typeTotals.remove(stock.typeId);
+        } else if (stock.value <= totals.min || stock.value >= totals.max) {
+            totals.min = Integer.MAX_VALUE;
+            totals.max = Integer.MIN_VALUE;
+            for (int i = 0; i < store.stockIds.size(); i++) {
+                StockState other = stocks.get(store.stockIds.get(i));
+                if (other.typeId == stock.typeId) {
+                    totals.min = Math.min(totals.min, other.value);
+                    totals.max = Math.max(totals.max, other.value);
+                }
+            }
+        }
+    }
+
+    private TypeTotals typeTotals(StoreState store, short typeId) {
+        TypeTotals totals = store.typeTotals.get(typeId);
+        if (totals == null) {
+            totals = new TypeTotals(typeId);
+            store.typeTotals.put(typeId, totals);
+        }
+        return totals;
+    }
+
+    private IntObjectHashMap<TypeTotals> computeTypeTotals(StoreState store) {
+        IntObjectHashMap<TypeTotals> typeTotals = new IntObjectHashMap<>(4);
+        for (int i = 0; i < store.stockIds.size(); i++) {
+            StockState stock = stocks.get(store.stockIds.get(i));
+            TypeTotals totals = typeTotals.get(stock.typeId);
+            if (totals == null) {
+                totals = new TypeTotals(stock.typeId);
+                typeTotals.put(stock.typeId, totals);
+            }
+            totals.add(stock.value);
+        }
+        return typeTotals;
+    }
+
+    private static boolean sameTypeTotals(IntObjectHashMap<TypeTotals> recorded, IntObjectHashMap<TypeTotals> actual) {
+        if (recorded.size() != actual.size()) {
+            return false;
+        }
+        boolean[] same = {true};
+        actual.forEachValue(totals -> same[0] &= totals.sameAs(recorded.get(totals.typeId)));
+        return same[0];
+    }
+
+    private long sumStockValues(StoreState store) {
+        long total = 0;
+        for (int i = 0; i < store.stockIds.size(); i++) {
+            total += stocks.get(store.stockIds.get(i)).value;
+        }
+        return total;
+    }
+
+    private void addStockType(short id, String name) {
+        typeIdsByName.put(name, id);
+        if (id >= typeNames.length) {
+            typeNames = Arrays.copyOf(typeNames, Math.max(typeNames.length * 2, id + 1));
+        }
+        typeNames[id] = name;
+    }
+
+    private static Stock toStock(StockState stock, String[] typeNames) {
+        return new Stock(stock.id, stock.name, typeNames[stock.typeId], stock.value, stock.storeId);
+    }
+
+    private void checkJournal() {
+        if (journal.hasFailed()) {
+            throw new DataAccessResourceFailureException("The journal stopped accepting writes after a write failure");
+        }
+    }
+
+    private static void awaitDurable(CompletableFuture<Void> written) {
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while waiting for the journal", e);
+        } catch (ExecutionException e) {
+            throw new DataAccessResourceFailureException("Could not write to the journal", e.getCause());
+        }
+    }
+
+    private static byte[] record(JournalRecord journalRecord) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            journalRecord.writeTo(new EdgeJournal.Writer(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeSnapshot(EdgeJournal.Writer writer) throws IOException {
+        writer.sequences(nextStoreId, nextStockId);
+        for (Map.Entry<String, Short> type : typeIdsByName.entrySet()) {
+            writer.stockType(type.getValue(), type.getKey());
+        }
+
+        int[] ids = new int[STOCKS_PER_RECORD];
+        short[] typeIds = new short[STOCKS_PER_RECORD];
+        int[] values = new int[STOCKS_PER_RECORD];
+        String[] names = new String[STOCKS_PER_RECORD];
+        for (int i = 0; i < storeIds.size(); i++) {
+            StoreState store = stores.get(storeIds.get(i));
+            writer.store(store.id, store.version, store.name);
+
+            int count = 0;
+            for (int j = 0; j < store.stockIds.size(); j++) {
+                StockState stock = stocks.get(store.stockIds.get(j));
+                ids[count] = stock.id;
+                typeIds[count] = stock.typeId;
+                values[count] = stock.value;
+                names[count] = stock.name;
+                if (++count == STOCKS_PER_RECORD) {
+                    writer.stocks(store.id, store.version, ids, typeIds, values, names, count);
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                writer.stocks(store.id, store.version, ids, typeIds, values, names, count);
+            }
+        }
+    }
+
+    private interface JournalRecord {
+        void writeTo(EdgeJournal.Writer writer) throws IOException;
+    }
+
+    // runs before the engine is published, on the constructing thread only
+    private class JournalReplay implements EdgeJournal.Replay {
+
+        @Override
+        public void sequences(int storeId, int stockId) {
+            nextStoreId = Math.max(nextStoreId, storeId);
+            nextStockId = Math.max(nextStockId, stockId);
+        }
+
+        @Override
+        public void stockType(int id, String name) {
+            addStockType((short) id, name);
+        }
+
+        @Override
+        public void store(int id, long version, String name) {
+            putStore(new StoreState(id, name, version));
+        }
+
+        @Override
+        public void storeDeleted(int id) {
+            removeStore(id);
+        }
+
+        @Override
+        public void stocks(int storeId, long version, int[] ids, short[] typeIds, int[] values, String[] names) {
+            StoreState store = stores.get(storeId);
+            for (int i = 0; i < ids.length; i++) {
+                putStock(store, new StockState(ids[i], storeId, typeIds[i], values[i], names[i]));
+            }
+            store.version = version;
+        }
+
+        @Override
+        public void stockDeleted(int id, long version) {
+            StockState stock = stocks.get(id);
+            StoreState store = stores.get(stock.storeId);
+            removeStock(store, stock);
+            store.version = version;
+        }
+
+        @Override
+        public void storeVersion(int id, long version) {
+            stores.get(id).version = version;
+        }
+    }
+
+    private static class StoreState {
+        private final int id;
+        private final String name;
+        private final SortedIntList stockIds = new SortedIntList();
+        private IntObjectHashMap<TypeTotals> typeTotals = new IntObjectHashMap<>(4);
+        private long totalValue;
+        private long version;
+
+        private StoreState(int id, String name, long version) {
+            this.id = id;
+            this.name = name;
+            this.version = version;
+        }
+    }
+
+    private static class StockState {
+        private final int id;
+        private final int storeId;
+        private final short typeId;
+        private final int value;
+        private final String name;
+
+        private StockState(int id, int storeId, short typeId, int value, String name) {
+            this.id = id;
+            this.storeId = storeId;
+            this.typeId = typeId;
+            this.value = value;
+            this.name = name;
+        }
+    }
+
+    private static class TypeTotals {
+        private final short typeId;
+        private long count;
+        private long total;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        private TypeTotals(short typeId) {
+            this.typeId = typeId;
+        }
+
+        private void add(int value) {
+            count++;
+            total += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        private boolean sameAs(TypeTotals other) {
+            return other != null && count == other.count && total == other.total && min == other.min && max == other.max;
+        }
+
+        private void merge(TypeTotals other) {
+            count += other.count;
+            total += other.total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        private StockTypeSummary toSummary(String type) {
+            return new StockTypeSummary(type, count, total, min, max);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("edge")
+public class EdgeStoreRepository implements StoreRepository {
+
+    private final EdgeStorageEngine engine;
+
+    public EdgeStoreRepository(EdgeStorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Store getById(Integer id) throws ModelNotFoundException {
+        return engine.getStore(id);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public StoreWithTotalValue getStoreWithTotalValue(Integer id) throws ModelNotFoundException {
+        return engine.getStoreWithTotalValue(id);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public Store create(Store storeToCreate) {
+        return engine.createStore(storeToCreate.getName());
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public void deleteById(Integer id) throws StoreNotFoundException {
+        engine.deleteStore(id);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<StoreWithTotalValue> getStoreWithMinimumStockValue(int minimumStoreValue) {
+        return engine.getStoresWithMinimumValue(minimumStoreValue);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public int[] getStoreIdRange() {
+        return engine.getStoreIdRange();
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public void streamStoreValues(int fromId, int toId, Consumer<StoreWithTotalValue> consumer) {
+        engine.streamStoreValues(fromId, toId, consumer);
+    }
+}
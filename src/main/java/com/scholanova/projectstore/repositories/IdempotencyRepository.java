@@ -0,0 +1,133 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.models.IdempotencyRecord;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Responses recorded per idempotency key. A key is reserved by inserting it without a status before its
+ * request runs, so only one node runs a given key at a time, then completed with the response. A reservation
+ * is never taken over before the key expires: its request may have created the resource before dying. It is
+ * flagged abandoned as soon as its request is known to have failed that way.
+ */
+@Repository
+@Profile("!edge")
+public class IdempotencyRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public IdempotencyRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public IdempotencyRecord findByKey(String scope, String key, Instant createdAfter, Instant abandonedBefore) {
+        String query = "SELECT REQUEST_HASH AS requestHash, " +
+                "STATUS AS status, " +
+                "BODY AS body, " +
+                "(STATUS IS NULL AND (ABANDONED OR CREATED_AT <= :abandonedBefore)) AS abandoned " +
+                "FROM IDEMPOTENCY_KEY " +
+                "WHERE SCOPE = :scope AND IDEMPOTENCY_KEY = :key AND CREATED_AT > :createdAfter";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key)
+                .addValue("createdAfter", Timestamp.from(createdAfter))
+                .addValue("abandonedBefore", Timestamp.from(abandonedBefore));
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(IdempotencyRecord.class))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    // an expired key is taken over; no transaction, as a failed insert would leave a PostgreSQL one unusable
+    @Timed(value = "repository.calls", histogram = true)
+    public boolean reserve(String scope, String key, String requestHash, Instant now, Instant expiredBefore) {
+        String deleteQuery = "DELETE FROM IDEMPOTENCY_KEY " +
+                "WHERE SCOPE = :scope AND IDEMPOTENCY_KEY = :key AND CREATED_AT <= :expiredBefore";
+        String insertQuery = "INSERT INTO IDEMPOTENCY_KEY " +
+                "(SCOPE, IDEMPOTENCY_KEY, REQUEST_HASH, CREATED_AT) VALUES " +
+                "(:scope, :key, :requestHash, :now)";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key)
+                .addValue("requestHash", requestHash)
+                .addValue("now", Timestamp.from(now))
+                .addValue("expiredBefore", Timestamp.from(expiredBefore));
+
+        jdbcTemplate.update(deleteQuery, parameters);
+        try {
+            jdbcTemplate.update(insertQuery, parameters);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            return false;
+        }
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void complete(String scope, String key, int status, String body) {
+        String query = "UPDATE IDEMPOTENCY_KEY " +
+                "SET STATUS = :status, BODY = :body " +
+                "WHERE SCOPE = :scope AND IDEMPOTENCY_KEY = :key";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key)
+                .addValue("status", status)
+                .addValue("body", body);
+
+        jdbcTemplate.update(query, parameters);
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void abandon(String scope, String key) {
+        String query = "UPDATE IDEMPOTENCY_KEY " +
+                "SET ABANDONED = TRUE " +
+                "WHERE SCOPE = :scope AND IDEMPOTENCY_KEY = :key AND STATUS IS NULL";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key);
+
+        jdbcTemplate.update(query, parameters);
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void release(String scope, String key) {
+        String query = "DELETE FROM IDEMPOTENCY_KEY " +
+                "WHERE SCOPE = :scope AND IDEMPOTENCY_KEY = :key AND STATUS IS NULL";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("scope", scope)
+                .addValue("key", key);
+
+        jdbcTemplate.update(query, parameters);
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public int deleteCreatedBefore(Instant createdBefore) {
+        String query = "DELETE FROM IDEMPOTENCY_KEY WHERE CREATED_AT <= :createdBefore";
+
+        return jdbcTemplate.update(query, new MapSqlParameterSource()
+                .addValue("createdBefore", Timestamp.from(createdBefore)));
+    }
+}
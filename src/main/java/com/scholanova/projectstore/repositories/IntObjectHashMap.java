@@ -0,0 +1,132 @@
+package com.scholanova.projectstore.repositories;
+
+import java.util.function.Consumer;
+
+/**
+ * Open addressing map keyed by positive ints, so lookups neither box the key nor chase an entry object.
+ * Removal shifts the following entries back instead of leaving tombstones.
+ */
+final class IntObjectHashMap<V> {
+
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    IntObjectHashMap() {
+        this(16);
+    }
+
+    IntObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 4 / 3) - 1) << 1;
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int index = index(checkKey(key)); ; index = (index + 1) & mask) {
+            int candidate = keys[index];
+            if (candidate == key) {
+                return (V) values[index];
+            }
+            if (candidate == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        for (int index = index(checkKey(key)); ; index = (index + 1) & mask) {
+            int candidate = keys[index];
+            if (candidate == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            if (candidate == EMPTY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > (mask + 1) * 3 / 4) {
+                    rehash(keys.length * 2);
+                }
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int gap = index(checkKey(key));
+        while (keys[gap] != key) {
+            if (keys[gap] == EMPTY) {
+                return null;
+            }
+            gap = (gap + 1) & mask;
+        }
+        V removed = (V) values[gap];
+
+        // moves back every following entry of the run that may sit at the gap without ending up before its own slot
+        for (int index = (gap + 1) & mask; keys[index] != EMPTY; index = (index + 1) & mask) {
+            int slot = index(keys[index]);
+            if (((index - slot) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<V> consumer) {
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != EMPTY) {
+                consumer.accept((V) values[index]);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+            if (oldKeys[oldIndex] != EMPTY) {
+                int index = index(oldKeys[oldIndex]);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[oldIndex];
+                values[index] = oldValues[oldIndex];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int index(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int checkKey(int key) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive, got " + key);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,232 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bulk reads and writes of the whole inventory with explicit ids, used to dump it to a snapshot and restore it.
+ */
+@Repository
+@Profile("!edge")
+public class InventorySnapshotRepository {
+
+    private static final int STREAM_FETCH_SIZE = 10000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public InventorySnapshotRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        JdbcTemplate fetchingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        fetchingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(fetchingJdbcTemplate);
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        String query = "SELECT COUNT(*) FROM (SELECT ID FROM STORES LIMIT 1) sr";
+
+        return jdbcTemplate.queryForObject(query, Collections.emptyMap(), Integer.class) == 0;
+    }
+
+    // the snapshot columns have no room for a null, and the schema still allows one in these two
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public boolean hasStocksWithoutValueOrStore() {
+        String query = "SELECT COUNT(*) FROM (SELECT ID FROM STOCK WHERE VALUE IS NULL OR STOREID IS NULL LIMIT 1) st";
+
+        return jdbcTemplate.queryForObject(query, Collections.emptyMap(), Integer.class) > 0;
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public Map<Integer, String> getStockTypes() {
+        String query = "SELECT ID, NAME FROM STOCK_TYPE ORDER BY ID";
+
+        Map<Integer, String> namesById = new LinkedHashMap<>();
+        jdbcTemplate.query(query,
+                Collections.emptyMap(),
+                (RowCallbackHandler) resultSet -> namesById.put(resultSet.getInt(1), resultSet.getString(2)));
+        return namesById;
+    }
+
+    // the ids of the given types, adding the ones this database does not know yet
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public Map<String, Integer> addMissingStockTypes(Collection<String> names) {
+        Map<String, Integer> idsByName = new HashMap<>();
+        getStockTypes().forEach((id, name) -> idsByName.put(name, id));
+
+        String insertQuery = "INSERT INTO STOCK_TYPE (NAME) VALUES (:name)";
+        for (String name : names) {
+            if (!idsByName.containsKey(name)) {
+                jdbcTemplate.update(insertQuery, Collections.singletonMap("name", name));
+                idsByName.put(name, jdbcTemplate.queryForObject("SELECT ID FROM STOCK_TYPE WHERE NAME = :name",
+                        Collections.singletonMap("name", name), Integer.class));
+            }
+        }
+        return idsByName;
+    }
+
+    // PostgreSQL only honours the fetch size inside a transaction, otherwise the whole result is buffered
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public void streamStores(Consumer<Store> consumer) {
+        String query = "SELECT ID, NAME FROM STORES ORDER BY ID";
+
+        streamingJdbcTemplate.query(query,
+                Collections.emptyMap(),
+                (RowCallbackHandler) resultSet -> consumer.accept(new Store(resultSet.getInt(1), resultSet.getString(2))));
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public void streamStocks(Consumer<Stock> consumer) {
+        String query = "SELECT s.ID, s.NAME, t.NAME, s.VALUE, s.STOREID " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "ORDER BY s.ID";
+
+        streamingJdbcTemplate.query(query,
+                Collections.emptyMap(),
+                (RowCallbackHandler) resultSet -> consumer.accept(new Stock(resultSet.getInt(1),
+                        resultSet.getString(2),
+                        resultSet.getString(3),
+                        resultSet.getInt(4),
+                        resultSet.getInt(5))));
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void insertStores(List<Store> stores) {
+        jdbcTemplate.getJdbcOperations().execute((ConnectionCallback<Void>) connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                StringBuilder rows = new StringBuilder();
+                for (Store store : stores) {
+                    rows.append(store.getId()).append(',')
+                            .append(toCsvField(store.getName())).append('\n');
+                }
+                copy(connection, "COPY STORES (ID, NAME) FROM STDIN WITH (FORMAT csv)", rows);
+                return null;
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO STORES (ID, NAME) VALUES (?, ?)")) {
+                for (Store store : stores) {
+                    statement.setInt(1, store.getId());
+                    statement.setString(2, store.getName());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void insertStocks(List<Stock> stocks, Map<String, Integer> typeIds) {
+        jdbcTemplate.getJdbcOperations().execute((ConnectionCallback<Void>) connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                StringBuilder rows = new StringBuilder();
+                for (Stock stock : stocks) {
+                    rows.append(stock.getId()).append(',')
+                            .append(toCsvField(stock.getName())).append(',')
+                            .append(typeIds.get(stock.getType())).append(',')
+                            .append(stock.getValue()).append(',')
+                            .append(stock.getStoreId()).append('\n');
+                }
+                copy(connection, "COPY STOCK (ID, NAME, TYPE_ID, VALUE, STOREID) FROM STDIN WITH (FORMAT csv)", rows);
+                return null;
+            }
+
+            String query = "INSERT INTO STOCK (ID, NAME, TYPE_ID, VALUE, STOREID) VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (Stock stock : stocks) {
+                    statement.setInt(1, stock.getId());
+                    statement.setString(2, stock.getName());
+                    statement.setInt(3, typeIds.get(stock.getType()));
+                    statement.setInt(4, stock.getValue());
+                    statement.setInt(5, stock.getStoreId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    // rows were inserted with their ids, so the id sequences have to be moved past them
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void restartIdSequences() {
+        jdbcTemplate.getJdbcOperations().execute((ConnectionCallback<Void>) connection -> {
+            for (String table : new String[]{"STORES", "STOCK"}) {
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(ID), 0) FROM " + table,
+                        Collections.emptyMap(), Long.class);
+                String query = connection.isWrapperFor(PGConnection.class)
+                        ? "SELECT setval(pg_get_serial_sequence('" + table.toLowerCase() + "', 'id'), " + Math.max(maxId, 1) + ", " + (maxId > 0) + ")"
+                        : "ALTER TABLE " + table + " ALTER COLUMN ID RESTART WITH " + (maxId + 1);
+                jdbcTemplate.getJdbcOperations().execute(query);
+            }
+            return null;
+        });
+    }
+
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void rebuildTotals() {
+        String deleteTotalsQuery = "DELETE FROM STORE_TOTALS";
+        String insertTotalsQuery = "INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE, VERSION) " +
+                "SELECT sr.ID, COALESCE(SUM(st.VALUE), 0), 1 " +
+                "FROM STORES sr " +
+                "LEFT JOIN STOCK st ON st.STOREID = sr.ID " +
+                "GROUP BY sr.ID";
+        String deleteTypeTotalsQuery = "DELETE FROM STORE_TYPE_TOTALS";
+        String insertTypeTotalsQuery = "INSERT INTO STORE_TYPE_TOTALS " +
+                "(STOREID, TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE) " +
+                "SELECT STOREID, TYPE_ID, COUNT(*), COALESCE(SUM(VALUE), 0), MIN(VALUE), MAX(VALUE) " +
+                "FROM STOCK " +
+                "GROUP BY STOREID, TYPE_ID";
+
+        jdbcTemplate.update(deleteTotalsQuery, Collections.emptyMap());
+        jdbcTemplate.update(insertTotalsQuery, Collections.emptyMap());
+        jdbcTemplate.update(deleteTypeTotalsQuery, Collections.emptyMap());
+        jdbcTemplate.update(insertTypeTotalsQuery, Collections.emptyMap());
+    }
+
+    private void copy(Connection connection, String copyQuery, StringBuilder rows) throws SQLException {
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copyQuery, new StringReader(rows.toString()));
+        } catch (IOException e) {
+            throw new SQLException("Could not copy snapshot rows", e);
+        }
+    }
+
+    private String toCsvField(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
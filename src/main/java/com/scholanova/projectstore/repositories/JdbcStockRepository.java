@@ -0,0 +1,572 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotValidException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreTotalCheck;
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile("!edge")
+public class JdbcStockRepository implements StockRepository {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int COPY_THRESHOLD = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final StockTypeRegistry stockTypes;
+
+    public JdbcStockRepository(NamedParameterJdbcTemplate jdbcTemplate, StockTypeRegistry stockTypes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockTypes = stockTypes;
+
+        JdbcTemplate fetchingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        fetchingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(fetchingJdbcTemplate);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public Stock getById(Integer id) throws ModelNotFoundException {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.ID = :id";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", id);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Stock.class))
+                .stream()
+                .findFirst()
+                .orElseThrow(ModelNotFoundException::new);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public List<Stock> listStocksByStoreId(Integer storeId) throws ModelNotFoundException {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("storeId", storeId);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Stock.class));
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public List<Stock> listStocksByStoreIdAfter(Integer storeId, String type, Integer afterId, int limit) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId " +
+                "AND s.ID > :afterId " +
+                (type == null ? "" : "AND s.TYPE_ID = :typeId ") +
+                "ORDER BY s.ID " +
+                "LIMIT :limit";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("storeId", storeId);
+        parameters.put("afterId", afterId);
+        parameters.put("typeId", stockTypes.getId(type));
+        parameters.put("limit", limit);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Stock.class));
+    }
+
+    // PostgreSQL only honours the fetch size inside a transaction, otherwise the whole result is buffered
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public void streamStocksByStoreId(Integer storeId, Consumer<Stock> consumer) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId " +
+                "ORDER BY s.ID";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("storeId", storeId);
+
+        BeanPropertyRowMapper<Stock> rowMapper = new BeanPropertyRowMapper<>(Stock.class);
+        streamingJdbcTemplate.query(query,
+                parameters,
+                (RowCallbackHandler) resultSet -> consumer.accept(rowMapper.mapRow(resultSet, resultSet.getRow())));
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public Stock getStockByStockIdAndStoreId(Integer storeId, Integer stockId) throws ModelNotFoundException {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId AND " +
+                "s.ID = :stockId";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("storeId", storeId);
+        parameters.put("stockId", stockId);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Stock.class))
+                .stream()
+                .findFirst()
+                .orElseThrow(ModelNotFoundException::new);
+    }
+    
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public Stock addStockByStoreId(Integer storeId, Stock stock) {
+        KeyHolder holder = new GeneratedKeyHolder();
+
+        String query = "INSERT INTO STOCK " +
+                "(NAME, TYPE_ID, VALUE, STOREID) VALUES " +
+                "(:name, :typeId, :value, :storeId)";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("storeId", storeId)
+                .addValue("value", stock.getValue())
+                .addValue("typeId", stockTypes.getId(stock.getType()))
+                .addValue("name", stock.getName());
+
+        jdbcTemplate.update(query, parameters, holder);
+        addToStoreTotal(storeId, stock.getValue());
+        addToStoreTypeTotals(storeId, Collections.singletonList(stock));
+
+        Integer newlyCreatedId = (Integer) holder.getKeys().get("ID");
+        return new Stock(newlyCreatedId, stock.getName(), stock.getType(), stock.getValue(), storeId);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public List<Stock> addStocksByStoreId(Integer storeId, List<Stock> stocks) {
+        if (stocks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Stock> createdStocks = jdbcTemplate.getJdbcOperations().execute((ConnectionCallback<List<Stock>>) connection -> {
+            if (stocks.size() >= COPY_THRESHOLD && connection.isWrapperFor(PGConnection.class)) {
+                return copyStocks(connection, storeId, stocks);
+            }
+            return batchInsertStocks(connection, storeId, stocks);
+        });
+
+        addToStoreTotal(storeId, stocks.stream().mapToLong(Stock::getValue).sum());
+        addToStoreTypeTotals(storeId, stocks);
+        return createdStocks;
+    }
+
+    private List<Stock> batchInsertStocks(Connection connection, Integer storeId, List<Stock> stocks) throws SQLException {
+        String query = "INSERT INTO STOCK " +
+                "(NAME, TYPE_ID, VALUE, STOREID) VALUES " +
+                "(?, ?, ?, ?)";
+
+        List<Stock> createdStocks = new ArrayList<>(stocks.size());
+        try (PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < stocks.size(); from += INSERT_BATCH_SIZE) {
+                List<Stock> chunk = stocks.subList(from, Math.min(from + INSERT_BATCH_SIZE, stocks.size()));
+                for (Stock stock : chunk) {
+                    statement.setString(1, stock.getName());
+                    statement.setObject(2, stockTypes.getId(stock.getType()), Types.SMALLINT);
+                    statement.setInt(3, stock.getValue());
+                    statement.setInt(4, storeId);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Stock stock : chunk) {
+                        if (!keys.next()) {
+                            throw new SQLException("Missing generated key for batch inserted stock");
+                        }
+                        createdStocks.add(new Stock(keys.getInt("ID"), stock.getName(), stock.getType(), stock.getValue(), storeId));
+                    }
+                }
+            }
+        }
+        return createdStocks;
+    }
+
+    private List<Stock> copyStocks(Connection connection, Integer storeId, List<Stock> stocks) throws SQLException {
+        String idQuery = "SELECT nextval(pg_get_serial_sequence('stock', 'id')) " +
+                "FROM generate_series(1, ?)";
+
+        List<Stock> createdStocks = new ArrayList<>(stocks.size());
+        StringBuilder rows = new StringBuilder();
+        try (PreparedStatement statement = connection.prepareStatement(idQuery)) {
+            statement.setInt(1, stocks.size());
+            try (ResultSet ids = statement.executeQuery()) {
+                for (Stock stock : stocks) {
+                    ids.next();
+                    Stock createdStock = new Stock(ids.getInt(1), stock.getName(), stock.getType(), stock.getValue(), storeId);
+                    rows.append(createdStock.getId()).append(',')
+                            .append(toCsvField(createdStock.getName())).append(',')
+                            .append(stockTypes.getId(createdStock.getType())).append(',')
+                            .append(createdStock.getValue()).append(',')
+                            .append(createdStock.getStoreId()).append('\n');
+                    createdStocks.add(createdStock);
+                }
+            }
+        }
+
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY STOCK (ID, NAME, TYPE_ID, VALUE, STOREID) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(rows.toString()));
+        } catch (IOException e) {
+            throw new SQLException("Could not copy stocks", e);
+        }
+        return createdStocks;
+    }
+
+    private boolean isPostgreSql() {
+        return jdbcTemplate.getJdbcOperations().execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+    }
+
+    private String toCsvField(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public Stock deleteById(Integer id) throws StockNotFoundException {
+        // one statement on either database, handing back the deleted row with its type name
+        String deletedColumns = "d.ID AS id, d.NAME AS name, t.NAME AS type, d.VALUE AS value, d.STOREID AS storeId ";
+        String query = isPostgreSql()
+                ? "WITH d AS (DELETE FROM STOCK WHERE ID = :id RETURNING ID, NAME, TYPE_ID, VALUE, STOREID) " +
+                        "SELECT " + deletedColumns +
+                        "FROM d " +
+                        "JOIN STOCK_TYPE t ON t.ID = d.TYPE_ID"
+                : "SELECT " + deletedColumns +
+                        "FROM OLD TABLE (DELETE FROM STOCK WHERE ID = :id) d " +
+                        "JOIN STOCK_TYPE t ON t.ID = d.TYPE_ID";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id);
+
+        Stock stock = jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Stock.class))
+                .stream()
+                .findFirst()
+                .orElseThrow(StockNotFoundException::new);
+
+        addToStoreTotal(stock.getStoreId(), -stock.getValue());
+        removeFromStoreTypeTotals(stock);
+        return stock;
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public Long getStoreTotalValue(Integer storeId) {
+        String query = "SELECT TOTAL_VALUE FROM STORE_TOTALS WHERE STOREID = :id";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", storeId);
+
+        return jdbcTemplate.queryForList(query, parameters, Long.class)
+                .stream()
+                .findFirst()
+                .orElse(0L);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public Long getStoreVersion(Integer storeId) {
+        String query = "SELECT VERSION FROM STORE_TOTALS WHERE STOREID = :id";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", storeId);
+
+        return jdbcTemplate.queryForList(query, parameters, Long.class)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public List<StoreTotalCheck> checkStoreTotals(Integer afterStoreId, int limit) {
+        // a type row left empty by deleting its last stock is ignored, like the summaries do
+        String actualTypeTotals = "SELECT TYPE_ID, COUNT(*), SUM(VALUE), MIN(VALUE), MAX(VALUE) " +
+                "FROM STOCK WHERE STOREID = sr.ID GROUP BY TYPE_ID";
+        String recordedTypeTotals = "SELECT TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE " +
+                "FROM STORE_TYPE_TOTALS WHERE STOREID = sr.ID AND STOCK_COUNT > 0";
+        String query = "SELECT sr.ID AS storeId, " +
+                "COALESCE(t.TOTAL_VALUE, 0) AS recordedTotal, " +
+                "COALESCE(SUM(st.VALUE), 0) AS actualTotal, " +
+                "CASE WHEN EXISTS (" + actualTypeTotals + " EXCEPT " + recordedTypeTotals + ") " +
+                "OR EXISTS (" + recordedTypeTotals + " EXCEPT " + actualTypeTotals + ") " +
+                "THEN TRUE ELSE FALSE END AS typeTotalsDrifted " +
+                "FROM (SELECT ID FROM STORES WHERE ID > :afterStoreId ORDER BY ID LIMIT :limit) sr " +
+                "LEFT JOIN STORE_TOTALS t ON t.STOREID = sr.ID " +
+                "LEFT JOIN STOCK st ON st.STOREID = sr.ID " +
+                "GROUP BY sr.ID, t.TOTAL_VALUE " +
+                "ORDER BY sr.ID";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("afterStoreId", afterStoreId);
+        parameters.put("limit", limit);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(StoreTotalCheck.class));
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public void repairStoreTotal(Integer storeId) {
+        // stock writes update this row in their own transaction: once it is locked, none of them is in flight,
+        // so the sums below, read by statements started after the lock, match what is committed
+        String lockQuery = "SELECT VERSION FROM STORE_TOTALS WHERE STOREID = :storeId FOR UPDATE";
+        String query = "UPDATE STORE_TOTALS " +
+                "SET TOTAL_VALUE = (SELECT COALESCE(SUM(VALUE), 0) FROM STOCK WHERE STOREID = :storeId), " +
+                "VERSION = VERSION + 1 " +
+                "WHERE STOREID = :storeId";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("storeId", storeId);
+
+        jdbcTemplate.queryForList(lockQuery, parameters, Long.class);
+        if (jdbcTemplate.update(query, parameters) == 0) {
+            String insertQuery = "INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE) " +
+                    "SELECT :storeId, COALESCE(SUM(VALUE), 0) FROM STOCK WHERE STOREID = :storeId";
+            jdbcTemplate.update(insertQuery, parameters);
+        }
+
+        String deleteTypeTotalsQuery = "DELETE FROM STORE_TYPE_TOTALS WHERE STOREID = :storeId";
+        String insertTypeTotalsQuery = "INSERT INTO STORE_TYPE_TOTALS " +
+                "(STOREID, TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE) " +
+                "SELECT STOREID, TYPE_ID, COUNT(*), COALESCE(SUM(VALUE), 0), MIN(VALUE), MAX(VALUE) " +
+                "FROM STOCK WHERE STOREID = :storeId " +
+                "GROUP BY STOREID, TYPE_ID";
+        jdbcTemplate.update(deleteTypeTotalsQuery, parameters);
+        jdbcTemplate.update(insertTypeTotalsQuery, parameters);
+    }
+
+    private void addToStoreTotal(Integer storeId, long delta) {
+        String query = "UPDATE STORE_TOTALS " +
+                "SET TOTAL_VALUE = TOTAL_VALUE + :delta, " +
+                "VERSION = VERSION + 1 " +
+                "WHERE STOREID = :storeId";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("storeId", storeId)
+                .addValue("delta", delta);
+
+        if (jdbcTemplate.update(query, parameters) == 0) {
+            String insertQuery = "INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE, VERSION) " +
+                    "VALUES (:storeId, :delta, 1)";
+            jdbcTemplate.update(insertQuery, parameters);
+        }
+    }
+
+    // all rows of a store are written with one batch whatever the number of types in it
+    private void addToStoreTypeTotals(Integer storeId, List<Stock> stocks) {
+        String query = "UPDATE STORE_TYPE_TOTALS " +
+                "SET STOCK_COUNT = STOCK_COUNT + :count, " +
+                "TOTAL_VALUE = TOTAL_VALUE + :total, " +
+                "MIN_VALUE = COALESCE(LEAST(MIN_VALUE, :min), :min), " +
+                "MAX_VALUE = COALESCE(GREATEST(MAX_VALUE, :max), :max) " +
+                "WHERE STOREID = :storeId AND TYPE_ID = :typeId";
+
+        Map<Integer, IntSummaryStatistics> statisticsByType = stocks.stream()
+                .collect(Collectors.groupingBy(stock -> stockTypes.getId(stock.getType()),
+                        LinkedHashMap::new,
+                        Collectors.summarizingInt(Stock::getValue)));
+
+        List<SqlParameterSource> parameters = new ArrayList<>(statisticsByType.size());
+        for (Map.Entry<Integer, IntSummaryStatistics> typeStatistics : statisticsByType.entrySet()) {
+            IntSummaryStatistics statistics = typeStatistics.getValue();
+            parameters.add(new MapSqlParameterSource()
+                    .addValue("storeId", storeId)
+                    .addValue("typeId", typeStatistics.getKey())
+                    .addValue("count", statistics.getCount())
+                    .addValue("total", statistics.getSum())
+                    .addValue("min", statistics.getMin())
+                    .addValue("max", statistics.getMax()));
+        }
+
+        int[] updatedRows = jdbcTemplate.batchUpdate(query, parameters.toArray(new SqlParameterSource[0]));
+        List<SqlParameterSource> missingRows = new ArrayList<>();
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                missingRows.add(parameters.get(i));
+            }
+        }
+
+        if (!missingRows.isEmpty()) {
+            String insertQuery = "INSERT INTO STORE_TYPE_TOTALS " +
+                    "(STOREID, TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE) VALUES " +
+                    "(:storeId, :typeId, :count, :total, :min, :max)";
+            jdbcTemplate.batchUpdate(insertQuery, missingRows.toArray(new SqlParameterSource[0]));
+        }
+    }
+
+    // the minimum or maximum is only looked up again when the removed stock was holding it
+    private void removeFromStoreTypeTotals(Stock stock) {
+        String query = "UPDATE STORE_TYPE_TOTALS " +
+                "SET STOCK_COUNT = STOCK_COUNT - 1, " +
+                "TOTAL_VALUE = TOTAL_VALUE - :value, " +
+                "MIN_VALUE = CASE WHEN MIN_VALUE < :value THEN MIN_VALUE " +
+                "ELSE (SELECT MIN(VALUE) FROM STOCK WHERE STOREID = :storeId AND TYPE_ID = :typeId) END, " +
+                "MAX_VALUE = CASE WHEN MAX_VALUE > :value THEN MAX_VALUE " +
+                "ELSE (SELECT MAX(VALUE) FROM STOCK WHERE STOREID = :storeId AND TYPE_ID = :typeId) END " +
+                "WHERE STOREID = :storeId AND TYPE_ID = :typeId";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("storeId", stock.getStoreId())
+                .addValue("typeId", stockTypes.getId(stock.getType()))
+                .addValue("value", stock.getValue());
+
+        jdbcTemplate.update(query, parameters);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public List<StockTypeSummary> getStoreStockSummary(Integer storeId) {
+        String query = "SELECT t.NAME AS type, " +
+                "r.STOCK_COUNT AS stockCount, " +
+                "r.TOTAL_VALUE AS totalValue, " +
+                "r.MIN_VALUE AS minValue, " +
+                "r.MAX_VALUE AS maxValue " +
+                "FROM STORE_TYPE_TOTALS r " +
+                "JOIN STOCK_TYPE t ON t.ID = r.TYPE_ID " +
+                "WHERE r.STOREID = :storeId AND r.STOCK_COUNT > 0 " +
+                "ORDER BY t.NAME";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("storeId", storeId);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(StockTypeSummary.class));
+    }
+
+    // folds the per store rollup rows, so it reads stores times types rows and never scans STOCK
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public List<StockTypeSummary> getStockSummary() {
+        String query = "SELECT t.NAME AS type, " +
+                "SUM(r.STOCK_COUNT) AS stockCount, " +
+                "SUM(r.TOTAL_VALUE) AS totalValue, " +
+                "MIN(r.MIN_VALUE) AS minValue, " +
+                "MAX(r.MAX_VALUE) AS maxValue " +
+                "FROM STORE_TYPE_TOTALS r " +
+                "JOIN STOCK_TYPE t ON t.ID = r.TYPE_ID " +
+                "WHERE r.STOCK_COUNT > 0 " +
+                "GROUP BY t.NAME " +
+                "ORDER BY t.NAME";
+
+        return jdbcTemplate.query(query,
+                Collections.emptyMap(),
+                new BeanPropertyRowMapper<>(StockTypeSummary.class));
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public List<Stock> getStoreStockByType(Integer storeId, String type) throws ModelNotFoundException {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId AND s.TYPE_ID = :typeId";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("storeId", storeId);
+        parameters.put("typeId", stockTypes.getId(type));
+
+        List<Stock> stocks = jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Stock.class));
+
+        if (stocks.isEmpty()) {
+            throw new ModelNotFoundException();
+        }
+        return stocks;
+    }
+}
@@ -0,0 +1,183 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("!edge")
+public class JdbcStoreRepository implements StoreRepository {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public JdbcStoreRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        JdbcTemplate fetchingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        fetchingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(fetchingJdbcTemplate);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public Store getById(Integer id) throws ModelNotFoundException {
+        String query = "SELECT ID as id, " +
+                "NAME AS name " +
+                "FROM STORES " +
+                "WHERE ID = :id";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", id);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(Store.class))
+                .stream()
+                .findFirst()
+                .orElseThrow(ModelNotFoundException::new);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public StoreWithTotalValue getStoreWithTotalValue(Integer id) throws ModelNotFoundException {
+        String query = "SELECT sr.ID as id, " +
+                "sr.NAME AS name, " +
+                "COALESCE(t.TOTAL_VALUE, 0) AS stockTotalValue, " +
+                "t.VERSION AS version " +
+                "FROM STORES sr " +
+                "LEFT JOIN STORE_TOTALS t ON t.STOREID = sr.ID " +
+                "WHERE sr.ID = :id";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", id);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(StoreWithTotalValue.class))
+                .stream()
+                .findFirst()
+                .orElseThrow(ModelNotFoundException::new);
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional
+    public Store create(Store storeToCreate) {
+        KeyHolder holder = new GeneratedKeyHolder();
+
+        String query = "INSERT INTO STORES " +
+                "(NAME) VALUES " +
+                "(:name)";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("name", storeToCreate.getName());
+
+        jdbcTemplate.update(query, parameters, holder);
+
+        Integer newlyCreatedId = (Integer) holder.getKeys().get("ID");
+
+        String totalsQuery = "INSERT INTO STORE_TOTALS " +
+                "(STOREID, TOTAL_VALUE) VALUES " +
+                "(:storeId, 0)";
+        jdbcTemplate.update(totalsQuery, new MapSqlParameterSource().addValue("storeId", newlyCreatedId));
+
+        return new Store(newlyCreatedId, storeToCreate.getName());
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    public void deleteById(Integer id) throws StoreNotFoundException {
+
+        String query = "DELETE FROM STORES " +
+                "WHERE ID = :id ";
+
+        SqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id);
+
+        int totalAffectedRows = jdbcTemplate.update(query, parameters);
+        if (totalAffectedRows == 0){
+            throw new StoreNotFoundException();
+        }
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public List<StoreWithTotalValue> getStoreWithMinimumStockValue(int minimumStoreValue) throws ModelNotFoundException {
+        // a store without stock has a zero total but was never listed, its type totals tell it apart
+        String query = "SELECT sr.ID AS id, " +
+                "sr.NAME AS name, " +
+                "t.TOTAL_VALUE AS stockTotalValue " +
+                "FROM STORES sr " +
+                "JOIN STORE_TOTALS t ON t.STOREID = sr.ID " +
+                "WHERE t.TOTAL_VALUE >= :minimumStoreValue " +
+                "AND EXISTS (SELECT 1 FROM STORE_TYPE_TOTALS tt WHERE tt.STOREID = sr.ID AND tt.STOCK_COUNT > 0)";
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("minimumStoreValue", minimumStoreValue);
+
+        return jdbcTemplate.query(query,
+                parameters,
+                new BeanPropertyRowMapper<>(StoreWithTotalValue.class));
+    }
+
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public int[] getStoreIdRange() {
+        String query = "SELECT MIN(ID), MAX(ID) FROM STORES";
+
+        return jdbcTemplate.queryForObject(query,
+                Collections.emptyMap(),
+                (resultSet, rowNum) -> resultSet.getObject(1) == null
+                        ? null
+                        : new int[]{resultSet.getInt(1), resultSet.getInt(2)});
+    }
+
+    // PostgreSQL only honours the fetch size inside a transaction, otherwise the whole result is buffered
+    @Override
+    @Timed(value = "repository.calls", histogram = true)
+    @Transactional(readOnly = true)
+    public void streamStoreValues(int fromId, int toId, Consumer<StoreWithTotalValue> consumer) {
+        String query = "SELECT sr.ID AS id, " +
+                "sr.NAME AS name, " +
+                "COALESCE(t.TOTAL_VALUE, 0) AS stockTotalValue " +
+                "FROM STORES sr " +
+                "LEFT JOIN STORE_TOTALS t ON t.STOREID = sr.ID " +
+                "WHERE sr.ID BETWEEN :fromId AND :toId";
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("fromId", fromId);
+        parameters.put("toId", toId);
+
+        streamingJdbcTemplate.query(query,
+                parameters,
+                (RowCallbackHandler) resultSet -> consumer.accept(new StoreWithTotalValue(resultSet.getInt(1),
+                        resultSet.getString(2),
+                        resultSet.getLong(3))));
+    }
+}
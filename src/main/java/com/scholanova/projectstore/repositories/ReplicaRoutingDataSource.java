@@ -0,0 +1,68 @@
+package com.scholanova.projectstore.repositories;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends connections opened inside a read-only transaction to the replica and everything else to the
+ * primary. It must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the lookup happens after the transaction has been flagged read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public static <T, E extends Exception> T onPrimary(Read<T, E> read) throws E {
+        boolean alreadyPinned = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(true);
+        try {
+            return read.read();
+        } finally {
+            PRIMARY_PINNED.set(alreadyPinned);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!PRIMARY_PINNED.get() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    @FunctionalInterface
+    public interface Read<T, E extends Exception> {
+        T read() throws E;
+    }
+}
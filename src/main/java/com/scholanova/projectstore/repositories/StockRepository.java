@@ -2,165 +2,47 @@ package com.scholanova.projectstore.repositories;
 
 import com.scholanova.projectstore.exceptions.ModelNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotFoundException;
-import com.scholanova.projectstore.exceptions.StockNotValidException;
-import com.scholanova.projectstore.exceptions.StoreNotFoundException;
 import com.scholanova.projectstore.models.Stock;
-import com.scholanova.projectstore.models.Store;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.stereotype.Repository;
-
-import java.util.HashMap;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.models.StoreTotalCheck;
+
 import java.util.List;
-import java.util.Map;
-
-@Repository
-public class StockRepository {
-
-    private final NamedParameterJdbcTemplate jdbcTemplate;
-
-    public StockRepository(NamedParameterJdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
-    }
-
-    public Stock getById(Integer id) throws ModelNotFoundException {
-        String query = "SELECT ID as id, " +
-                "NAME AS name, " +
-                "TYPE AS type, " +
-                "VALUE AS value, " +
-                "STOREID AS storeId " +
-                "FROM STOCK " +
-                "WHERE ID = :id";
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("id", id);
-
-        return jdbcTemplate.query(query,
-                parameters,
-                new BeanPropertyRowMapper<>(Stock.class))
-                .stream()
-                .findFirst()
-                .orElseThrow(ModelNotFoundException::new);
-    }
-
-    public List<Stock> listStocksByStoreId(Integer storeId) throws ModelNotFoundException {
-        String query = "SELECT ID as id, " +
-                "NAME AS name, " +
-                "TYPE AS type, " +
-                "VALUE AS value, " +
-                "STOREID AS storeId " +
-                "FROM STOCK " +
-                "WHERE storeId = :storeId";
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("storeId", storeId);
-
-        List<Stock> stocks = jdbcTemplate.query(query,
-                parameters,
-                new BeanPropertyRowMapper<>(Stock.class));
-
-        return jdbcTemplate.query(query,
-                parameters,
-                new BeanPropertyRowMapper<>(Stock.class));
-    }
-
-    public Stock getStockByStockIdAndStoreId(Integer storeId, Integer stockId) throws ModelNotFoundException {
-        String query = "SELECT ID as id, " +
-                "NAME AS name, " +
-                "TYPE AS type, " +
-                "VALUE AS value, " +
-                "STOREID AS storeId " +
-                "FROM STOCK " +
-                "WHERE storeId = :storeId AND " +
-                "id = :stockId";
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("storeId", storeId);
-        parameters.put("stockId", stockId);
-
-        return jdbcTemplate.query(query,
-                parameters,
-                new BeanPropertyRowMapper<>(Stock.class))
-                .stream()
-                .findFirst()
-                .orElseThrow(ModelNotFoundException::new);
-    }
-    
-    public Stock addStockByStoreId(Integer storeId, Stock stock) throws ModelNotFoundException {
-        KeyHolder holder = new GeneratedKeyHolder();
-
-        String query = "INSERT INTO STOCK " +
-                "(NAME, TYPE, VALUE, STOREID) VALUES " +
-                "(:name, :type, :value, :storeId)";
-
-        SqlParameterSource parameters = new MapSqlParameterSource()
-                .addValue("storeId", storeId)
-                .addValue("value", stock.getValue())
-                .addValue("type", stock.getType())
-                .addValue("name", stock.getName());
-
-        jdbcTemplate.update(query, parameters, holder);
-
-        Integer newlyCreatedId = (Integer) holder.getKeys().get("ID");
-        try {
-            return this.getById(newlyCreatedId);
-        } catch (ModelNotFoundException e) {
-            return null;
-        }
-    }
-
-    public void deleteById(Integer id) throws StockNotFoundException {
-
-        String query = "DELETE FROM STOCK " +
-                "WHERE ID = :id ";
-
-        SqlParameterSource parameters = new MapSqlParameterSource()
-                .addValue("id", id);
-
-        int totalAffectedRows = jdbcTemplate.update(query, parameters);
-        if (totalAffectedRows == 0){
-            throw new StockNotFoundException();
-        }
-    }
-
-    public Integer getStoreTotalValue(Integer storeId) {
-        String query = "SELECT SUM(value) total FROM stock WHERE storeid = :id ";
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("id", storeId);
-
-        if(jdbcTemplate.queryForObject(query, parameters, Integer.class) == null) {
-            return 0;
-        }
-        return jdbcTemplate.queryForObject(query, parameters, Integer.class);
-    }
-
-    public List<Stock> getStoreStockByType(Integer storeId, String type) throws ModelNotFoundException {
-        String query = "SELECT ID as id, " +
-                "NAME AS name, " +
-                "TYPE AS type, " +
-                "VALUE AS value, " +
-                "STOREID AS storeId " +
-                "FROM STOCK " +
-                "WHERE storeId = :storeId AND type = :type";
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("storeId", storeId);
-        parameters.put("type", type);
-
-        List<Stock> stocks = jdbcTemplate.query(query,
-                parameters,
-                new BeanPropertyRowMapper<>(Stock.class));
-
-        if (stocks.isEmpty()) {
-            throw new ModelNotFoundException();
-        }
-        return jdbcTemplate.query(query,
-                parameters,
-                new BeanPropertyRowMapper<>(Stock.class));
-    }
+import java.util.function.Consumer;
+
+/**
+ * Stock storage, backed by the database ({@link JdbcStockRepository}) or, with the {@code edge} profile,
+ * by the in-memory engine ({@link EdgeStockRepository}).
+ */
+public interface StockRepository {
+
+    Stock getById(Integer id) throws ModelNotFoundException;
+
+    List<Stock> listStocksByStoreId(Integer storeId) throws ModelNotFoundException;
+
+    List<Stock> listStocksByStoreIdAfter(Integer storeId, String type, Integer afterId, int limit);
+
+    void streamStocksByStoreId(Integer storeId, Consumer<Stock> consumer);
+
+    Stock getStockByStockIdAndStoreId(Integer storeId, Integer stockId) throws ModelNotFoundException;
+
+    Stock addStockByStoreId(Integer storeId, Stock stock);
+
+    List<Stock> addStocksByStoreId(Integer storeId, List<Stock> stocks);
+
+    Stock deleteById(Integer id) throws StockNotFoundException;
+
+    Long getStoreTotalValue(Integer storeId);
+
+    // bumped together with the total by every stock change, so it tells whether any stock of the store changed
+    Long getStoreVersion(Integer storeId);
+
+    List<StoreTotalCheck> checkStoreTotals(Integer afterStoreId, int limit);
+
+    void repairStoreTotal(Integer storeId);
+
+    List<StockTypeSummary> getStoreStockSummary(Integer storeId);
+
+    List<StockTypeSummary> getStockSummary();
+
+    List<Stock> getStoreStockByType(Integer storeId, String type) throws ModelNotFoundException;
 }
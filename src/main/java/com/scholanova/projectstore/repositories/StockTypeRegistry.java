@@ -0,0 +1,55 @@
+package com.scholanova.projectstore.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of STOCK_TYPE so type names are validated and turned into their small integer id without a
+ * query. It is reloaded periodically, so a type inserted in the table becomes usable without a restart.
+ */
+@Component
+@Profile("!edge")
+public class StockTypeRegistry {
+
+    private final Supplier<Map<String, Integer>> loader;
+    private volatile Map<String, Integer> idsByName = Collections.emptyMap();
+
+    @Autowired
+    public StockTypeRegistry(NamedParameterJdbcTemplate jdbcTemplate) {
+        this(() -> {
+            Map<String, Integer> loadedIdsByName = new HashMap<>();
+            jdbcTemplate.query("SELECT ID, NAME FROM STOCK_TYPE",
+                    Collections.emptyMap(),
+                    (RowCallbackHandler) resultSet -> loadedIdsByName.put(resultSet.getString("NAME"), resultSet.getInt("ID")));
+            return loadedIdsByName;
+        });
+    }
+
+    public StockTypeRegistry(Supplier<Map<String, Integer>> loader) {
+        this.loader = loader;
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${store.stock-types.refresh-interval:PT1M}",
+            initialDelayString = "${store.stock-types.refresh-interval:PT1M}")
+    public void refresh() {
+        idsByName = Collections.unmodifiableMap(new HashMap<>(loader.get()));
+    }
+
+    public Integer getId(String name) {
+        return name == null ? null : idsByName.get(name);
+    }
+
+    public boolean contains(String name) {
+        return getId(name) != null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.scholanova.projectstore.repositories;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Times how long callers wait for a connection. The waits are summed per time window, and the recent wait is
+ * the mean over the current and the previous window, so it drops back to zero on its own once nobody asks for
+ * a connection any more.
+ */
+public class WaitTrackingDataSource extends DelegatingDataSource {
+
+    private final long windowNanos;
+    private final AtomicReference<Window> window;
+
+    public WaitTrackingDataSource(DataSource targetDataSource, Duration window) {
+        super(targetDataSource);
+        this.windowNanos = window.toNanos();
+        this.window = new AtomicReference<>(new Window(Math.floorDiv(System.nanoTime(), windowNanos), 0, 0, 0, 0));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return obtainTargetDataSource().getConnection();
+        } finally {
+            record(start, System.nanoTime());
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return obtainTargetDataSource().getConnection(username, password);
+        } finally {
+            record(start, System.nanoTime());
+        }
+    }
+
+    public long getRecentWaitNanos() {
+        long index = Math.floorDiv(System.nanoTime(), windowNanos);
+        Window current = window.get();
+        if (current.index >= index) {
+            long count = current.count + current.previousCount;
+            return count == 0 ? 0 : (current.totalNanos + current.previousTotalNanos) / count;
+        }
+        if (current.index == index - 1) {
+            return current.count == 0 ? 0 : current.totalNanos / current.count;
+        }
+        return 0;
+    }
+
+    private void record(long start, long end) {
+        long waitNanos = end - start;
+        long index = Math.floorDiv(end, windowNanos);
+        while (true) {
+            Window current = window.get();
+            Window next;
+            // a caller that read the clock just before the window rolled still counts in the newer window
+            if (current.index >= index) {
+                next = new Window(current.index, current.count + 1, current.totalNanos + waitNanos,
+                        current.previousCount, current.previousTotalNanos);
+            } else if (current.index == index - 1) {
+                next = new Window(index, 1, waitNanos, current.count, current.totalNanos);
+            } else {
+                next = new Window(index, 1, waitNanos, 0, 0);
+            }
+            if (window.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static class Window {
+        private final long index;
+        private final long count;
+        private final long totalNanos;
+        private final long previousCount;
+        private final long previousTotalNanos;
+
+        private Window(long index, long count, long totalNanos, long previousCount, long previousTotalNanos) {
+            this.index = index;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.previousCount = previousCount;
+            this.previousTotalNanos = previousTotalNanos;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.scholanova.projectstore.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
+import com.scholanova.projectstore.models.IdempotencyRecord;
+import com.scholanova.projectstore.repositories.IdempotencyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs a creation at most once per {@code Idempotency-Key}: a retry gets the recorded response back instead.
+ * Recorded responses are kept in a bounded cache in front of the IDEMPOTENCY_KEY table, so a retry reaching
+ * the node that served the first attempt is answered without touching the database.
+ * <p>
+ * Concurrent retries of one key are coalesced on this node, keys never wait for each other. Across nodes the
+ * key is reserved in the table before the request runs, and a retry arriving meanwhile is told to come back.
+ * <p>
+ * A key is only released for another attempt when its request was turned away before running. A request that
+ * failed any other way, or died before recording its response, may have created the resource: its key is
+ * abandoned and retries are refused until it expires, the client has to check what exists. Without the table,
+ * in the {@code edge} profile, the cache alone remembers the keys.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Cache<List<String>, IdempotencyRecord> records;
+    private final SingleFlight<List<String>, IdempotencyRecord> executions;
+    private final Duration retention;
+    private final Duration reservationTimeout;
+    private final Clock clock;
+
+    public IdempotencyService(@Nullable IdempotencyRepository idempotencyRepository,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${store.idempotency.cache.maximum-size:100000}") long cacheSize,
+                              @Value("${store.idempotency.retention:24h}") Duration retention,
+                              @Value("${store.idempotency.reservation-timeout:1m}") Duration reservationTimeout) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.retention = retention;
+        this.reservationTimeout = reservationTimeout;
+        this.clock = Clock.systemUTC();
+        this.records = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(retention)
+                .build();
+        this.executions = new SingleFlight<>("idempotency", meterRegistry);
+    }
+
+    /**
+     * Runs the creation unless the key was already used, and answers with the response recorded for the key.
+     * The request is fingerprinted so a key reused for another request is refused rather than replayed.
+     */
+    public <E extends Exception> ResponseEntity<?> execute(String scope, String key, Object request,
+                                                           SingleFlight.Call<ResponseEntity<?>, E> creation) throws E {
+        List<String> cacheKey = Arrays.asList(scope, key);
+        String requestHash = DigestUtils.md5DigestAsHex(toJson(request).getBytes(StandardCharsets.UTF_8));
+
+        IdempotencyRecord record = records.getIfPresent(cacheKey);
+        if (record == null) {
+            record = executions.execute(cacheKey, () -> lookupOrRun(scope, key, requestHash, creation));
+        } else {
+            count("replayed");
+        }
+
+        if (!record.getRequestHash().equals(requestHash)) {
+            count("mismatched");
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key already used for another request");
+        }
+        if (record.isAbandoned()) {
+            count("abandoned");
+            return error(HttpStatus.CONFLICT, "the request with this Idempotency-Key did not complete, its outcome is unknown");
+        }
+        if (record.isPending()) {
+            count("conflicted");
+            return error(HttpStatus.CONFLICT, "a request with this Idempotency-Key is in progress");
+        }
+        return ResponseEntity.status(record.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(record.getBody());
+    }
+
+    @Scheduled(cron = "${store.idempotency.purge-cron:-}")
+    public void purgeExpiredKeys() {
+        if (idempotencyRepository != null) {
+            int purgedKeys = idempotencyRepository.deleteCreatedBefore(clock.instant().minus(retention));
+            LOGGER.info("Idempotency keys purged, {} key(s) expired", purgedKeys);
+        }
+    }
+
+    private <E extends Exception> IdempotencyRecord lookupOrRun(String scope, String key, String requestHash,
+                                                                SingleFlight.Call<ResponseEntity<?>, E> creation) throws E {
+        List<String> cacheKey = Arrays.asList(scope, key);
+        IdempotencyRecord record = records.getIfPresent(cacheKey);
+        if (record != null) {
+            count("replayed");
+            return record;
+        }
+
+        Instant now = clock.instant();
+        if (idempotencyRepository != null) {
+            record = idempotencyRepository.findByKey(scope, key, now.minus(retention), now.minus(reservationTimeout));
+            if (record != null) {
+                cacheCompleted(cacheKey, record);
+                count("replayed");
+                return record;
+            }
+            if (!idempotencyRepository.reserve(scope, key, requestHash, now, now.minus(retention))) {
+                // another node holds the key, or just completed it
+                record = idempotencyRepository.findByKey(scope, key, now.minus(retention), now.minus(reservationTimeout));
+                return record != null ? record : new IdempotencyRecord(requestHash, null, null);
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = creation.call();
+        } catch (DatabaseOverloadedException ex) {
+            // turned away before its statement ran, so nothing was created and a retry may run it
+            release(scope, key);
+            throw ex;
+        } catch (Exception | Error ex) {
+            abandon(scope, key, requestHash);
+            throw ex;
+        }
+
+        record = new IdempotencyRecord(requestHash, response.getStatusCodeValue(), toJson(response.getBody()));
+        count("executed");
+        // a server error is not an answer to the request, yet it may have come after the resource was created
+        if (response.getStatusCode().is5xxServerError()) {
+            abandon(scope, key, requestHash);
+            return record;
+        }
+        if (idempotencyRepository != null) {
+            idempotencyRepository.complete(scope, key, record.getStatus(), record.getBody());
+        }
+        records.put(cacheKey, record);
+        return record;
+    }
+
+    private void cacheCompleted(List<String> cacheKey, IdempotencyRecord record) {
+        if (!record.isPending()) {
+            records.put(cacheKey, record);
+        }
+    }
+
+    // if the flag cannot be written, the reservation is still seen as abandoned once the reservation timeout passed
+    private void abandon(String scope, String key, String requestHash) {
+        IdempotencyRecord record = new IdempotencyRecord(requestHash, null, null);
+        record.setAbandoned(true);
+        records.put(Arrays.asList(scope, key), record);
+        if (idempotencyRepository != null) {
+            try {
+                idempotencyRepository.abandon(scope, key);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Could not flag idempotency key {} as abandoned", key, ex);
+            }
+        }
+    }
+
+    private void release(String scope, String key) {
+        if (idempotencyRepository != null) {
+            idempotencyRepository.release(scope, key);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("idempotency.requests", "outcome", outcome).increment();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Could not serialize " + value, ex);
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String msg) {
+        return ResponseEntity.status(status).body(Collections.singletonMap("msg", msg));
+    }
+}
@@ -0,0 +1,283 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Binary layout of an inventory snapshot: a header, then length-prefixed sections. A section is the stock type
+ * dictionary, a row group of stores or stocks stored column by column, or the end marker with the row counts.
+ * Each section is written to and read from its own mapping of the file, so no row group is copied through the heap.
+ */
+final class InventorySnapshotFile {
+
+    static final int MAGIC = 0x50534e50;
+    static final int FORMAT_VERSION = 1;
+
+    static final byte END = 0;
+    static final byte STOCK_TYPES = 1;
+    static final byte STORES = 2;
+    static final byte STOCKS = 3;
+
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final int SECTION_HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+
+    private InventorySnapshotFile() {
+    }
+
+    static class Writer implements Closeable {
+        private final FileChannel channel;
+        private long position;
+
+        Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION);
+            this.position = HEADER_SIZE;
+        }
+
+        void writeStockTypes(Map<Integer, String> namesById) throws IOException {
+            List<byte[]> names = new ArrayList<>(namesById.size());
+            int payloadLength = Integer.BYTES;
+            for (String name : namesById.values()) {
+                byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+                names.add(encodedName);
+                payloadLength += Short.BYTES + Integer.BYTES + encodedName.length;
+            }
+
+            ByteBuffer section = section(STOCK_TYPES, payloadLength);
+            section.putInt(namesById.size());
+            int i = 0;
+            for (Integer id : namesById.keySet()) {
+                byte[] encodedName = names.get(i++);
+                section.putShort(id.shortValue()).putInt(encodedName.length).put(encodedName);
+            }
+        }
+
+        void writeStores(List<Store> stores) throws IOException {
+            byte[][] names = encodeNames(stores.size(), i -> stores.get(i).getName());
+            ByteBuffer section = section(STORES, Integer.BYTES + stores.size() * Integer.BYTES + stringsLength(names));
+            section.putInt(stores.size());
+            for (Store store : stores) {
+                section.putInt(store.getId());
+            }
+            putStrings(section, names);
+        }
+
+        void writeStocks(List<Stock> stocks, Map<String, Integer> typeIds) throws IOException {
+            byte[][] names = encodeNames(stocks.size(), i -> stocks.get(i).getName());
+            int columnsLength = stocks.size() * (Integer.BYTES * 3 + Short.BYTES);
+            ByteBuffer section = section(STOCKS, Integer.BYTES + columnsLength + stringsLength(names));
+            section.putInt(stocks.size());
+            for (Stock stock : stocks) {
+                section.putInt(stock.getId());
+            }
+            for (Stock stock : stocks) {
+                section.putInt(stock.getStoreId());
+            }
+            for (Stock stock : stocks) {
+                section.putShort(typeIds.get(stock.getType()).shortValue());
+            }
+            for (Stock stock : stocks) {
+                section.putInt(stock.getValue());
+            }
+            putStrings(section, names);
+        }
+
+        void writeEnd(long storeCount, long stockCount) throws IOException {
+            section(END, Long.BYTES * 2).putLong(storeCount).putLong(stockCount);
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private ByteBuffer section(byte tag, int payloadLength) throws IOException {
+            MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_WRITE, position, SECTION_HEADER_SIZE + payloadLength);
+            section.put(tag).putInt(payloadLength);
+            position += SECTION_HEADER_SIZE + payloadLength;
+            return section;
+        }
+    }
+
+    static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+
+        Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not an inventory snapshot");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an inventory snapshot");
+            }
+            int formatVersion = header.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported inventory snapshot version " + formatVersion);
+            }
+            this.position = HEADER_SIZE;
+        }
+
+        byte nextSection() throws IOException {
+            if (position + SECTION_HEADER_SIZE > size) {
+                throw new IOException("Truncated inventory snapshot");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Byte.BYTES).get();
+        }
+
+        Map<Integer, String> readStockTypes() throws IOException {
+            ByteBuffer section = payload();
+            int count = section.getInt();
+            require(section, count, Short.BYTES + Integer.BYTES);
+            Map<Integer, String> namesById = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                int id = section.getShort();
+                int nameLength = section.getInt();
+                require(section, nameLength, Byte.BYTES);
+                byte[] encodedName = new byte[nameLength];
+                section.get(encodedName);
+                namesById.put(id, new String(encodedName, StandardCharsets.UTF_8));
+            }
+            return namesById;
+        }
+
+        List<Store> readStores() throws IOException {
+            ByteBuffer section = payload();
+            int rows = section.getInt();
+            int[] ids = getInts(section, rows);
+            String[] names = getStrings(section, rows);
+
+            List<Store> stores = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                stores.add(new Store(ids[i], names[i]));
+            }
+            return stores;
+        }
+
+        List<Stock> readStocks(Map<Integer, String> typeNames) throws IOException {
+            ByteBuffer section = payload();
+            int rows = section.getInt();
+            int[] ids = getInts(section, rows);
+            int[] storeIds = getInts(section, rows);
+            require(section, rows, Short.BYTES);
+            short[] typeIds = new short[rows];
+            section.asShortBuffer().get(typeIds);
+            section.position(section.position() + rows * Short.BYTES);
+            int[] values = getInts(section, rows);
+            String[] names = getStrings(section, rows);
+
+            List<Stock> stocks = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                String type = typeNames.get((int) typeIds[i]);
+                if (type == null) {
+                    throw new IOException("Unknown stock type id " + typeIds[i] + " in inventory snapshot");
+                }
+                stocks.add(new Stock(ids[i], names[i], type, values[i], storeIds[i]));
+            }
+            return stocks;
+        }
+
+        long[] readEnd() throws IOException {
+            ByteBuffer section = payload();
+            return new long[]{section.getLong(), section.getLong()};
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private ByteBuffer payload() throws IOException {
+            int payloadLength = channel.map(FileChannel.MapMode.READ_ONLY, position + Byte.BYTES, Integer.BYTES).getInt();
+            if (payloadLength < 0 || position + SECTION_HEADER_SIZE + payloadLength > size) {
+                throw new IOException("Truncated inventory snapshot");
+            }
+            MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, position + SECTION_HEADER_SIZE, payloadLength);
+            position += SECTION_HEADER_SIZE + payloadLength;
+            return payload;
+        }
+    }
+
+    private static byte[][] encodeNames(int rows, IntFunction<String> name) {
+        byte[][] names = new byte[rows][];
+        for (int i = 0; i < rows; i++) {
+            names[i] = name.apply(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private static int stringsLength(byte[][] strings) {
+        int length = strings.length * Integer.BYTES;
+        for (byte[] string : strings) {
+            length += string.length;
+        }
+        return length;
+    }
+
+    // all lengths first then all bytes, so a reader can size every string before touching the bytes
+    private static void putStrings(ByteBuffer section, byte[][] strings) {
+        for (byte[] string : strings) {
+            section.putInt(string.length);
+        }
+        for (byte[] string : strings) {
+            section.put(string);
+        }
+    }
+
+    // counts and lengths come from the file: checked against what the section holds before anything is allocated
+    private static void require(ByteBuffer section, int count, int bytesEach) throws IOException {
+        if (count < 0 || (long) count * bytesEach > section.remaining()) {
+            throw new IOException("Corrupt inventory snapshot");
+        }
+    }
+
+    private static int[] getInts(ByteBuffer section, int rows) throws IOException {
+        require(section, rows, Integer.BYTES);
+        int[] values = new int[rows];
+        section.asIntBuffer().get(values);
+        section.position(section.position() + rows * Integer.BYTES);
+        return values;
+    }
+
+    private static String[] getStrings(ByteBuffer section, int rows) throws IOException {
+        int[] lengths = getInts(section, rows);
+        long totalLength = 0;
+        for (int length : lengths) {
+            require(section, length, Byte.BYTES);
+            totalLength += length;
+        }
+        if (totalLength > section.remaining()) {
+            throw new IOException("Corrupt inventory snapshot");
+        }
+        byte[] scratch = new byte[0];
+        String[] strings = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            if (scratch.length < lengths[i]) {
+                scratch = new byte[lengths[i]];
+            }
+            section.get(scratch, 0, lengths[i]);
+            strings[i] = new String(scratch, 0, lengths[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+}
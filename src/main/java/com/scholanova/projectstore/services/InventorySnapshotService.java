@@ -0,0 +1,158 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.InventoryNotEmptyException;
+import com.scholanova.projectstore.exceptions.InventoryNotExportableException;
+import com.scholanova.projectstore.models.InventorySnapshot;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.repositories.InventorySnapshotRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Dumps the whole inventory to a snapshot file and restores an empty database from one. Rows are streamed and
+ * written a row group at a time, so neither side holds more than one row group in memory.
+ */
+@Service
+@Profile("!edge")
+public class InventorySnapshotService {
+
+    static final int ROW_GROUP_SIZE = 65536;
+
+    private final InventorySnapshotRepository snapshotRepository;
+    private final StockTypeRegistry stockTypes;
+
+    public InventorySnapshotService(InventorySnapshotRepository snapshotRepository, StockTypeRegistry stockTypes) {
+        this.snapshotRepository = snapshotRepository;
+        this.stockTypes = stockTypes;
+    }
+
+    // one repeatable read transaction so stocks and their stores come from the same point in time
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public InventorySnapshot export(Path path) throws IOException, InventoryNotExportableException {
+        if (snapshotRepository.hasStocksWithoutValueOrStore()) {
+            throw new InventoryNotExportableException();
+        }
+
+        try (InventorySnapshotFile.Writer writer = new InventorySnapshotFile.Writer(path)) {
+            Map<Integer, String> typeNames = snapshotRepository.getStockTypes();
+            Map<String, Integer> typeIds = new HashMap<>();
+            typeNames.forEach((id, name) -> typeIds.put(name, id));
+            writer.writeStockTypes(typeNames);
+
+            RowGroup<Store> stores = new RowGroup<>(writer::writeStores);
+            snapshotRepository.streamStores(stores);
+            stores.flush();
+
+            RowGroup<Stock> stocks = new RowGroup<>(group -> writer.writeStocks(group, typeIds));
+            snapshotRepository.streamStocks(stocks);
+            stocks.flush();
+
+            writer.writeEnd(stores.count, stocks.count);
+            return new InventorySnapshot(stores.count, stocks.count);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public InventorySnapshot restore(Path path) throws IOException, InventoryNotEmptyException {
+        if (!snapshotRepository.isEmpty()) {
+            throw new InventoryNotEmptyException();
+        }
+
+        long storeCount = 0;
+        long stockCount = 0;
+        try (InventorySnapshotFile.Reader reader = new InventorySnapshotFile.Reader(path)) {
+            Map<Integer, String> typeNames = new HashMap<>();
+            Map<String, Integer> typeIds = new HashMap<>();
+            for (byte section = reader.nextSection(); section != InventorySnapshotFile.END; section = reader.nextSection()) {
+                switch (section) {
+                    case InventorySnapshotFile.STOCK_TYPES:
+                        typeNames = reader.readStockTypes();
+                        typeIds = snapshotRepository.addMissingStockTypes(typeNames.values());
+                        break;
+                    case InventorySnapshotFile.STORES:
+                        List<Store> stores = reader.readStores();
+                        snapshotRepository.insertStores(stores);
+                        storeCount += stores.size();
+                        break;
+                    case InventorySnapshotFile.STOCKS:
+                        List<Stock> stocks = reader.readStocks(typeNames);
+                        snapshotRepository.insertStocks(stocks, typeIds);
+                        stockCount += stocks.size();
+                        break;
+                    default:
+                        throw new IOException("Unknown section " + section + " in inventory snapshot");
+                }
+            }
+
+            long[] expectedCounts = reader.readEnd();
+            if (expectedCounts[0] != storeCount || expectedCounts[1] != stockCount) {
+                throw new IOException("Inventory snapshot holds " + storeCount + " stores and " + stockCount +
+                        " stocks but expected " + expectedCounts[0] + " and " + expectedCounts[1]);
+            }
+        }
+
+        snapshotRepository.restartIdSequences();
+        snapshotRepository.rebuildTotals();
+
+        // types the snapshot added are only visible to the registry once committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockTypes.refresh();
+            }
+        });
+        return new InventorySnapshot(storeCount, stockCount);
+    }
+
+    private interface RowGroupWriter<T> {
+        void write(List<T> rows) throws IOException;
+    }
+
+    private static class RowGroup<T> implements Consumer<T> {
+        private final RowGroupWriter<T> writer;
+        private final List<T> rows = new ArrayList<>(ROW_GROUP_SIZE);
+        private long count;
+
+        private RowGroup(RowGroupWriter<T> writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void accept(T row) {
+            rows.add(row);
+            count++;
+            if (rows.size() == ROW_GROUP_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                writer.write(rows);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.scholanova.projectstore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets, one per named budget. Each bucket is kept as the generic cell rate algorithm does it,
+ * as the theoretical arrival time of the client's next request, and updated with a compare-and-set: admitting a
+ * request takes no lock and allocates nothing.
+ * <p>
+ * While the service is overloaded a bucket only tolerates a fraction of its burst, so clients sending at their
+ * steady rate keep getting through while the ones bursting on top of it are shed.
+ */
+public class RateLimiter {
+
+    private static final Decision ADMITTED = new Decision(false, 0);
+
+    private final Map<String, Integer> budgetIndexes = new HashMap<>();
+    private final long[] intervalNanos;
+    private final long[] toleranceNanos;
+    private final long[] sheddingToleranceNanos;
+    private final Cache<String, AtomicLongArray> clients;
+    private final LongSupplier nanoClock;
+
+    public RateLimiter(Map<String, Budget> budgets, int maxClients, double sheddingBurstRatio) {
+        this(budgets, maxClients, sheddingBurstRatio, System::nanoTime);
+    }
+
+    RateLimiter(Map<String, Budget> budgets, int maxClients, double sheddingBurstRatio, LongSupplier nanoClock) {
+        this.intervalNanos = new long[budgets.size()];
+        this.toleranceNanos = new long[budgets.size()];
+        this.sheddingToleranceNanos = new long[budgets.size()];
+        this.nanoClock = nanoClock;
+
+        long longestToleranceNanos = 0;
+        for (Map.Entry<String, Budget> entry : budgets.entrySet()) {
+            Budget budget = entry.getValue();
+            if (budget.getRate() <= 0 || budget.getBurst() < 1) {
+                throw new IllegalArgumentException("Rate limit budget " + entry.getKey() + " needs a positive rate and burst");
+            }
+            int index = budgetIndexes.size();
+            budgetIndexes.put(entry.getKey(), index);
+            intervalNanos[index] = Math.max(1, (long) (Duration.ofSeconds(1).toNanos() / budget.getRate()));
+            toleranceNanos[index] = intervalNanos[index] * budget.getBurst();
+            sheddingToleranceNanos[index] = intervalNanos[index] * Math.max(1, Math.round(budget.getBurst() * sheddingBurstRatio));
+            longestToleranceNanos = Math.max(longestToleranceNanos, toleranceNanos[index]);
+        }
+
+        // a client idle for longer than its tolerance is back to a full bucket, forgetting it changes nothing
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(Math.max(longestToleranceNanos, Duration.ofSeconds(1).toNanos())))
+                .build();
+    }
+
+    public Decision tryAcquire(String client, String budget, boolean overloaded) {
+        Integer index = budgetIndexes.get(budget);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown rate limit budget " + budget);
+        }
+        AtomicLongArray arrivals = clients.get(client, key -> newArrivals());
+        long interval = intervalNanos[index];
+        long tolerance = overloaded ? sheddingToleranceNanos[index] : toleranceNanos[index];
+
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long arrival = arrivals.get(index);
+            long nextArrival = Math.max(arrival, now) + interval;
+            long excess = nextArrival - now - tolerance;
+            if (excess > 0) {
+                // within its own budget the client was only turned away because of the overload
+                boolean shed = overloaded && nextArrival - now <= toleranceNanos[index];
+                return new Decision(shed, excess);
+            }
+            if (arrivals.compareAndSet(index, arrival, nextArrival)) {
+                return ADMITTED;
+            }
+        }
+    }
+
+    private AtomicLongArray newArrivals() {
+        long[] arrivals = new long[intervalNanos.length];
+        Arrays.fill(arrivals, Long.MIN_VALUE);
+        return new AtomicLongArray(arrivals);
+    }
+
+    public static class Decision {
+        private final boolean shed;
+        private final long retryAfterNanos;
+
+        private Decision(boolean shed, long retryAfterNanos) {
+            this.shed = shed;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAdmitted() {
+            return this == ADMITTED;
+        }
+
+        public boolean isShed() {
+            return shed;
+        }
+
+        public long getRetryAfterNanos() {
+            return retryAfterNanos;
+        }
+    }
+
+    public static class Budget {
+        private double rate;
+        private int burst;
+
+        public Budget() {
+        }
+
+        public Budget(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+        // requests per second
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+}
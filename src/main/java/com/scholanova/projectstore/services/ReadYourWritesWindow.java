@@ -0,0 +1,41 @@
+package com.scholanova.projectstore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scholanova.projectstore.repositories.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers which stores this instance mutated recently so their reads go to the primary until the
+ * replica has had time to catch up. A zero window disables it.
+ */
+@Component
+public class ReadYourWritesWindow {
+
+    private static final int MAXIMUM_TRACKED_STORES = 10000;
+
+    private final Cache<Integer, Boolean> recentlyMutatedStores;
+
+    public ReadYourWritesWindow(@Value("${store.replica.read-your-writes-window:0s}") Duration window) {
+        this.recentlyMutatedStores = window.isZero() ? null : Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_TRACKED_STORES)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void storeMutated(int storeId) {
+        if (recentlyMutatedStores != null) {
+            recentlyMutatedStores.put(storeId, true);
+        }
+    }
+
+    public <T, E extends Exception> T read(int storeId, ReplicaRoutingDataSource.Read<T, E> read) throws E {
+        if (recentlyMutatedStores != null && recentlyMutatedStores.getIfPresent(storeId) != null) {
+            return ReplicaRoutingDataSource.onPrimary(read);
+        }
+        return read.read();
+    }
+}
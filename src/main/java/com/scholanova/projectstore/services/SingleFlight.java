@@ -0,0 +1,75 @@
+package com.scholanova.projectstore.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Lets concurrent callers asking for the same key share one in-flight read and its result or failure.
+ * Nothing is kept once the read completes, so callers arriving afterwards start a fresh one.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = meterRegistry.counter("singleflight.calls", "name", name, "outcome", "executed");
+        this.coalesced = meterRegistry.counter("singleflight.calls", "name", name, "outcome", "coalesced");
+        meterRegistry.gaugeMapSize("singleflight.in.flight", Tags.of("name", name), calls);
+    }
+
+    public <E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, result);
+        if (inFlight != null) {
+            coalesced.increment();
+            return await(inFlight);
+        }
+
+        executed.increment();
+        try {
+            V value = call.call();
+            result.complete(value);
+            return value;
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            calls.remove(key, result);
+        }
+    }
+
+    // reads already running when the data changes must not be shared with callers that come after the change
+    public void forget(Predicate<? super K> keys) {
+        calls.keySet().removeIf(keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(CompletableFuture<V> inFlight) throws E {
+        try {
+            return inFlight.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
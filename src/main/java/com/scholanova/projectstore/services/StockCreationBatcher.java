@@ -0,0 +1,294 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.repositories.StockRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group commit for single stock creations: concurrent callers are queued for a short while and written
+ * together in one transaction, each caller still getting back its own row. Disabled, it writes straight through.
+ */
+@Component
+public class StockCreationBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockCreationBatcher.class);
+
+    private static final PendingStock STOP = new PendingStock(0, null);
+
+    private final StockRepository stockRepository;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Duration timeout;
+    private final BlockingQueue<PendingStock> queue;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+    private final Thread writer;
+    // callers enqueue under the read lock, so once stop() has taken the write lock no caller can queue behind it
+    private final ReentrantReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private volatile boolean stopped;
+
+    public StockCreationBatcher(StockRepository stockRepository,
+                                @Nullable PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${store.stock.group-commit.enabled:false}") boolean enabled,
+                                @Value("${store.stock.group-commit.max-batch-size:200}") int maxBatchSize,
+                                @Value("${store.stock.group-commit.max-wait:500us}") Duration maxWait,
+                                @Value("${store.stock.group-commit.queue-capacity:10000}") int queueCapacity,
+                                @Value("${store.stock.group-commit.timeout:30s}") Duration timeout) {
+        this.stockRepository = stockRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.timeout = timeout;
+        this.batchSizes = meterRegistry.summary("stocks.group.commit.batch.size");
+
+        if (!enabled) {
+            this.queue = null;
+            this.transactionTemplate = null;
+            this.writer = null;
+            return;
+        }
+        if (transactionManager == null) {
+            throw new IllegalStateException("Group commit needs a transaction manager, disable store.stock.group-commit.enabled");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        meterRegistry.gaugeCollectionSize("stocks.group.commit.queued", Tags.empty(), queue);
+
+        this.writer = new Thread(this::writeBatches, "stock-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public Stock create(int storeId, Stock stock) {
+        PendingStock pending = new PendingStock(storeId, stock);
+        if (queue == null || !enqueue(pending)) {
+            return stockRepository.addStockByStoreId(storeId, stock);
+        }
+
+        try {
+            return await(pending);
+        } catch (TimeoutException ex) {
+            if (pending.cancel()) {
+                // the writer will skip it, so nothing was written and the caller may safely try again
+                queue.remove(pending);
+                throw new DatabaseOverloadedException("Group commit did not start within " + timeout);
+            }
+        }
+        // the writer took it first, its row may already be committed: wait for it rather than fail a created stock
+        try {
+            return await(pending);
+        } catch (TimeoutException ex) {
+            throw new QueryTimeoutException("Group commit did not complete within " + timeout.multipliedBy(2)
+                    + ", the stock may have been created", ex);
+        }
+    }
+
+    /**
+     * Writes what is queued and stops the writer. It is stopped with a marker rather than interrupted, an
+     * interrupt could land inside JDBC I/O. Callers arriving from now on write straight through.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        stopLock.writeLock().lock();
+        try {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+
+        if (writer.isAlive() && queue.offer(STOP, 10, TimeUnit.SECONDS)) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        failQueued("Group commit stopped before the stock was written");
+    }
+
+    private boolean enqueue(PendingStock pending) {
+        if (!stopLock.readLock().tryLock()) {
+            return false;
+        }
+        try {
+            if (stopped) {
+                return false;
+            }
+            queue.put(pending);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing stock creation", e);
+        } finally {
+            stopLock.readLock().unlock();
+        }
+    }
+
+    private Stock await(PendingStock pending) throws TimeoutException {
+        try {
+            return pending.result.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit", e);
+        }
+    }
+
+    private void writeBatches() {
+        List<PendingStock> batch = new ArrayList<>(maxBatchSize);
+        try {
+            boolean stopping = false;
+            while (!stopping) {
+                PendingStock first = queue.take();
+                stopping = first == STOP;
+                if (!stopping) {
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (!stopping && batch.size() < maxBatchSize) {
+                    PendingStock next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    stopping = batch.remove(STOP);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (Throwable ex) {
+            // without a writer nobody would ever complete the callers waiting in the batch and the queue
+            stopped = true;
+            LOGGER.error("Group commit writer stopped", ex);
+            for (PendingStock pending : batch) {
+                pending.result.completeExceptionally(ex);
+            }
+            failQueued("Group commit writer stopped before the stock was written");
+            if (ex instanceof Error) {
+                throw (Error) ex;
+            }
+        }
+    }
+
+    // never taken by the writer, so the callers are told to try again rather than left unsure of the outcome
+    private void failQueued(String reason) {
+        List<PendingStock> stragglers = new ArrayList<>();
+        queue.drainTo(stragglers);
+        for (PendingStock pending : stragglers) {
+            pending.result.completeExceptionally(new DatabaseOverloadedException(reason));
+        }
+    }
+
+    private void write(List<PendingStock> batch) {
+        batch.removeIf(pending -> !pending.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+        } catch (RuntimeException ex) {
+            // one bad row, like an unknown store, must not fail the others so each one gets its own transaction
+            LOGGER.debug("Group commit of {} stock(s) failed, writing them one by one", batch.size(), ex);
+            for (PendingStock pending : batch) {
+                writeAlone(pending);
+            }
+            return;
+        }
+
+        // completed only after commit so no caller sees a row that could still be rolled back
+        for (PendingStock pending : batch) {
+            pending.result.complete(pending.created);
+        }
+    }
+
+    private void insert(List<PendingStock> batch) {
+        Map<Integer, List<PendingStock>> batchByStore = new LinkedHashMap<>();
+        for (PendingStock pending : batch) {
+            batchByStore.computeIfAbsent(pending.storeId, storeId -> new ArrayList<>()).add(pending);
+        }
+
+        for (Map.Entry<Integer, List<PendingStock>> storeBatch : batchByStore.entrySet()) {
+            List<Stock> stocks = new ArrayList<>(storeBatch.getValue().size());
+            for (PendingStock pending : storeBatch.getValue()) {
+                stocks.add(pending.stock);
+            }
+
+            List<Stock> createdStocks = stockRepository.addStocksByStoreId(storeBatch.getKey(), stocks);
+            for (int i = 0; i < createdStocks.size(); i++) {
+                storeBatch.getValue().get(i).created = createdStocks.get(i);
+            }
+        }
+    }
+
+    private void writeAlone(PendingStock pending) {
+        try {
+            pending.result.complete(stockRepository.addStockByStoreId(pending.storeId, pending.stock));
+        } catch (RuntimeException ex) {
+            pending.result.completeExceptionally(ex);
+        }
+    }
+
+    private static class PendingStock {
+        private final int storeId;
+        private final Stock stock;
+        private final CompletableFuture<Stock> result = new CompletableFuture<>();
+        // taken either by the writer or by its caller giving up, whichever comes first
+        private final AtomicBoolean taken = new AtomicBoolean();
+        private Stock created;
+
+        private PendingStock(int storeId, Stock stock) {
+            this.storeId = storeId;
+            this.stock = stock;
+        }
+
+        private boolean claim() {
+            return taken.compareAndSet(false, true);
+        }
+
+        private boolean cancel() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+}
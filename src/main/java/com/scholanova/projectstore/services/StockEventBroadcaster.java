@@ -0,0 +1,287 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.Stock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans stock changes out to the Server-Sent Events subscribers of their store. A subscriber is an async
+ * request, not a thread: events are queued in its bounded buffer and a small shared pool writes them out.
+ * When a subscriber falls behind and its buffer fills up, the pending events are dropped and it is sent a
+ * {@code resync} event instead, telling it to fetch the stocks again.
+ * <p>
+ * A write to a client that stops reading blocks its writer thread. Once it has blocked for longer than the
+ * write timeout, the subscriber is dropped and the pool gets an extra thread until the stuck write returns, so
+ * a few stalled clients cannot stop delivery to everyone else.
+ */
+@Component
+public class StockEventBroadcaster {
+
+    public static final String CREATED = "created";
+    public static final String DELETED = "deleted";
+    public static final String RESYNC = "resync";
+
+    private static final Object HEARTBEAT = new Object();
+    private static final int IDLE = 0;
+    private static final int SENDING = 1;
+    private static final int ABANDONED = 2;
+
+    private final Map<Integer, Set<Subscriber>> subscribersByStore = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Executor executor;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final Duration writeTimeout;
+    private final Counter resyncs;
+    private final Counter writeTimeouts;
+
+    @Autowired
+    public StockEventBroadcaster(MeterRegistry meterRegistry,
+                                 @Value("${store.stock-events.buffer-size:64}") int bufferSize,
+                                 @Value("${store.stock-events.max-subscribers:50000}") int maxSubscribers,
+                                 @Value("${store.stock-events.timeout:30m}") Duration timeout,
+                                 @Value("${store.stock-events.write-timeout:5s}") Duration writeTimeout,
+                                 @Value("${store.stock-events.writer-threads:2}") int writerThreads) {
+        this(meterRegistry, bufferSize, maxSubscribers, timeout, writeTimeout, Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "stock-events");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    StockEventBroadcaster(MeterRegistry meterRegistry, int bufferSize, int maxSubscribers, Duration timeout,
+                          Duration writeTimeout, Executor executor) {
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeout = writeTimeout;
+        this.resyncs = meterRegistry.counter("stocks.events.resyncs");
+        this.writeTimeouts = meterRegistry.counter("stocks.events.write.timeouts");
+        meterRegistry.gauge("stocks.events.subscribers", subscriberCount);
+    }
+
+    /**
+     * Returns the emitter of a new subscriber to the store, or null when the node already holds its maximum.
+     */
+    public SseEmitter subscribe(int storeId) {
+        return subscribe(storeId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(int storeId, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(storeId, emitter);
+        subscribersByStore.compute(storeId, (id, subscribers) -> {
+            Set<Subscriber> storeSubscribers = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            storeSubscribers.add(subscriber);
+            return storeSubscribers;
+        });
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(error -> subscriber.remove());
+        return emitter;
+    }
+
+    public void stockCreated(int storeId, Stock stock) {
+        publish(storeId, CREATED, stock);
+    }
+
+    public void stocksCreated(int storeId, Collection<Stock> stocks) {
+        Set<Subscriber> subscribers = subscribersByStore.getOrDefault(storeId, Collections.emptySet());
+        for (Subscriber subscriber : subscribers) {
+            for (Stock stock : stocks) {
+                subscriber.offer(new StockEvent(CREATED, stock));
+            }
+            subscriber.schedule();
+        }
+    }
+
+    public void stockDeleted(Stock stock) {
+        publish(stock.getStoreId(), DELETED, stock);
+    }
+
+    public int getSubscriberCount(int storeId) {
+        return subscribersByStore.getOrDefault(storeId, Collections.emptySet()).size();
+    }
+
+    // proxies and load balancers drop connections that stay silent, a comment line keeps them open
+    @Scheduled(fixedDelayString = "${store.stock-events.heartbeat-interval:PT15S}",
+            initialDelayString = "${store.stock-events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Set<Subscriber> subscribers : subscribersByStore.values()) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.buffer.isEmpty()) {
+                    subscriber.offer(HEARTBEAT);
+                    subscriber.schedule();
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${store.stock-events.write-timeout-check-interval:PT1S}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> subscribers : subscribersByStore.values()) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.state.get() == SENDING && now - subscriber.sendStartedNanos > writeTimeout.toNanos()
+                        && subscriber.state.compareAndSet(SENDING, ABANDONED)) {
+                    // the emitter cannot be completed from here, its send holds the emitter's monitor
+                    writeTimeouts.increment();
+                    subscriber.remove();
+                    resizeWriters(1);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribersByStore.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    private void publish(int storeId, String name, Stock stock) {
+        Set<Subscriber> subscribers = subscribersByStore.get(storeId);
+        if (subscribers == null) {
+            return;
+        }
+        StockEvent event = new StockEvent(name, stock);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+            subscriber.schedule();
+        }
+    }
+
+    private synchronized void resizeWriters(int delta) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private static class StockEvent {
+        private final String name;
+        private final Stock stock;
+
+        private StockEvent(String name, Stock stock) {
+            this.name = name;
+            this.stock = stock;
+        }
+    }
+
+    private class Subscriber {
+        private final int storeId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile long sendStartedNanos;
+        private volatile boolean overflowed;
+
+        private Subscriber(int storeId, SseEmitter emitter) {
+            this.storeId = storeId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Object event) {
+            if (!buffer.offer(event)) {
+                overflowed = true;
+            }
+        }
+
+        // at most one drain per subscriber runs at a time, so its events stay in order
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    if (overflowed) {
+                        overflowed = false;
+                        buffer.clear();
+                        resyncs.increment();
+                        send(SseEmitter.event().name(RESYNC).data(storeId));
+                    }
+                    Object event;
+                    while ((event = buffer.poll()) != null) {
+                        if (event == HEARTBEAT) {
+                            send(SseEmitter.event().comment("heartbeat"));
+                        } else {
+                            StockEvent stockEvent = (StockEvent) event;
+                            send(SseEmitter.event().name(stockEvent.name).data(stockEvent.stock));
+                        }
+                    }
+                    scheduled.set(false);
+                } while ((overflowed || !buffer.isEmpty()) && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException ex) {
+                // the client went away, or the emitter already completed
+                remove();
+                emitter.completeWithError(ex);
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartedNanos = System.nanoTime();
+            state.set(SENDING);
+            try {
+                emitter.send(event);
+            } finally {
+                if (!state.compareAndSet(SENDING, IDLE)) {
+                    // a thread was added in place of this one while it was stuck, the pool is back to its size
+                    resizeWriters(-1);
+                }
+            }
+            if (state.get() == ABANDONED) {
+                throw new IOException("Sending an event took longer than " + writeTimeout);
+            }
+        }
+
+        private void remove() {
+            if (removed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                subscribersByStore.computeIfPresent(storeId, (id, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+        }
+    }
+}
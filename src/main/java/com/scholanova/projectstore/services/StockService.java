@@ -4,48 +4,144 @@ import com.scholanova.projectstore.exceptions.ModelNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotValidException;
 import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockPage;
+import com.scholanova.projectstore.models.StockTypeSummary;
 import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class StockService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final StockRepository stockRepository;
+    private final StoreCache storeCache;
+    private final Counter stocksCreated;
+    private final Counter stocksDeleted;
+    private final Counter stocksRejected;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final StockCreationBatcher stockCreationBatcher;
+    private final StockTypeRegistry stockTypes;
+    private final StockEventBroadcaster stockEvents;
+    private final SingleFlight<List<Object>, List<Stock>> stockByTypeReads;
 
-    public StockService(StockRepository stockRepository) {
+    public StockService(StockRepository stockRepository, StoreCache storeCache, MeterRegistry meterRegistry,
+                        ReadYourWritesWindow readYourWritesWindow, StockCreationBatcher stockCreationBatcher,
+                        StockTypeRegistry stockTypes, StockEventBroadcaster stockEvents) {
         this.stockRepository = stockRepository;
+        this.storeCache = storeCache;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.stockCreationBatcher = stockCreationBatcher;
+        this.stockTypes = stockTypes;
+        this.stockEvents = stockEvents;
+        this.stocksCreated = meterRegistry.counter("stocks.created");
+        this.stocksDeleted = meterRegistry.counter("stocks.deleted");
+        this.stocksRejected = meterRegistry.counter("validation.rejections", "model", "stock");
+        this.stockByTypeReads = new SingleFlight<>("stock-by-type", meterRegistry);
     }
 
     public Stock create(int storeId, Stock stock) throws StockNotValidException, ModelNotFoundException {
         verifyStock(stock);
 
-        return stockRepository.addStockByStoreId(storeId, stock);
+        Stock createdStock = stockCreationBatcher.create(storeId, stock);
+        stocksCreated.increment();
+        evictStore(storeId);
+        stockEvents.stockCreated(storeId, createdStock);
+        return createdStock;
+    }
+
+    public List<Stock> createBatch(int storeId, List<Stock> stocks) throws StockNotValidException {
+        for (Stock stock : stocks) {
+            verifyStock(stock);
+        }
+
+        List<Stock> createdStocks = stockRepository.addStocksByStoreId(storeId, stocks);
+        stocksCreated.increment(createdStocks.size());
+        evictStore(storeId);
+        stockEvents.stocksCreated(storeId, createdStocks);
+        return createdStocks;
     }
 
     public List<Stock> getStoreStockByType(int storeId, String type) throws ModelNotFoundException {
-        if(type.equals("Nail") || type.equals("Fruit")) {
-            return stockRepository.getStoreStockByType(storeId, type);
+        if(stockTypes.contains(type)) {
+            return stockByTypeReads.execute(Arrays.asList(storeId, type),
+                    () -> readYourWritesWindow.read(storeId, () -> stockRepository.getStoreStockByType(storeId, type)));
         }
-        return  stockRepository.listStocksByStoreId(storeId);
+        return stockByTypeReads.execute(Arrays.asList(storeId, null),
+                () -> readYourWritesWindow.read(storeId, () -> stockRepository.listStocksByStoreId(storeId)));
+    }
+
+    public Long getStoreVersion(int storeId) {
+        return readYourWritesWindow.read(storeId, () -> stockRepository.getStoreVersion(storeId));
+    }
+
+    public StockPage getStoreStockPage(int storeId, String type, Integer after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String typeFilter = stockTypes.contains(type) ? type : null;
+        int afterId = after == null ? 0 : after;
+
+        List<Stock> stocks = readYourWritesWindow.read(storeId,
+                () -> stockRepository.listStocksByStoreIdAfter(storeId, typeFilter, afterId, pageSize + 1));
+
+        if (stocks.size() <= pageSize) {
+            return new StockPage(stocks, null);
+        }
+        List<Stock> page = stocks.subList(0, pageSize);
+        return new StockPage(page, page.get(pageSize - 1).getId());
+    }
+
+    public List<StockTypeSummary> getStoreStockSummary(int storeId) {
+        return readYourWritesWindow.read(storeId, () -> stockRepository.getStoreStockSummary(storeId));
+    }
+
+    public List<StockTypeSummary> getStockSummary() {
+        return stockRepository.getStockSummary();
+    }
+
+    public void exportStoreStock(int storeId, Consumer<Stock> consumer) {
+        readYourWritesWindow.read(storeId, () -> {
+            stockRepository.streamStocksByStoreId(storeId, consumer);
+            return null;
+        });
     }
 
     public void deleteStockById(int stockId) throws StockNotFoundException {
-        stockRepository.deleteById(stockId);
+        Stock deletedStock = stockRepository.deleteById(stockId);
+        stocksDeleted.increment();
+        evictStore(deletedStock.getStoreId());
+        stockEvents.stockDeleted(deletedStock);
+    }
+
+    private void evictStore(int storeId) {
+        readYourWritesWindow.storeMutated(storeId);
+        stockByTypeReads.forget(key -> key.get(0).equals(storeId));
+        storeCache.evict(storeId);
     }
 
-    private void verifyStock(Stock stock) throws StockNotValidException {
-        if (!stock.getType().equals("Fruit") && !stock.getType().equals("Nail")) {
+    void verifyStock(Stock stock) throws StockNotValidException {
+        if (!isValid(stock, stockTypes)) {
+            stocksRejected.increment();
             throw new StockNotValidException();
         }
+    }
 
-        if (stock.getName() == null || stock.getName().trim().length() == 0) {
-            throw new StockNotValidException();
+    static boolean isValid(Stock stock, StockTypeRegistry stockTypes) {
+        if (!stockTypes.contains(stock.getType())) {
+            return false;
         }
 
-        if (stock.getValue() <= 0) {
-            throw new StockNotValidException();
+        if (stock.getName() == null || stock.getName().trim().length() == 0) {
+            return false;
         }
+
+        return stock.getValue() > 0;
     }
 }
@@ -0,0 +1,57 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The store cache, guarded against late puts. Every eviction bumps an invalidation count for the store; a
+ * read only caches what it loaded if no eviction happened since it started, so a read that saw the old total
+ * cannot put it back after the write that changed it was evicted.
+ */
+@Component
+public class StoreCache {
+
+    private static final int STRIPES = 1024;
+
+    private final Cache cache;
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    public StoreCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(StoreService.STORE_CACHE);
+        if (cache == null) {
+            throw new IllegalStateException("Missing " + StoreService.STORE_CACHE + " cache");
+        }
+    }
+
+    public StoreWithTotalValue get(int storeId) {
+        return cache.get(storeId, StoreWithTotalValue.class);
+    }
+
+    public long invalidations(int storeId) {
+        return invalidations.get(stripe(storeId));
+    }
+
+    public void put(int storeId, long invalidationsBeforeRead, StoreWithTotalValue store) {
+        if (invalidations(storeId) != invalidationsBeforeRead) {
+            return;
+        }
+        cache.put(storeId, store);
+        // an eviction between the check and the put already ran, so it is up to this put to undo itself
+        if (invalidations(storeId) != invalidationsBeforeRead) {
+            cache.evict(storeId);
+        }
+    }
+
+    public void evict(int storeId) {
+        invalidations.incrementAndGet(stripe(storeId));
+        cache.evict(storeId);
+    }
+
+    private static int stripe(int storeId) {
+        return Math.floorMod(storeId, STRIPES);
+    }
+}
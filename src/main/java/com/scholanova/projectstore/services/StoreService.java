@@ -5,44 +5,69 @@ import com.scholanova.projectstore.exceptions.StoreNameCannotBeEmptyException;
 import com.scholanova.projectstore.exceptions.StoreNotFoundException;
 import com.scholanova.projectstore.models.Store;
 import com.scholanova.projectstore.models.StoreWithTotalValue;
-import com.scholanova.projectstore.repositories.StockRepository;
 import com.scholanova.projectstore.repositories.StoreRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
-import org.springframework.ui.Model;
 
 @Service
 public class StoreService {
 
+    public static final String STORE_CACHE = "stores";
+
     private StoreRepository storeRepository;
-    private StockRepository stockRepository;
+    private final Counter storesRejected;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final StoreCache storeCache;
+    private final SingleFlight<Integer, StoreWithTotalValue> storeReads;
 
-    public StoreService(StoreRepository storeRepository, StockRepository stockRepository) {
+    public StoreService(StoreRepository storeRepository, MeterRegistry meterRegistry, ReadYourWritesWindow readYourWritesWindow,
+                        StoreCache storeCache) {
         this.storeRepository = storeRepository;
-        this.stockRepository = stockRepository;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.storeCache = storeCache;
+        this.storesRejected = meterRegistry.counter("validation.rejections", "model", "store");
+        this.storeReads = new SingleFlight<>("store", meterRegistry);
     }
 
     public Store create(Store store) throws StoreNameCannotBeEmptyException {
 
         if (isNameMissing(store)) {
+            storesRejected.increment();
             throw new StoreNameCannotBeEmptyException();
         }
 
-        return storeRepository.create(store);
+        Store createdStore = storeRepository.create(store);
+        storeMutated(createdStore.getId());
+        return createdStore;
     }
 
-    private boolean isNameMissing(Store store) {
+    static boolean isNameMissing(Store store) {
         return store.getName() == null ||
                 store.getName().trim().length() == 0;
     }
 
     public StoreWithTotalValue getStore(int id) throws ModelNotFoundException {
-        Integer totalStoreValue = stockRepository.getStoreTotalValue(id);
-        Store store = storeRepository.getById(id);
-
-        return new StoreWithTotalValue(store.getId(), store.getName(), totalStoreValue);
+        StoreWithTotalValue cachedStore = storeCache.get(id);
+        if (cachedStore != null) {
+            return cachedStore;
+        }
+        return storeReads.execute(id, () -> {
+            long invalidations = storeCache.invalidations(id);
+            StoreWithTotalValue store = readYourWritesWindow.read(id, () -> storeRepository.getStoreWithTotalValue(id));
+            storeCache.put(id, invalidations, store);
+            return store;
+        });
     }
 
     public void deleteStoreById(int id) throws StoreNotFoundException {
         storeRepository.deleteById(id);
+        storeMutated(id);
+    }
+
+    private void storeMutated(int id) {
+        readYourWritesWindow.storeMutated(id);
+        storeReads.forget(storeId -> storeId == id);
+        storeCache.evict(id);
     }
 }
@@ -0,0 +1,53 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.StoreTotalCheck;
+import com.scholanova.projectstore.repositories.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class StoreTotalsRepairJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreTotalsRepairJob.class);
+
+    private final StockRepository stockRepository;
+    private final int chunkSize;
+
+    public StoreTotalsRepairJob(StockRepository stockRepository,
+                                @Value("${store.totals.repair.chunk-size:500}") int chunkSize) {
+        this.stockRepository = stockRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${store.totals.repair.cron:-}")
+    public void scheduledRepair() {
+        int repairedStores = repair();
+        LOGGER.info("Store totals check done, {} store(s) repaired", repairedStores);
+    }
+
+    public int repair() {
+        int repairedStores = 0;
+        int afterStoreId = 0;
+
+        List<StoreTotalCheck> checks;
+        do {
+            checks = stockRepository.checkStoreTotals(afterStoreId, chunkSize);
+            for (StoreTotalCheck check : checks) {
+                if (check.hasDrifted()) {
+                    LOGGER.warn("Store {} totals drifted: recorded {}, actual {}, per type totals drifted: {}",
+                            check.getStoreId(), check.getRecordedTotal(), check.getActualTotal(), check.isTypeTotalsDrifted());
+                    stockRepository.repairStoreTotal(check.getStoreId());
+                    repairedStores++;
+                }
+                afterStoreId = check.getStoreId();
+            }
+        } while (checks.size() == chunkSize);
+
+        return repairedStores;
+    }
+}
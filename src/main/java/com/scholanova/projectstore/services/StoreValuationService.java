@@ -0,0 +1,199 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.StoreValuation;
+import com.scholanova.projectstore.models.StoreValueBucket;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.repositories.StoreRepository;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distribution of the store values across all stores. Store ids are cut into fixed ranges that a few workers,
+ * each on its own connection, scan in parallel into their own partial result; the partials are merged at the end.
+ * A partial is a histogram plus the top and bottom stores, so memory does not depend on the number of stores.
+ */
+@Service
+public class StoreValuationService {
+
+    public static final int DEFAULT_BUCKETS = 10;
+    public static final int MAX_BUCKETS = 100;
+    public static final int DEFAULT_RANKED = 10;
+    public static final int MAX_RANKED = 100;
+
+    private static final double[] PERCENTILES = {50, 75, 90, 95, 99};
+    // values are kept within 1% which is enough for a distribution and bounds the histogram size
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private static final Comparator<StoreWithTotalValue> BY_VALUE = Comparator
+            .comparing(StoreWithTotalValue::getStockTotalValue)
+            .thenComparing(StoreWithTotalValue::getId);
+
+    private final StoreRepository storeRepository;
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    public StoreValuationService(StoreRepository storeRepository,
+                                 @Value("${store.analytics.valuation.parallelism:2}") int parallelism,
+                                 @Value("${store.analytics.valuation.partition-size:10000}") int partitionSize) {
+        this.storeRepository = storeRepository;
+        this.partitionSize = partitionSize;
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("store-valuation-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    public StoreValuation valuate(Integer buckets, Integer ranked) {
+        int bucketCount = buckets == null ? DEFAULT_BUCKETS : Math.max(1, Math.min(buckets, MAX_BUCKETS));
+        int rankedCount = ranked == null ? DEFAULT_RANKED : Math.max(0, Math.min(ranked, MAX_RANKED));
+
+        int[] storeIdRange = storeRepository.getStoreIdRange();
+        if (storeIdRange == null) {
+            return new Partial(rankedCount).toValuation(bucketCount);
+        }
+
+        // workers claim the next id range when done with theirs, so a dense range does not leave the others idle
+        long firstId = storeIdRange[0];
+        long lastId = storeIdRange[1];
+        AtomicLong nextFromId = new AtomicLong(firstId);
+        long partitions = (lastId - firstId) / partitionSize + 1;
+
+        List<CompletableFuture<Partial>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(pool.getParallelism(), partitions); i++) {
+            workers.add(CompletableFuture.supplyAsync(() -> {
+                Partial partial = new Partial(rankedCount);
+                for (long fromId = nextFromId.getAndAdd(partitionSize); fromId <= lastId; fromId = nextFromId.getAndAdd(partitionSize)) {
+                    long toId = Math.min(fromId + partitionSize - 1, lastId);
+                    storeRepository.streamStoreValues((int) fromId, (int) toId, partial::record);
+                }
+                return partial;
+            }, pool));
+        }
+
+        Partial merged = new Partial(rankedCount);
+        try {
+            for (CompletableFuture<Partial> worker : workers) {
+                merged.merge(worker.join());
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+        return merged.toValuation(bucketCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    private static class Partial {
+        private final int ranked;
+        private final Histogram histogram = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+        private final PriorityQueue<StoreWithTotalValue> top;
+        private final PriorityQueue<StoreWithTotalValue> bottom;
+        private long storeCount;
+        private long totalValue;
+        private long minValue = Long.MAX_VALUE;
+        private long maxValue = Long.MIN_VALUE;
+
+        private Partial(int ranked) {
+            this.ranked = ranked;
+            // each heap keeps its weakest entry on top so it is the one evicted
+            this.top = new PriorityQueue<>(ranked + 1, BY_VALUE);
+            this.bottom = new PriorityQueue<>(ranked + 1, BY_VALUE.reversed());
+        }
+
+        private void record(StoreWithTotalValue store) {
+            long value = store.getStockTotalValue();
+            storeCount++;
+            totalValue += value;
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+            histogram.recordValue(Math.max(0, value));
+            keep(top, store);
+            keep(bottom, store);
+        }
+
+        private void keep(PriorityQueue<StoreWithTotalValue> ranking, StoreWithTotalValue store) {
+            if (ranked == 0) {
+                return;
+            }
+            ranking.add(store);
+            if (ranking.size() > ranked) {
+                ranking.poll();
+            }
+        }
+
+        private void merge(Partial other) {
+            storeCount += other.storeCount;
+            totalValue += other.totalValue;
+            minValue = Math.min(minValue, other.minValue);
+            maxValue = Math.max(maxValue, other.maxValue);
+            histogram.add(other.histogram);
+            other.top.forEach(store -> keep(top, store));
+            other.bottom.forEach(store -> keep(bottom, store));
+        }
+
+        private StoreValuation toValuation(int bucketCount) {
+            if (storeCount == 0) {
+                return new StoreValuation(0L, 0L, null, null, null,
+                        Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+            }
+
+            Map<String, Long> percentiles = new LinkedHashMap<>();
+            for (double percentile : PERCENTILES) {
+                long value = histogram.getValueAtPercentile(percentile);
+                percentiles.put("p" + (int) percentile, Math.max(minValue, Math.min(value, maxValue)));
+            }
+
+            List<StoreWithTotalValue> topStores = new ArrayList<>(top);
+            topStores.sort(BY_VALUE.reversed());
+            List<StoreWithTotalValue> bottomStores = new ArrayList<>(bottom);
+            bottomStores.sort(BY_VALUE);
+
+            return new StoreValuation(storeCount, totalValue, minValue, maxValue, (double) totalValue / storeCount,
+                    percentiles, buckets(bucketCount), topStores, bottomStores);
+        }
+
+        // equal width buckets between the exact min and max, filled from the histogram
+        private List<StoreValueBucket> buckets(int bucketCount) {
+            long width = Math.max(1, (maxValue - minValue) / bucketCount + 1);
+            long[] counts = new long[bucketCount];
+            for (HistogramIterationValue recorded : histogram.recordedValues()) {
+                long value = Math.max(minValue, Math.min(histogram.medianEquivalentValue(recorded.getValueIteratedTo()), maxValue));
+                int index = (int) Math.min((value - minValue) / width, bucketCount - 1);
+                counts[index] += recorded.getCountAtValueIteratedTo();
+            }
+
+            List<StoreValueBucket> buckets = new ArrayList<>(bucketCount);
+            for (int i = 0; i < bucketCount; i++) {
+                long fromValue = minValue + i * width;
+                if (fromValue > maxValue) {
+                    break;
+                }
+                buckets.add(new StoreValueBucket(fromValue, Math.min(fromValue + width - 1, maxValue), counts[i]));
+            }
+            return buckets;
+        }
+    }
+}
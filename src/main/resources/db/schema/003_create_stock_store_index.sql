@@ -0,0 +1,4 @@
+--liquibase formatted sql
+
+--changeset scholanova:3
+CREATE INDEX IF NOT EXISTS STOCK_STOREID_ID_IDX ON STOCK (STOREID, ID);
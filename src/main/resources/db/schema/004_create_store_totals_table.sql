@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset scholanova:4
+CREATE TABLE IF NOT EXISTS STORE_TOTALS (
+  STOREID             INTEGER         NOT NULL,
+  TOTAL_VALUE         BIGINT          NOT NULL DEFAULT 0,
+  PRIMARY KEY (STOREID),
+  FOREIGN KEY (STOREID) REFERENCES STORES(ID) ON DELETE CASCADE
+);
+
+INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE)
+SELECT sr.ID, COALESCE(SUM(st.VALUE), 0)
+FROM STORES sr
+LEFT JOIN STOCK st ON st.STOREID = sr.ID
+GROUP BY sr.ID;
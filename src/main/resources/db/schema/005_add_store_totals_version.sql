@@ -0,0 +1,4 @@
+--liquibase formatted sql
+
+--changeset scholanova:5
+ALTER TABLE STORE_TOTALS ADD COLUMN IF NOT EXISTS VERSION BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,24 @@
+--liquibase formatted sql
+
+--changeset scholanova:6
+CREATE TABLE IF NOT EXISTS STOCK_TYPE (
+  ID                  SMALLINT        NOT NULL,
+  NAME                VARCHAR(255)    NOT NULL,
+  PRIMARY KEY (ID),
+  UNIQUE (NAME)
+);
+
+INSERT INTO STOCK_TYPE (ID, NAME) VALUES (1, 'Fruit');
+INSERT INTO STOCK_TYPE (ID, NAME) VALUES (2, 'Nail');
+
+INSERT INTO STOCK_TYPE (ID, NAME)
+SELECT 2 + ROW_NUMBER() OVER (ORDER BY t.TYPE), t.TYPE
+FROM (SELECT DISTINCT TYPE FROM STOCK WHERE TYPE NOT IN ('Fruit', 'Nail')) t;
+
+ALTER TABLE STOCK ADD COLUMN TYPE_ID SMALLINT;
+UPDATE STOCK SET TYPE_ID = (SELECT ID FROM STOCK_TYPE WHERE STOCK_TYPE.NAME = STOCK.TYPE);
+ALTER TABLE STOCK ALTER COLUMN TYPE_ID SET NOT NULL;
+ALTER TABLE STOCK ADD FOREIGN KEY (TYPE_ID) REFERENCES STOCK_TYPE(ID);
+ALTER TABLE STOCK DROP COLUMN TYPE;
+
+CREATE INDEX IF NOT EXISTS STOCK_STOREID_TYPEID_ID_IDX ON STOCK (STOREID, TYPE_ID, ID);
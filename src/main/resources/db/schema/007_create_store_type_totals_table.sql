@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset scholanova:7
+CREATE TABLE IF NOT EXISTS STORE_TYPE_TOTALS (
+  STOREID             INTEGER         NOT NULL,
+  TYPE_ID             SMALLINT        NOT NULL,
+  STOCK_COUNT         BIGINT          NOT NULL DEFAULT 0,
+  TOTAL_VALUE         BIGINT          NOT NULL DEFAULT 0,
+  MIN_VALUE           INTEGER,
+  MAX_VALUE           INTEGER,
+  PRIMARY KEY (STOREID, TYPE_ID),
+  FOREIGN KEY (STOREID) REFERENCES STORES(ID) ON DELETE CASCADE,
+  FOREIGN KEY (TYPE_ID) REFERENCES STOCK_TYPE(ID)
+);
+
+INSERT INTO STORE_TYPE_TOTALS (STOREID, TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE)
+SELECT STOREID, TYPE_ID, COUNT(*), COALESCE(SUM(VALUE), 0), MIN(VALUE), MAX(VALUE)
+FROM STOCK
+WHERE STOREID IS NOT NULL
+GROUP BY STOREID, TYPE_ID;
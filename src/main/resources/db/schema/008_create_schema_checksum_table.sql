@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+--changeset scholanova:8
+CREATE TABLE IF NOT EXISTS SCHEMA_CHECKSUM (
+  CHANGELOG           VARCHAR(255)    PRIMARY KEY,
+  CHECKSUM            VARCHAR(64)     NOT NULL
+);
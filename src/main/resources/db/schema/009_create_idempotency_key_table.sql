@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset scholanova:9
+CREATE TABLE IF NOT EXISTS IDEMPOTENCY_KEY (
+  SCOPE               VARCHAR(32)     NOT NULL,
+  IDEMPOTENCY_KEY     VARCHAR(255)    NOT NULL,
+  REQUEST_HASH        VARCHAR(64)     NOT NULL,
+  STATUS              INTEGER,
+  BODY                TEXT,
+  CREATED_AT          TIMESTAMP       NOT NULL,
+  PRIMARY KEY (SCOPE, IDEMPOTENCY_KEY)
+);
+
+CREATE INDEX IF NOT EXISTS IDEMPOTENCY_KEY_CREATED_AT_IDX ON IDEMPOTENCY_KEY (CREATED_AT);
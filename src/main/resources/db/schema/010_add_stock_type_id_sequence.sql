@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset scholanova:10-postgresql dbms:postgresql
+CREATE SEQUENCE IF NOT EXISTS STOCK_TYPE_ID_SEQ AS SMALLINT OWNED BY STOCK_TYPE.ID;
+SELECT setval('stock_type_id_seq', (SELECT COALESCE(MAX(ID), 0) + 1 FROM STOCK_TYPE), false);
+ALTER TABLE STOCK_TYPE ALTER COLUMN ID SET DEFAULT nextval('stock_type_id_seq');
+
+--changeset scholanova:10-h2 dbms:h2
+CREATE SEQUENCE IF NOT EXISTS STOCK_TYPE_ID_SEQ;
+ALTER SEQUENCE STOCK_TYPE_ID_SEQ RESTART WITH (SELECT COALESCE(MAX(ID), 0) + 1 FROM STOCK_TYPE);
+ALTER TABLE STOCK_TYPE ALTER COLUMN ID SET DEFAULT NEXT VALUE FOR STOCK_TYPE_ID_SEQ;
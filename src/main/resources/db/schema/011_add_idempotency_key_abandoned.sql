@@ -0,0 +1,4 @@
+--liquibase formatted sql
+
+--changeset scholanova:11
+ALTER TABLE IDEMPOTENCY_KEY ADD COLUMN IF NOT EXISTS ABANDONED BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,299 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:reactive-api;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.url=r2dbc:h2:mem:///reactive-api;DB_CLOSE_DELAY=-1",
+                "spring.main.web-application-type=reactive"
+        })
+@ActiveProfiles({"test", "reactive"})
+class ReactiveApiTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "STOCK", "STORE_TYPE_TOTALS", "STORE_TOTALS", "STORES");
+    }
+
+    @Nested
+    class Test_stores {
+
+        @Test
+        void givenCorrectBody_whenCreated_thenStoreIsReturnedWithItsTotal() {
+            // Given
+            Integer storeId = createStore("Boulangerie");
+
+            // When & Then
+            webTestClient.get().uri("/stores/{id}", storeId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.id").isEqualTo(storeId)
+                    .jsonPath("$.name").isEqualTo("Boulangerie")
+                    .jsonPath("$.stockTotalValue").isEqualTo(0);
+        }
+
+        @Test
+        void givenEmptyName_whenCreated_thenReturns400() {
+            // When & Then
+            webTestClient.post().uri("/stores")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"name\":\"\"}")
+                    .exchange()
+                    .expectStatus().isBadRequest()
+                    .expectBody().json("{\"msg\":\"name cannot be empty\"}");
+        }
+
+        @Test
+        void givenNoStore_whenGetOrDelete_thenReturns404() {
+            // When & Then
+            webTestClient.get().uri("/stores/{id}", 1000)
+                    .exchange()
+                    .expectStatus().isNotFound()
+                    .expectBody().json("{\"msg\":\"store not found\"}");
+            webTestClient.delete().uri("/stores/{id}", 1000)
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+
+        @Test
+        void givenExistingStore_whenDeleted_thenReturns204() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+
+            // When & Then
+            webTestClient.delete().uri("/stores/{id}", storeId)
+                    .exchange()
+                    .expectStatus().isNoContent();
+            assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "STORES")).isEqualTo(0);
+        }
+    }
+
+    @Nested
+    class Test_stocks {
+
+        @Test
+        void givenValidStock_whenCreated_thenStoreTotalIsUpdated() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+
+            // When
+            webTestClient.post().uri("/stores/{storeId}/stocks", storeId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"name\":\"Apple\",\"type\":\"Fruit\",\"value\":12}")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.id").isNumber()
+                    .jsonPath("$.storeId").isEqualTo(storeId);
+
+            // Then
+            webTestClient.get().uri("/stores/{id}", storeId)
+                    .exchange()
+                    .expectBody()
+                    .jsonPath("$.stockTotalValue").isEqualTo(12);
+        }
+
+        @Test
+        void givenInvalidStock_whenCreated_thenReturns400() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+
+            // When & Then
+            webTestClient.post().uri("/stores/{storeId}/stocks", storeId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"name\":\"Apple\",\"type\":\"Car\",\"value\":12}")
+                    .exchange()
+                    .expectStatus().isBadRequest()
+                    .expectBody().json("{\"msg\":\"Invalid stock\"}");
+            assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "STOCK")).isEqualTo(0);
+        }
+
+        @Test
+        void givenBatch_whenCreated_thenAllStocksAreListed() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+
+            // When
+            webTestClient.post().uri("/stores/{storeId}/stocks:batch", storeId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("[{\"name\":\"Apple\",\"type\":\"Fruit\",\"value\":3}," +
+                            "{\"name\":\"Screw\",\"type\":\"Nail\",\"value\":4}]")
+                    .exchange()
+                    .expectStatus().isOk();
+
+            // Then
+            List<Stock> stocks = webTestClient.get().uri("/stores/{storeId}/stocks", storeId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Stock.class)
+                    .returnResult()
+                    .getResponseBody();
+            assertThat(stocks).extracting(Stock::getName).containsExactlyInAnyOrder("Apple", "Screw");
+            assertThat(jdbcTemplate.queryForObject("SELECT TOTAL_VALUE FROM STORE_TOTALS WHERE STOREID = ?",
+                    Long.class, storeId)).isEqualTo(7L);
+        }
+
+        @Test
+        void givenNdjsonAccept_whenListed_thenStocksAreStreamedOnePerLine() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+            createStock(storeId, "Apple", "Fruit", 3);
+            createStock(storeId, "Pear", "Fruit", 5);
+
+            // When
+            List<Stock> stocks = webTestClient.get().uri("/stores/{storeId}/stocks?type=Fruit", storeId)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .returnResult(Stock.class)
+                    .getResponseBody()
+                    .collectList()
+                    .block();
+
+            // Then
+            assertThat(stocks).extracting(Stock::getName).containsExactlyInAnyOrder("Apple", "Pear");
+        }
+
+        @Test
+        void givenNoStockOfType_whenListed_thenReturns404ForJsonAndNdjson() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+
+            // When & Then
+            webTestClient.get().uri("/stores/{storeId}/stocks?type=Nail", storeId)
+                    .exchange()
+                    .expectStatus().isNotFound()
+                    .expectBody().json("{\"msg\":\"Store not found\"}");
+            webTestClient.get().uri("/stores/{storeId}/stocks?type=Nail", storeId)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+
+        @Test
+        void givenLimit_whenListed_thenReturnsPageWithCursor() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+            createStock(storeId, "Apple", "Fruit", 3);
+            createStock(storeId, "Pear", "Fruit", 5);
+
+            // When & Then
+            webTestClient.get().uri("/stores/{storeId}/stocks?limit=1", storeId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.stocks.length()").isEqualTo(1)
+                    .jsonPath("$.stocks[0].name").isEqualTo("Apple")
+                    .jsonPath("$.nextCursor").isNumber();
+        }
+
+        @Test
+        void givenExistingStock_whenDeleted_thenStoreTotalIsUpdated() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+            Integer stockId = createStock(storeId, "Apple", "Fruit", 3);
+
+            // When
+            webTestClient.delete().uri("/stocks/{stockId}", stockId)
+                    .exchange()
+                    .expectStatus().isNoContent();
+
+            // Then
+            assertThat(jdbcTemplate.queryForObject("SELECT TOTAL_VALUE FROM STORE_TOTALS WHERE STOREID = ?",
+                    Long.class, storeId)).isEqualTo(0L);
+            webTestClient.delete().uri("/stocks/{stockId}", stockId)
+                    .exchange()
+                    .expectStatus().isNotFound()
+                    .expectBody().json("{\"msg\":\"stock not found\"}");
+        }
+
+        @Test
+        void givenStocksAddedAndDeleted_whenSummarised_thenFiguresFollowTheRollups() {
+            // Given
+            Integer storeId = createStore("Carrefour");
+            Integer otherStoreId = createStore("Auchan");
+            Integer stockId = createStock(storeId, "Apple", "Fruit", 3);
+            createStock(storeId, "Pear", "Fruit", 5);
+            createStock(storeId, "Kiwi", "Fruit", 10);
+            createStock(otherStoreId, "Screw", "Nail", 4);
+
+            // When
+            webTestClient.delete().uri("/stocks/{stockId}", stockId)
+                    .exchange()
+                    .expectStatus().isNoContent();
+
+            // Then
+            webTestClient.get().uri("/stores/{storeId}/stocks/summary", storeId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .json("[{\"type\":\"Fruit\",\"stockCount\":2,\"totalValue\":15,\"minValue\":5,\"maxValue\":10,\"averageValue\":7.5}]");
+            webTestClient.get().uri("/stocks/summary")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.length()").isEqualTo(2)
+                    .jsonPath("$[1].type").isEqualTo("Nail")
+                    .jsonPath("$[1].totalValue").isEqualTo(4);
+        }
+    }
+
+    @Test
+    void requestsAreServedOnTheConfiguredEventLoop() {
+        // When & Then
+        webTestClient.get().uri("/status")
+                .exchange()
+                .expectStatus().isOk();
+        assertThat(Thread.getAllStackTraces().keySet())
+                .extracting(Thread::getName)
+                .anyMatch(name -> name.startsWith("store-event-loop"));
+    }
+
+    private Integer createStore(String name) {
+        return webTestClient.post().uri("/stores")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"" + name + "\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Store.class)
+                .returnResult()
+                .getResponseBody()
+                .getId();
+    }
+
+    private Integer createStock(Integer storeId, String name, String type, int value) {
+        return webTestClient.post().uri("/stores/{storeId}/stocks", storeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"" + name + "\",\"type\":\"" + type + "\",\"value\":" + value + "}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Stock.class)
+                .returnResult()
+                .getResponseBody()
+                .getId();
+    }
+}
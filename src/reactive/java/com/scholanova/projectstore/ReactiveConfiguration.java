@@ -0,0 +1,70 @@
+package com.scholanova.projectstore;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import reactor.netty.resources.LoopResources;
+
+import java.io.Closeable;
+
+/**
+ * WebFlux and R2DBC variant of the API, selected with the {@code reactive} profile. Its sources and the reactive
+ * stack are only on the build with the {@code reactive} Maven profile: {@code mvn -Preactive package}.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    // the connection factory is not a bean of its own: Boot drops its DataSource as soon as one exists, and
+    // Liquibase, the repair job and the other JDBC components are meant to keep sharing that DataSource
+    @Bean
+    public DatabaseClient databaseClient(@Value("${spring.r2dbc.url}") String url,
+                                         @Value("${spring.r2dbc.username:}") String username,
+                                         @Value("${spring.r2dbc.password:}") String password) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (StringUtils.hasText(password)) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        return DatabaseClient.create(ConnectionFactories.get(options.build()));
+    }
+
+    @Bean
+    public DisposableBean connectionFactoryCloser(DatabaseClient databaseClient) {
+        return () -> {
+            if (databaseClient.getConnectionFactory() instanceof Closeable) {
+                ((Closeable) databaseClient.getConnectionFactory()).close();
+            }
+        };
+    }
+
+    // the manager stays out of the context so @Transactional keeps resolving to the single JDBC manager
+    @Bean
+    public TransactionalOperator transactionalOperator(DatabaseClient databaseClient) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(databaseClient.getConnectionFactory()));
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public LoopResources eventLoopResources(@Value("${store.reactive.event-loop-threads}") int eventLoopThreads) {
+        return LoopResources.create("store-event-loop", eventLoopThreads, true);
+    }
+
+    // declared explicitly, otherwise Boot picks Tomcat since the servlet stack is on the classpath too
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(LoopResources eventLoopResources) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.addServerCustomizers(httpServer -> httpServer.runOn(eventLoopResources));
+        return factory;
+    }
+}
@@ -0,0 +1,105 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotValidException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.services.ReactiveStockService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@Profile("reactive")
+public class ReactiveStockController {
+
+    private final ReactiveStockService stockService;
+
+    public ReactiveStockController(ReactiveStockService stockService) {
+        this.stockService = stockService;
+    }
+
+    @PostMapping(path = "/stores/{storeId}/stocks")
+    public Mono<ResponseEntity<?>> createStock(@PathVariable int storeId, @RequestBody Stock stock) {
+        return stockService.create(storeId, stock)
+                .<ResponseEntity<?>>map(createdStock -> ResponseEntity.ok()
+                        .body(createdStock))
+                .onErrorResume(StockNotValidException.class, ex -> Mono.just(errorResponse(400, "Invalid stock")));
+    }
+
+    @PostMapping(path = "/stores/{storeId}/stocks:batch")
+    public Mono<ResponseEntity<?>> createStocks(@PathVariable int storeId, @RequestBody List<Stock> stocks) {
+        return stockService.createBatch(storeId, stocks)
+                .collectList()
+                .<ResponseEntity<?>>map(createdStocks -> ResponseEntity.ok()
+                        .body(createdStocks))
+                .onErrorResume(StockNotValidException.class, ex -> Mono.just(errorResponse(400, "Invalid stock")));
+    }
+
+    // NDJSON is written row by row as the client reads it, a JSON array has to be collected first
+    @GetMapping(path = "/stores/{storeId}/stocks")
+    public Mono<ResponseEntity<?>> listStock(@PathVariable int storeId,
+                                             @RequestParam Optional<String> type,
+                                             @RequestParam Optional<Integer> limit,
+                                             @RequestParam Optional<Integer> after,
+                                             @RequestHeader HttpHeaders headers) {
+        if (limit.isPresent() || after.isPresent()) {
+            return stockService.getStoreStockPage(storeId, type.orElse(""), after.orElse(null), limit.orElse(null))
+                    .map(ResponseEntity::ok);
+        }
+
+        Flux<Stock> stocks = stockService.getStoreStockByType(storeId, type.orElse(""));
+        if (headers.getAccept().contains(MediaType.APPLICATION_NDJSON)) {
+            return Mono.just(ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(stocks));
+        }
+        return stocks.collectList()
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(ModelNotFoundException.class, ex -> Mono.just(errorResponse(404, "Store not found")));
+    }
+
+    @GetMapping(path = "/stores/{storeId}/stocks/summary")
+    public Mono<List<StockTypeSummary>> getStockSummary(@PathVariable int storeId) {
+        return stockService.getStoreStockSummary(storeId).collectList();
+    }
+
+    @GetMapping(path = "/stocks/summary")
+    public Mono<List<StockTypeSummary>> getStockSummary() {
+        return stockService.getStockSummary().collectList();
+    }
+
+    @GetMapping(path = "/stores/{storeId}/stocks/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Stock> exportStock(@PathVariable int storeId) {
+        return stockService.exportStoreStock(storeId);
+    }
+
+    @DeleteMapping(path = "/stocks/{stockId}")
+    public Mono<ResponseEntity<?>> deleteStock(@PathVariable int stockId) {
+        return stockService.deleteStockById(stockId)
+                .<ResponseEntity<?>>thenReturn(ResponseEntity.status(204).build())
+                .onErrorResume(StockNotFoundException.class, ex -> Mono.just(errorResponse(404, "stock not found")));
+    }
+
+    // a streamed listing fails before its first row is written, so the status can still be set here
+    @ExceptionHandler(ModelNotFoundException.class)
+    public ResponseEntity<?> handleModelNotFound(ModelNotFoundException ex) {
+        return errorResponse(404, "Store not found");
+    }
+
+    private ResponseEntity<?> errorResponse(int status, String msg) {
+        Map<String, String> erroMsg = new HashMap<>();
+        erroMsg.put("msg", msg);
+        return ResponseEntity.status(status).body(erroMsg);
+    }
+}
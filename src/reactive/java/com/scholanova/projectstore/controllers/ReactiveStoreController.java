@@ -0,0 +1,54 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StoreNameCannotBeEmptyException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.services.ReactiveStoreService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@Profile("reactive")
+public class ReactiveStoreController {
+
+    private final ReactiveStoreService storeService;
+
+    public ReactiveStoreController(ReactiveStoreService storeService) {
+        this.storeService = storeService;
+    }
+
+    @GetMapping(path = "/stores/{id}")
+    public Mono<ResponseEntity<?>> getStation(@PathVariable int id) {
+        return storeService.getStore(id)
+                .<ResponseEntity<?>>map(store -> ResponseEntity.ok()
+                        .body(store))
+                .onErrorResume(ModelNotFoundException.class, ex -> Mono.just(errorResponse(404, "store not found")));
+    }
+
+    @DeleteMapping(path = "/stores/{id}")
+    public Mono<ResponseEntity<?>> deleteStore(@PathVariable int id) {
+        return storeService.deleteStoreById(id)
+                .<ResponseEntity<?>>thenReturn(ResponseEntity.status(204).build())
+                .onErrorResume(StoreNotFoundException.class, ex -> Mono.just(errorResponse(404, "store not found")));
+    }
+
+    @PostMapping(path = "/stores")
+    public Mono<ResponseEntity<?>> createStore(@RequestBody Store store) {
+        return storeService.create(store)
+                .<ResponseEntity<?>>map(createdStore -> ResponseEntity.ok()
+                        .body(createdStore))
+                .onErrorResume(StoreNameCannotBeEmptyException.class, ex -> Mono.just(errorResponse(400, "name cannot be empty")));
+    }
+
+    private ResponseEntity<?> errorResponse(int status, String msg) {
+        Map<String, String> erroMsg = new HashMap<>();
+        erroMsg.put("msg", msg);
+        return ResponseEntity.status(status).body(erroMsg);
+    }
+}
@@ -0,0 +1,319 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile("reactive")
+public class ReactiveStockRepository {
+
+    // rows are pulled from the server in chunks of this size as the subscriber requests them
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final StockTypeRegistry stockTypes;
+
+    public ReactiveStockRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                   StockTypeRegistry stockTypes) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.stockTypes = stockTypes;
+    }
+
+    public Mono<Stock> getById(Integer id) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.ID = :id";
+
+        return databaseClient.sql(query)
+                .bind("id", id)
+                .map(this::toStock)
+                .one()
+                .switchIfEmpty(Mono.error(ModelNotFoundException::new));
+    }
+
+    public Flux<Stock> listStocksByStoreId(Integer storeId) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId";
+
+        return databaseClient.sql(query)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .bind("storeId", storeId)
+                .map(this::toStock)
+                .all();
+    }
+
+    public Flux<Stock> listStocksByStoreIdAfter(Integer storeId, String type, Integer afterId, int limit) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId " +
+                "AND s.ID > :afterId " +
+                (type == null ? "" : "AND s.TYPE_ID = :typeId ") +
+                "ORDER BY s.ID " +
+                "LIMIT :limit";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(query)
+                .bind("storeId", storeId)
+                .bind("afterId", afterId)
+                .bind("limit", limit);
+        if (type != null) {
+            spec = bindTypeId(spec, type);
+        }
+        return spec.map(this::toStock).all();
+    }
+
+    public Flux<Stock> streamStocksByStoreId(Integer storeId) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId " +
+                "ORDER BY s.ID";
+
+        return databaseClient.sql(query)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .bind("storeId", storeId)
+                .map(this::toStock)
+                .all();
+    }
+
+    public Flux<Stock> getStoreStockByType(Integer storeId, String type) {
+        String query = "SELECT s.ID as id, " +
+                "s.NAME AS name, " +
+                "t.NAME AS type, " +
+                "s.VALUE AS value, " +
+                "s.STOREID AS storeId " +
+                "FROM STOCK s " +
+                "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID " +
+                "WHERE s.STOREID = :storeId AND s.TYPE_ID = :typeId";
+
+        return bindTypeId(databaseClient.sql(query), type)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .bind("storeId", storeId)
+                .map(this::toStock)
+                .all()
+                .switchIfEmpty(Mono.error(ModelNotFoundException::new));
+    }
+
+    public Mono<Stock> addStockByStoreId(Integer storeId, Stock stock) {
+        return insertStock(storeId, stock)
+                .flatMap(createdStock -> addToStoreTotal(storeId, stock.getValue())
+                        .then(addToStoreTypeTotals(storeId, Collections.singletonList(stock)))
+                        .thenReturn(createdStock))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Flux<Stock> addStocksByStoreId(Integer storeId, List<Stock> stocks) {
+        if (stocks.isEmpty()) {
+            return Flux.empty();
+        }
+
+        long delta = stocks.stream().mapToLong(Stock::getValue).sum();
+        return Flux.fromIterable(stocks)
+                .concatMap(stock -> insertStock(storeId, stock))
+                .concatWith(addToStoreTotal(storeId, delta)
+                        .then(addToStoreTypeTotals(storeId, stocks))
+                        .then(Mono.empty()))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Stock> insertStock(Integer storeId, Stock stock) {
+        String query = "INSERT INTO STOCK " +
+                "(NAME, TYPE_ID, VALUE, STOREID) VALUES " +
+                "(:name, :typeId, :value, :storeId)";
+
+        return bindTypeId(databaseClient.sql(query), stock.getType())
+                .filter(statement -> statement.returnGeneratedValues("ID"))
+                .bind("storeId", storeId)
+                .bind("value", stock.getValue())
+                .bind("name", stock.getName())
+                .map(row -> row.get(0, Integer.class))
+                .one()
+                .map(newlyCreatedId -> new Stock(newlyCreatedId, stock.getName(), stock.getType(), stock.getValue(), storeId));
+    }
+
+    public Mono<Stock> deleteById(Integer id) {
+        String query = "DELETE FROM STOCK " +
+                "WHERE ID = :id ";
+
+        return getById(id)
+                .onErrorMap(ModelNotFoundException.class, e -> new StockNotFoundException())
+                .flatMap(stock -> databaseClient.sql(query)
+                        .bind("id", id)
+                        .fetch()
+                        .rowsUpdated()
+                        .flatMap(totalAffectedRows -> totalAffectedRows == 0
+                                ? Mono.error(new StockNotFoundException())
+                                : addToStoreTotal(stock.getStoreId(), -stock.getValue())
+                                        .then(removeFromStoreTypeTotals(stock))
+                                        .thenReturn(stock)))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Void> addToStoreTotal(Integer storeId, long delta) {
+        String query = "UPDATE STORE_TOTALS " +
+                "SET TOTAL_VALUE = TOTAL_VALUE + :delta, " +
+                "VERSION = VERSION + 1 " +
+                "WHERE STOREID = :storeId";
+
+        String insertQuery = "INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE, VERSION) " +
+                "VALUES (:storeId, :delta, 1)";
+
+        return databaseClient.sql(query)
+                .bind("storeId", storeId)
+                .bind("delta", delta)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(totalAffectedRows -> totalAffectedRows == 0
+                        ? databaseClient.sql(insertQuery)
+                                .bind("storeId", storeId)
+                                .bind("delta", delta)
+                                .then()
+                        : Mono.empty());
+    }
+
+    private Mono<Void> addToStoreTypeTotals(Integer storeId, List<Stock> stocks) {
+        String query = "UPDATE STORE_TYPE_TOTALS " +
+                "SET STOCK_COUNT = STOCK_COUNT + :count, " +
+                "TOTAL_VALUE = TOTAL_VALUE + :total, " +
+                "MIN_VALUE = COALESCE(LEAST(MIN_VALUE, :min), :min), " +
+                "MAX_VALUE = COALESCE(GREATEST(MAX_VALUE, :max), :max) " +
+                "WHERE STOREID = :storeId AND TYPE_ID = :typeId";
+
+        String insertQuery = "INSERT INTO STORE_TYPE_TOTALS " +
+                "(STOREID, TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE) VALUES " +
+                "(:storeId, :typeId, :count, :total, :min, :max)";
+
+        Map<Integer, IntSummaryStatistics> statisticsByType = stocks.stream()
+                .collect(Collectors.groupingBy(stock -> stockTypes.getId(stock.getType()),
+                        LinkedHashMap::new,
+                        Collectors.summarizingInt(Stock::getValue)));
+
+        return Flux.fromIterable(statisticsByType.entrySet())
+                .concatMap(typeStatistics -> bindTypeTotals(databaseClient.sql(query), storeId, typeStatistics)
+                        .fetch()
+                        .rowsUpdated()
+                        .flatMap(totalAffectedRows -> totalAffectedRows == 0
+                                ? bindTypeTotals(databaseClient.sql(insertQuery), storeId, typeStatistics).then()
+                                : Mono.empty()))
+                .then();
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindTypeTotals(DatabaseClient.GenericExecuteSpec spec, Integer storeId,
+                                                             Map.Entry<Integer, IntSummaryStatistics> typeStatistics) {
+        IntSummaryStatistics statistics = typeStatistics.getValue();
+        return spec.bind("storeId", storeId)
+                .bind("typeId", typeStatistics.getKey())
+                .bind("count", statistics.getCount())
+                .bind("total", statistics.getSum())
+                .bind("min", statistics.getMin())
+                .bind("max", statistics.getMax());
+    }
+
+    private Mono<Void> removeFromStoreTypeTotals(Stock stock) {
+        String query = "UPDATE STORE_TYPE_TOTALS " +
+                "SET STOCK_COUNT = STOCK_COUNT - 1, " +
+                "TOTAL_VALUE = TOTAL_VALUE - :value, " +
+                "MIN_VALUE = CASE WHEN MIN_VALUE < :value THEN MIN_VALUE " +
+                "ELSE (SELECT MIN(VALUE) FROM STOCK WHERE STOREID = :storeId AND TYPE_ID = :typeId) END, " +
+                "MAX_VALUE = CASE WHEN MAX_VALUE > :value THEN MAX_VALUE " +
+                "ELSE (SELECT MAX(VALUE) FROM STOCK WHERE STOREID = :storeId AND TYPE_ID = :typeId) END " +
+                "WHERE STOREID = :storeId AND TYPE_ID = :typeId";
+
+        return bindTypeId(databaseClient.sql(query), stock.getType())
+                .bind("storeId", stock.getStoreId())
+                .bind("value", stock.getValue())
+                .then();
+    }
+
+    public Flux<StockTypeSummary> getStoreStockSummary(Integer storeId) {
+        String query = "SELECT t.NAME AS type, " +
+                "r.STOCK_COUNT AS stockCount, " +
+                "r.TOTAL_VALUE AS totalValue, " +
+                "r.MIN_VALUE AS minValue, " +
+                "r.MAX_VALUE AS maxValue " +
+                "FROM STORE_TYPE_TOTALS r " +
+                "JOIN STOCK_TYPE t ON t.ID = r.TYPE_ID " +
+                "WHERE r.STOREID = :storeId AND r.STOCK_COUNT > 0 " +
+                "ORDER BY t.NAME";
+
+        return databaseClient.sql(query)
+                .bind("storeId", storeId)
+                .map(this::toStockTypeSummary)
+                .all();
+    }
+
+    public Flux<StockTypeSummary> getStockSummary() {
+        String query = "SELECT t.NAME AS type, " +
+                "SUM(r.STOCK_COUNT) AS stockCount, " +
+                "SUM(r.TOTAL_VALUE) AS totalValue, " +
+                "MIN(r.MIN_VALUE) AS minValue, " +
+                "MAX(r.MAX_VALUE) AS maxValue " +
+                "FROM STORE_TYPE_TOTALS r " +
+                "JOIN STOCK_TYPE t ON t.ID = r.TYPE_ID " +
+                "WHERE r.STOCK_COUNT > 0 " +
+                "GROUP BY t.NAME " +
+                "ORDER BY t.NAME";
+
+        return databaseClient.sql(query)
+                .map(this::toStockTypeSummary)
+                .all();
+    }
+
+    private StockTypeSummary toStockTypeSummary(Row row) {
+        return new StockTypeSummary(row.get("TYPE", String.class),
+                row.get("STOCKCOUNT", Number.class).longValue(),
+                row.get("TOTALVALUE", Number.class).longValue(),
+                row.get("MINVALUE", Integer.class),
+                row.get("MAXVALUE", Integer.class));
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindTypeId(DatabaseClient.GenericExecuteSpec spec, String type) {
+        Integer typeId = stockTypes.getId(type);
+        return typeId == null ? spec.bindNull("typeId", Integer.class) : spec.bind("typeId", typeId);
+    }
+
+    private Stock toStock(Row row) {
+        return new Stock(row.get("ID", Integer.class),
+                row.get("NAME", String.class),
+                row.get("TYPE", String.class),
+                row.get("VALUE", Integer.class),
+                row.get("STOREID", Integer.class));
+    }
+}
@@ -0,0 +1,76 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveStoreRepository {
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveStoreRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public Mono<StoreWithTotalValue> getStoreWithTotalValue(Integer id) {
+        String query = "SELECT sr.ID as id, " +
+                "sr.NAME AS name, " +
+                "COALESCE(t.TOTAL_VALUE, 0) AS stockTotalValue " +
+                "FROM STORES sr " +
+                "LEFT JOIN STORE_TOTALS t ON t.STOREID = sr.ID " +
+                "WHERE sr.ID = :id";
+
+        return databaseClient.sql(query)
+                .bind("id", id)
+                .map(row -> new StoreWithTotalValue(
+                        row.get("ID", Integer.class),
+                        row.get("NAME", String.class),
+                        row.get("STOCKTOTALVALUE", Long.class)))
+                .one()
+                .switchIfEmpty(Mono.error(ModelNotFoundException::new));
+    }
+
+    public Mono<Store> create(Store storeToCreate) {
+        String query = "INSERT INTO STORES " +
+                "(NAME) VALUES " +
+                "(:name)";
+
+        String totalsQuery = "INSERT INTO STORE_TOTALS " +
+                "(STOREID, TOTAL_VALUE) VALUES " +
+                "(:storeId, 0)";
+
+        return databaseClient.sql(query)
+                .filter(statement -> statement.returnGeneratedValues("ID"))
+                .bind("name", storeToCreate.getName())
+                .map(row -> row.get(0, Integer.class))
+                .one()
+                .flatMap(newlyCreatedId -> databaseClient.sql(totalsQuery)
+                        .bind("storeId", newlyCreatedId)
+                        .then()
+                        .thenReturn(new Store(newlyCreatedId, storeToCreate.getName())))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Void> deleteById(Integer id) {
+        String query = "DELETE FROM STORES " +
+                "WHERE ID = :id ";
+
+        return databaseClient.sql(query)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(totalAffectedRows -> totalAffectedRows == 0
+                        ? Mono.error(new StoreNotFoundException())
+                        : Mono.empty());
+    }
+}
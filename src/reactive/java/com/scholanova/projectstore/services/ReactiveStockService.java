@@ -0,0 +1,99 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.StockNotValidException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockPage;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.repositories.ReactiveStockRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Service
+@Profile("reactive")
+public class ReactiveStockService {
+
+    private final ReactiveStockRepository stockRepository;
+    private final Counter stocksCreated;
+    private final Counter stocksDeleted;
+    private final Counter stocksRejected;
+    private final StockTypeRegistry stockTypes;
+
+    public ReactiveStockService(ReactiveStockRepository stockRepository, MeterRegistry meterRegistry,
+                                StockTypeRegistry stockTypes) {
+        this.stockRepository = stockRepository;
+        this.stockTypes = stockTypes;
+        this.stocksCreated = meterRegistry.counter("stocks.created");
+        this.stocksDeleted = meterRegistry.counter("stocks.deleted");
+        this.stocksRejected = meterRegistry.counter("validation.rejections", "model", "stock");
+    }
+
+    public Mono<Stock> create(int storeId, Stock stock) {
+        if (!StockService.isValid(stock, stockTypes)) {
+            stocksRejected.increment();
+            return Mono.error(new StockNotValidException());
+        }
+
+        return stockRepository.addStockByStoreId(storeId, stock)
+                .doOnNext(createdStock -> stocksCreated.increment());
+    }
+
+    public Flux<Stock> createBatch(int storeId, List<Stock> stocks) {
+        for (Stock stock : stocks) {
+            if (!StockService.isValid(stock, stockTypes)) {
+                stocksRejected.increment();
+                return Flux.error(new StockNotValidException());
+            }
+        }
+
+        return stockRepository.addStocksByStoreId(storeId, stocks)
+                .doOnNext(createdStock -> stocksCreated.increment());
+    }
+
+    public Flux<Stock> getStoreStockByType(int storeId, String type) {
+        if(stockTypes.contains(type)) {
+            return stockRepository.getStoreStockByType(storeId, type);
+        }
+        return stockRepository.listStocksByStoreId(storeId);
+    }
+
+    public Mono<StockPage> getStoreStockPage(int storeId, String type, Integer after, Integer limit) {
+        int pageSize = limit == null ? StockService.DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, StockService.MAX_PAGE_SIZE));
+        String typeFilter = stockTypes.contains(type) ? type : null;
+        int afterId = after == null ? 0 : after;
+
+        return stockRepository.listStocksByStoreIdAfter(storeId, typeFilter, afterId, pageSize + 1)
+                .collectList()
+                .map(stocks -> {
+                    if (stocks.size() <= pageSize) {
+                        return new StockPage(stocks, null);
+                    }
+                    List<Stock> page = stocks.subList(0, pageSize);
+                    return new StockPage(page, page.get(pageSize - 1).getId());
+                });
+    }
+
+    public Flux<StockTypeSummary> getStoreStockSummary(int storeId) {
+        return stockRepository.getStoreStockSummary(storeId);
+    }
+
+    public Flux<StockTypeSummary> getStockSummary() {
+        return stockRepository.getStockSummary();
+    }
+
+    public Flux<Stock> exportStoreStock(int storeId) {
+        return stockRepository.streamStocksByStoreId(storeId);
+    }
+
+    public Mono<Void> deleteStockById(int stockId) {
+        return stockRepository.deleteById(stockId)
+                .doOnNext(deletedStock -> stocksDeleted.increment())
+                .then();
+    }
+}
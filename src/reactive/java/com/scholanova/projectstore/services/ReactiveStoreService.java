@@ -0,0 +1,41 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.StoreNameCannotBeEmptyException;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.repositories.ReactiveStoreRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveStoreService {
+
+    private final ReactiveStoreRepository storeRepository;
+    private final Counter storesRejected;
+
+    public ReactiveStoreService(ReactiveStoreRepository storeRepository, MeterRegistry meterRegistry) {
+        this.storeRepository = storeRepository;
+        this.storesRejected = meterRegistry.counter("validation.rejections", "model", "store");
+    }
+
+    public Mono<Store> create(Store store) {
+        if (StoreService.isNameMissing(store)) {
+            storesRejected.increment();
+            return Mono.error(new StoreNameCannotBeEmptyException());
+        }
+
+        return storeRepository.create(store);
+    }
+
+    public Mono<StoreWithTotalValue> getStore(int id) {
+        return storeRepository.getStoreWithTotalValue(id);
+    }
+
+    public Mono<Void> deleteStoreById(int id) {
+        return storeRepository.deleteById(id);
+    }
+}
@@ -0,0 +1,250 @@
+package com.scholanova.projectstore.startup;
+
+import com.scholanova.projectstore.ProjectStoreApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Starts the application in separate JVMs and reports the time from process launch to the first request
+ * answered with a 200, for the default startup, the {@code fast-startup} profile and the {@code fast-startup}
+ * profile with the AppCDS archive. Every run shares one H2 file database so the schema is already applied, as
+ * it is for an instance added during scale-out.
+ * <p>
+ * With {@code --train}, one instance is started with {@code -XX:ArchiveClassesAtExit}, serves a request and is
+ * stopped, which leaves the archive at {@code startup.archive}. AppCDS only accepts jars and only with the exact
+ * class path it was recorded with, so the class directories of this JVM are packed into jars next to the archive
+ * and that class path is written to {@code app.args}, to launch the application with the archive:
+ * <pre>
+ * java -XX:SharedArchiveFile=target/startup/app-cds.jsa &#64;target/startup/app.args \
+ *      com.scholanova.projectstore.ProjectStoreApplication --spring.profiles.active=fast-startup
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    private static final String FIRST_REQUEST_PATH = "/stocks/summary";
+    private static final long STARTUP_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final Map<String, String> settings;
+    private final File outputDirectory;
+    private final File archive;
+
+    public StartupBenchmark(Map<String, String> settings) {
+        this.settings = settings;
+        this.outputDirectory = new File(settings.getOrDefault("startup.output-dir", "target/startup"));
+        this.archive = new File(settings.getOrDefault("startup.archive", new File(outputDirectory, "app-cds.jsa").getPath()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<>();
+        boolean train = false;
+        for (String arg : args) {
+            if (arg.equals("--train")) {
+                train = true;
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                settings.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("Unsupported argument " + arg);
+            }
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(settings);
+        if (train) {
+            benchmark.train();
+        } else {
+            benchmark.run();
+        }
+    }
+
+    void train() throws IOException, InterruptedException {
+        createOutputDirectory();
+        Files.deleteIfExists(archive.toPath());
+        // Liquibase 3.8 cannot list includeAll entries in a plain jar, so the schema is applied from the class
+        // directories first and the archived start finds an unchanged checksum
+        startAndMeasure(new Mode("migrate", Collections.emptyList(), true, System.getProperty("java.class.path")));
+
+        String classPath = archivableClassPath(true);
+        Files.write(new File(outputDirectory, "app.args").toPath(),
+                ("-cp \"" + classPath.replace("\\", "\\\\") + "\"").getBytes(StandardCharsets.UTF_8));
+        startAndMeasure(new Mode("train",
+                Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath()), true, classPath));
+        if (!archive.isFile()) {
+            throw new IOException("The JVM did not write " + archive);
+        }
+        System.out.printf("AppCDS archive written to %s%n", archive.getAbsolutePath());
+    }
+
+    void run() throws IOException, InterruptedException {
+        createOutputDirectory();
+        int runs = Integer.parseInt(settings.getOrDefault("startup.runs", "5"));
+
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("default", Collections.emptyList(), false, System.getProperty("java.class.path")));
+        modes.add(new Mode("fast-startup", Collections.emptyList(), true, System.getProperty("java.class.path")));
+        if (archive.isFile()) {
+            modes.add(new Mode("fast-startup+appcds",
+                    Collections.singletonList("-XX:SharedArchiveFile=" + archive.getAbsolutePath()), true, archivableClassPath(false)));
+        } else {
+            System.out.printf("No AppCDS archive at %s, run with --train first to include it%n", archive);
+        }
+
+        System.out.printf("%-22s %6s %10s %10s %10s%n", "mode", "runs", "min(ms)", "p50(ms)", "max(ms)");
+        for (Mode mode : modes) {
+            // the first start of a mode migrates the database or records the schema checksum, it is not counted
+            startAndMeasure(mode.named(mode.name + "-warmup"));
+
+            long[] millis = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                millis[run] = TimeUnit.NANOSECONDS.toMillis(startAndMeasure(mode.named(mode.name + "-" + run)));
+            }
+            Arrays.sort(millis);
+            System.out.printf("%-22s %6d %10d %10d %10d%n", mode.name, runs, millis[0], millis[runs / 2], millis[runs - 1]);
+        }
+        System.out.printf("Application logs written to %s%n", outputDirectory.getAbsolutePath());
+    }
+
+    private void createOutputDirectory() throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + outputDirectory);
+        }
+    }
+
+    private long startAndMeasure(Mode mode) throws IOException, InterruptedException {
+        String name = mode.name;
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(mode.jvmOptions);
+        command.add("-Dspring.devtools.restart.enabled=false");
+        command.add("-cp");
+        command.add(mode.classPath);
+        command.add(ProjectStoreApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=" + settings.getOrDefault("startup.datasource-url",
+                "jdbc:h2:file:" + new File(outputDirectory, "db").getAbsolutePath()));
+        command.add("--spring.datasource.username=" + settings.getOrDefault("startup.datasource-username", "sa"));
+        command.add("--spring.datasource.password=" + settings.getOrDefault("startup.datasource-password", ""));
+        if (mode.fastStartup) {
+            command.add("--spring.profiles.active=fast-startup");
+        }
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(outputDirectory, name + ".log"))
+                .start();
+        try {
+            URL url = new URL("http://localhost:" + port + FIRST_REQUEST_PATH);
+            while (!isServed(url)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + name + ".log");
+                }
+                if (System.nanoTime() - start > STARTUP_TIMEOUT_NANOS) {
+                    throw new IllegalStateException(name + " did not serve a request in time, see " + name + ".log");
+                }
+                Thread.sleep(5);
+            }
+            return System.nanoTime() - start;
+        } finally {
+            // a normal shutdown, not a kill, so the JVM still dumps the archive when training
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private String archivableClassPath(boolean repack) throws IOException {
+        List<String> entries = new ArrayList<>();
+        int directoryCount = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            File file = new File(entry);
+            if (!file.isDirectory()) {
+                entries.add(file.getAbsolutePath());
+                continue;
+            }
+            // reused as is between runs, the archive is rejected as soon as a jar on its class path changes
+            File jar = new File(outputDirectory, "classes-" + directoryCount++ + ".jar");
+            if (repack || !jar.isFile()) {
+                pack(file.toPath(), jar.toPath());
+            }
+            entries.add(jar.getAbsolutePath());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    // directory entries are kept, classpath* scanning and Liquibase's includeAll look them up
+    private static void pack(Path directory, Path jar) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.filter(path -> !path.equals(directory)).sorted().collect(Collectors.toList());
+        }
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path path : paths) {
+                String name = directory.relativize(path).toString().replace(File.separatorChar, '/');
+                if (Files.isDirectory(path)) {
+                    output.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    output.putNextEntry(new JarEntry(name));
+                    Files.copy(path, output);
+                }
+                output.closeEntry();
+            }
+        }
+    }
+
+    private static boolean isServed(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(100);
+            connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(30));
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class Mode {
+        private final String name;
+        private final List<String> jvmOptions;
+        private final boolean fastStartup;
+        private final String classPath;
+
+        private Mode(String name, List<String> jvmOptions, boolean fastStartup, String classPath) {
+            this.name = name;
+            this.jvmOptions = jvmOptions;
+            this.fastStartup = fastStartup;
+            this.classPath = classPath;
+        }
+
+        private Mode named(String runName) {
+            return new Mode(runName, jvmOptions, fastStartup, classPath);
+        }
+    }
+}
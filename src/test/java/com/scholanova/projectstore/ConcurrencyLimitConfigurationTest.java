@@ -0,0 +1,161 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.repositories.AdaptiveConcurrencyLimiter;
+import com.scholanova.projectstore.repositories.ConcurrencyLimitAspect;
+import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.repositories.StoreRepository;
+import com.scholanova.projectstore.services.StoreService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.aop.Advice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AbstractAspectJAdvice;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+// one export permit, so holding it still leaves the second pooled connection to the valuation
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "store.repository.concurrency.export-limit=1")
+@ActiveProfiles("test")
+class ConcurrencyLimitConfigurationTest {
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    private ConcurrencyLimitAspect aspect;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "STOCK", "STORES");
+    }
+
+    @Test
+    void givenLimiterEnabled_whenRepositoryProxied_limitsAheadOfTransaction() {
+        // WHEN
+        List<Advice> advices = Arrays.stream(((Advised) stockRepository).getAdvisors())
+                .map(Advisor::getAdvice)
+                .collect(Collectors.toList());
+
+        // THEN
+        int limitIndex = IntStream.range(0, advices.size())
+                .filter(i -> advices.get(i) instanceof AbstractAspectJAdvice
+                        && ((AbstractAspectJAdvice) advices.get(i)).getAspectName().equals("repositoryConcurrencyLimitAspect"))
+                .findFirst().orElse(-1);
+        int transactionIndex = IntStream.range(0, advices.size())
+                .filter(i -> advices.get(i) instanceof TransactionInterceptor)
+                .findFirst().orElse(-1);
+        assertThat(limitIndex).isNotEqualTo(-1);
+        assertThat(limitIndex).isLessThan(transactionIndex);
+    }
+
+    @Test
+    void givenLimiterEnabled_whenExporting_takesAnExportPermitInsteadOfTheAdaptiveOne() throws Exception {
+        // GIVEN
+        Store store = storeService.create(new Store(null, "Carrefour"));
+        int exportPermits = aspect.getAvailableExportPermits();
+        int valuationPermits = aspect.getAvailableValuationPermits();
+        List<Integer> inFlightWhileStreaming = new ArrayList<>();
+        List<Integer> exportPermitsWhileStreaming = new ArrayList<>();
+        List<Integer> valuationPermitsWhileStreaming = new ArrayList<>();
+        jdbcTemplate.update("INSERT INTO STOCK (NAME, TYPE_ID, VALUE, STOREID) VALUES ('Poire', 1, 20, ?)", store.getId());
+
+        // WHEN
+        stockRepository.streamStocksByStoreId(store.getId(), stock -> {
+            inFlightWhileStreaming.add(limiter.getInFlight());
+            exportPermitsWhileStreaming.add(aspect.getAvailableExportPermits());
+            valuationPermitsWhileStreaming.add(aspect.getAvailableValuationPermits());
+        });
+
+        // THEN
+        assertThat(inFlightWhileStreaming).containsExactly(0);
+        assertThat(exportPermitsWhileStreaming).containsExactly(exportPermits - 1);
+        assertThat(valuationPermitsWhileStreaming).containsExactly(valuationPermits);
+        assertThat(aspect.getAvailableExportPermits()).isEqualTo(exportPermits);
+    }
+
+    @Test
+    void givenEveryExportPermitTaken_whenValuing_stillStreamsStoreValues() throws Exception {
+        // GIVEN
+        Store store = storeService.create(new Store(null, "Carrefour"));
+        jdbcTemplate.update("INSERT INTO STOCK (NAME, TYPE_ID, VALUE, STOREID) VALUES ('Poire', 1, 20, ?)", store.getId());
+        CountDownLatch exporting = new CountDownLatch(1);
+        CountDownLatch valued = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> slowExport = executor.submit(() -> stockRepository.streamStocksByStoreId(store.getId(), stock -> {
+            exporting.countDown();
+            await(valued);
+        }));
+        exporting.await(5, TimeUnit.SECONDS);
+        List<Integer> valuedStores = new ArrayList<>();
+
+        // WHEN
+        int exportPermitsWhileExporting = aspect.getAvailableExportPermits();
+        storeRepository.streamStoreValues(store.getId(), store.getId(), value -> valuedStores.add(value.getId()));
+        valued.countDown();
+        slowExport.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // THEN
+        assertThat(exportPermitsWhileExporting).isEqualTo(0);
+        assertThat(valuedStores).containsExactly(store.getId());
+    }
+
+    @Test
+    void givenLimiterEnabled_whenStoreCreatedAndRead_releasesEveryPermit() throws Exception {
+        // WHEN
+        Store store = storeService.create(new Store(null, "Carrefour"));
+        storeService.getStore(store.getId());
+
+        // THEN
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+        assertThat(meterRegistry.get("repository.concurrency.limit").gauge().value()).isEqualTo(limiter.getLimit());
+        assertThat(meterRegistry.get("repository.concurrency.rejections").counter().count()).isEqualTo(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.repositories.EdgeStockRepository;
+import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.services.StockService;
+import com.scholanova.projectstore.services.StoreService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "store.edge.data-dir=${java.io.tmpdir}/edge-test-${random.uuid}")
+@ActiveProfiles("edge")
+class EdgeConfigurationTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void givenEdgeProfile_runsWithoutDatabase() {
+        assertThat(stockRepository).isInstanceOf(EdgeStockRepository.class);
+        assertThat(context.getBeanNamesForType(DataSource.class)).isEmpty();
+    }
+
+    @Test
+    void givenEdgeProfile_whenStocksCreated_servesThemThroughServices() throws Exception {
+        // GIVEN
+        Store store = storeService.create(new Store(null, "Carrefour"));
+
+        // WHEN
+        Stock stock = stockService.create(store.getId(), new Stock(null, "Apple", "Fruit", 12, 0));
+
+        // THEN
+        assertThat(storeService.getStore(store.getId()).getStockTotalValue()).isEqualTo(12L);
+        assertThat(stockService.getStoreStockByType(store.getId(), "Fruit")).extracting(Stock::getId).containsExactly(stock.getId());
+        assertThat(stockService.getStockSummary()).extracting(summary -> summary.getType()).containsExactly("Fruit");
+    }
+
+    @Test
+    void givenEdgeProfile_whenUnknownStoreRead_throwsNotFound() {
+        assertThrows(ModelNotFoundException.class, () -> storeService.getStore(404));
+    }
+}
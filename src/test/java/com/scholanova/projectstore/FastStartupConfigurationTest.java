@@ -0,0 +1,38 @@
+package com.scholanova.projectstore;
+
+import com.scholanova.projectstore.repositories.ChecksumGuardedLiquibase;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles({"test", "fast-startup"})
+class FastStartupConfigurationTest {
+
+    @Autowired
+    private SpringLiquibase liquibase;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    void givenFastStartupProfile_liquibaseIsGuardedByChecksum() {
+        assertThat(liquibase).isInstanceOf(ChecksumGuardedLiquibase.class);
+    }
+
+    @Test
+    void givenFastStartupProfile_onlyScheduledBeansAreEager() {
+        assertThat(beanFactory.getBeanDefinition("storeValuationService").isLazyInit()).isTrue();
+        assertThat(beanFactory.containsSingleton("storeValuationService")).isFalse();
+        assertThat(beanFactory.getBeanDefinition("storeTotalsRepairJob").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("stockTypeRegistry").isLazyInit()).isFalse();
+    }
+}
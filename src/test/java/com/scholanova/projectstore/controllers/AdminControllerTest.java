@@ -0,0 +1,165 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.exceptions.InventoryNotEmptyException;
+import com.scholanova.projectstore.exceptions.InventoryNotExportableException;
+import com.scholanova.projectstore.models.InventorySnapshot;
+import com.scholanova.projectstore.services.InventorySnapshotService;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class AdminControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    private TestRestTemplate template = new TestRestTemplate();
+
+    @MockBean
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Nested
+    class Test_exportSnapshot {
+
+        @Test
+        void whenCalled_streamsSnapshotFile() throws Exception {
+            // given
+            String url = "http://localhost:{port}/admin/snapshot";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            byte[] snapshot = {1, 2, 3, 4};
+            when(inventorySnapshotService.export(any())).thenAnswer(invocation -> {
+                Files.write(invocation.<Path>getArgument(0), snapshot);
+                return new InventorySnapshot(1L, 0L);
+            });
+
+            // When
+            ResponseEntity<byte[]> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    new HttpEntity<>(new HttpHeaders()),
+                    byte[].class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_OCTET_STREAM);
+            assertThat(responseEntity.getBody()).isEqualTo(snapshot);
+        }
+
+        @Test
+        void givenStocksWithoutValueOrStore_whenCalled_returnsConflict() throws Exception {
+            // given
+            String url = "http://localhost:{port}/admin/snapshot";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            when(inventorySnapshotService.export(any())).thenThrow(new InventoryNotExportableException());
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    new HttpEntity<>(new HttpHeaders()),
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(CONFLICT);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                            "\"msg\":\"inventory holds stocks without a value or a store\"" +
+                            "}"
+            );
+        }
+    }
+
+    @Nested
+    class Test_restoreSnapshot {
+
+        @Test
+        void givenSnapshot_whenCalled_restoresIt() throws Exception {
+            // given
+            String url = "http://localhost:{port}/admin/snapshot";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            HttpEntity<byte[]> httpEntity = new HttpEntity<>(new byte[]{1, 2, 3, 4}, headers);
+
+            when(inventorySnapshotService.restore(any())).thenAnswer(invocation -> {
+                assertThat(Files.readAllBytes(invocation.<Path>getArgument(0))).containsExactly(1, 2, 3, 4);
+                return new InventorySnapshot(2L, 5L);
+            });
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.POST,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                            "\"storeCount\":2," +
+                            "\"stockCount\":5" +
+                            "}"
+            );
+        }
+
+        @Test
+        void givenInventoryNotEmpty_whenCalled_returnsConflict() throws Exception {
+            // given
+            String url = "http://localhost:{port}/admin/snapshot";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            HttpEntity<byte[]> httpEntity = new HttpEntity<>(new byte[]{1, 2, 3, 4}, headers);
+
+            when(inventorySnapshotService.restore(any())).thenThrow(new InventoryNotEmptyException());
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.POST,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(CONFLICT);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                            "\"msg\":\"inventory is not empty\"" +
+                            "}"
+            );
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.StatementCountingDataSource;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.Store;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class EndpointStatementCountTest {
+
+    @LocalServerPort
+    private int port;
+
+    private TestRestTemplate template = new TestRestTemplate();
+
+    @Autowired
+    private StatementCountingDataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int storeId;
+    private int stockId;
+
+    @BeforeEach
+    void setUp() {
+        storeId = post("/stores", "{\"name\":\"Carrefour\"}", Store.class).getBody().getId();
+        stockId = post("/stores/" + storeId + "/stocks", "{\"name\":\"Poire\",\"type\":\"Fruit\",\"value\":50}", Stock.class).getBody().getId();
+        post("/stores/" + storeId + "/stocks", "{\"name\":\"Clou\",\"type\":\"Nail\",\"value\":5}", Stock.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "STOCK", "STORES");
+    }
+
+    @Test
+    void createStore_issuesOneStatementPerTable() {
+        dataSource.reset();
+        post("/stores", "{\"name\":\"Auchan\"}", String.class);
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void getStore_issuesOneStatement() {
+        dataSource.reset();
+        get("/stores/" + storeId);
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(1);
+    }
+
+    @Test
+    void deleteStore_issuesOneStatement() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "STOCK");
+
+        dataSource.reset();
+        exchange("/stores/" + storeId, HttpMethod.DELETE, null, String.class);
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(1);
+    }
+
+    @Test
+    void createStock_issuesOneStatementPerTable() {
+        dataSource.reset();
+        post("/stores/" + storeId + "/stocks", "{\"name\":\"Pomme\",\"type\":\"Fruit\",\"value\":10}", String.class);
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(3);
+    }
+
+    @Test
+    void createStocksInBatch_issuesOneStatementPerTable() {
+        dataSource.reset();
+        post("/stores/" + storeId + "/stocks:batch",
+                "[{\"name\":\"Pomme\",\"type\":\"Fruit\",\"value\":10},{\"name\":\"Vis\",\"type\":\"Nail\",\"value\":2}]",
+                String.class);
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(3);
+    }
+
+    @Test
+    void listStock_issuesVersionReadAndOneStatement() {
+        dataSource.reset();
+        get("/stores/" + storeId + "/stocks");
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void listStockByType_issuesVersionReadAndOneStatement() {
+        dataSource.reset();
+        get("/stores/" + storeId + "/stocks?type=Fruit");
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void listStockPage_issuesVersionReadAndOneStatement() {
+        dataSource.reset();
+        get("/stores/" + storeId + "/stocks?limit=1");
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void listStockNotModified_issuesOnlyVersionRead() {
+        String etag = get("/stores/" + storeId + "/stocks").getHeaders().getETag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        dataSource.reset();
+        ResponseEntity<String> responseEntity = template.exchange("http://localhost:" + port + "/stores/" + storeId + "/stocks",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(1);
+    }
+
+    @Test
+    void listStockAfterStockChange_returnsNewETag() {
+        String etag = get("/stores/" + storeId + "/stocks").getHeaders().getETag();
+        exchange("/stocks/" + stockId, HttpMethod.DELETE, null, String.class);
+
+        assertThat(get("/stores/" + storeId + "/stocks").getHeaders().getETag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void storeStockSummary_issuesVersionReadAndOneStatement() {
+        dataSource.reset();
+        get("/stores/" + storeId + "/stocks/summary");
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void stockSummary_issuesOneStatement() {
+        dataSource.reset();
+        get("/stocks/summary");
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(1);
+    }
+
+    @Test
+    void exportStock_issuesOneStatement() {
+        dataSource.reset();
+        get("/stores/" + storeId + "/stocks/export");
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(1);
+    }
+
+    @Test
+    void deleteStock_issuesOneStatementPerTable() {
+        dataSource.reset();
+        exchange("/stocks/" + stockId, HttpMethod.DELETE, null, String.class);
+
+        assertThat(dataSource.getExecutedStatements()).isEqualTo(3);
+    }
+
+    private <T> ResponseEntity<T> post(String path, String body, Class<T> responseType) {
+        return exchange(path, HttpMethod.POST, body, responseType);
+    }
+
+    private ResponseEntity<String> get(String path) {
+        ResponseEntity<String> responseEntity = exchange(path, HttpMethod.GET, null, String.class);
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return responseEntity;
+    }
+
+    private <T> ResponseEntity<T> exchange(String path, HttpMethod method, String body, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return template.exchange("http://localhost:" + port + path,
+                method,
+                new HttpEntity<>(body, headers),
+                responseType);
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfiguration {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)) {
+                        return new StatementCountingDataSource((DataSource) bean);
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
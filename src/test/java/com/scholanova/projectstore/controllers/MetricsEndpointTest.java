@@ -0,0 +1,92 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.models.Store;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureMetrics
+public class MetricsEndpointTest {
+
+    @LocalServerPort
+    private int port;
+
+    private TestRestTemplate template = new TestRestTemplate();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "STOCK", "STORES");
+    }
+
+    @Test
+    void givenTraffic_whenScraped_exposesEndpointHistogramsAndRepositoryTimers() {
+        // GIVEN
+        int storeId = post("/stores", "{\"name\":\"Carrefour\"}", Store.class).getBody().getId();
+        template.getForEntity(url("/stores/" + storeId), String.class);
+
+        // WHEN
+        String scrape = template.getForEntity(url("/actuator/prometheus"), String.class).getBody();
+
+        // THEN
+        assertThat(scrape).contains("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/stores/{id}\"");
+        assertThat(scrape).contains("repository_calls_seconds_count{class=\"com.scholanova.projectstore.repositories.JdbcStoreRepository\",exception=\"none\",method=\"create\",}");
+        assertThat(scrape).contains("repository_calls_seconds_bucket{class=\"com.scholanova.projectstore.repositories.JdbcStoreRepository\",exception=\"none\",method=\"getStoreWithTotalValue\"");
+    }
+
+    @Test
+    void givenStockTraffic_whenScraped_exposesBusinessCounters() {
+        // GIVEN
+        int storeId = post("/stores", "{\"name\":\"Carrefour\"}", Store.class).getBody().getId();
+        post("/stores/" + storeId + "/stocks", "{\"name\":\"Poire\",\"type\":\"Fruit\",\"value\":50}", String.class);
+        post("/stores/" + storeId + "/stocks", "{\"name\":\"Poire\",\"type\":\"Legume\",\"value\":50}", String.class);
+
+        // WHEN
+        String scrape = template.getForEntity(url("/actuator/prometheus"), String.class).getBody();
+
+        // THEN
+        assertThat(scrape).contains("stocks_created_total");
+        assertThat(scrape).contains("stocks_deleted_total");
+        assertThat(scrape).contains("validation_rejections_total{model=\"stock\",}");
+    }
+
+    @Test
+    void whenScraped_exposesConnectionPoolGauges() {
+        // WHEN
+        String scrape = template.getForEntity(url("/actuator/prometheus"), String.class).getBody();
+
+        // THEN
+        assertThat(scrape).contains("hikaricp_connections_active{");
+        assertThat(scrape).contains("hikaricp_connections_idle{");
+        assertThat(scrape).contains("hikaricp_connections_pending{");
+        assertThat(scrape).contains("hikaricp_connections_max{");
+    }
+
+    private <T> ResponseEntity<T> post(String path, String body, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return template.exchange(url(path), HttpMethod.POST, new HttpEntity<>(body, headers), responseType);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+}
@@ -0,0 +1,115 @@
+package com.scholanova.projectstore.controllers;
+
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreValuation;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.repositories.WaitTrackingDataSource;
+import com.scholanova.projectstore.services.StoreService;
+import com.scholanova.projectstore.services.StoreValuationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "store.rate-limit.enabled=true",
+        "store.rate-limit.api-keys=partner,another-partner",
+        "store.rate-limit.budgets.write.rate=0.01",
+        "store.rate-limit.budgets.write.burst=2",
+        "store.rate-limit.budgets.analytics.rate=0.01",
+        "store.rate-limit.budgets.analytics.burst=1"
+})
+@ActiveProfiles("test")
+class RateLimitInterceptorTest {
+
+    @LocalServerPort
+    private int port;
+
+    private TestRestTemplate template = new TestRestTemplate();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockBean
+    private StoreService storeService;
+
+    @MockBean
+    private StoreValuationService storeValuationService;
+
+    @Test
+    void givenWriteBudgetUsed_whenClientWritesAgain_isThrottled() throws Exception {
+        // GIVEN
+        when(storeService.create(any())).thenReturn(new Store(1, "Carrefour"));
+        assertThat(createStore("partner").getStatusCode()).isEqualTo(OK);
+        assertThat(createStore("partner").getStatusCode()).isEqualTo(OK);
+
+        // WHEN
+        ResponseEntity<String> responseEntity = createStore("partner");
+
+        // THEN
+        assertThat(responseEntity.getStatusCode()).isEqualTo(TOO_MANY_REQUESTS);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("100");
+        assertThat(responseEntity.getBody()).isEqualTo("{\"msg\":\"Too many requests\"}");
+        assertThat(createStore("another-partner").getStatusCode()).isEqualTo(OK);
+    }
+
+    @Test
+    void givenUnknownApiKeys_whenClientWritesWithNewKeys_sharesItsAddressBudget() throws Exception {
+        // GIVEN
+        when(storeService.create(any())).thenReturn(new Store(1, "Carrefour"));
+        assertThat(createStore("made-up-1").getStatusCode()).isEqualTo(OK);
+        assertThat(createStore("made-up-2").getStatusCode()).isEqualTo(OK);
+
+        // WHEN
+        ResponseEntity<String> responseEntity = createStore("made-up-3");
+
+        // THEN
+        assertThat(responseEntity.getStatusCode()).isEqualTo(TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void givenRouteWithOwnBudget_whenCalledAgain_isThrottledOnThatRouteOnly() throws Exception {
+        // GIVEN
+        when(storeValuationService.valuate(any(), any())).thenReturn(new StoreValuation());
+        when(storeService.getStore(anyInt())).thenReturn(new StoreWithTotalValue(1, "Carrefour", 0L));
+        String url = "http://localhost:" + port + "/stores/valuation";
+        assertThat(template.getForEntity(url, String.class).getStatusCode()).isEqualTo(OK);
+
+        // WHEN
+        ResponseEntity<String> responseEntity = template.getForEntity(url, String.class);
+
+        // THEN
+        assertThat(responseEntity.getStatusCode()).isEqualTo(TOO_MANY_REQUESTS);
+        assertThat(template.getForEntity("http://localhost:" + port + "/stores/1", String.class).getStatusCode()).isEqualTo(OK);
+    }
+
+    @Test
+    void givenRateLimitEnabled_whenDataSourceUnwrapped_tracksConnectionWaits() {
+        // THEN
+        assertThat(DataSourceUnwrapper.unwrap(dataSource, WaitTrackingDataSource.class)).isNotNull();
+    }
+
+    private ResponseEntity<String> createStore(String client) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Api-Key", client);
+        return template.exchange("http://localhost:" + port + "/stores", HttpMethod.POST,
+                new HttpEntity<>("{\"name\":\"Carrefour\"}", headers), String.class);
+    }
+}
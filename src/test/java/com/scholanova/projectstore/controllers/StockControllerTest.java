@@ -4,6 +4,9 @@ import com.scholanova.projectstore.exceptions.ModelNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotValidException;
 import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockPage;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.services.StockEventBroadcaster;
 import com.scholanova.projectstore.services.StockService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
@@ -19,11 +22,21 @@ import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -42,6 +55,9 @@ public class StockControllerTest {
     @MockBean
     private StockService stockService;
 
+    @MockBean
+    private StockEventBroadcaster stockEventBroadcaster;
+
     @Captor
     ArgumentCaptor<Stock> createStockArgumentCaptor;
 
@@ -230,6 +246,81 @@ public class StockControllerTest {
         }
     }
 
+    @Nested
+    class Test_createStocks {
+
+        @Test
+        void givenCorrectBody_whenCalled_createsAllStocks() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks:batch";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            String requestJson = "[" +
+                    "{\"name\":\"Flat Nail\",\"type\":\"Nail\",\"value\":100}," +
+                    "{\"name\":\"Poire\",\"type\":\"Fruit\",\"value\":20}" +
+                    "]";
+            HttpEntity<String> httpEntity = new HttpEntity<>(requestJson, headers);
+
+            List<Stock> createdStocks = new ArrayList<>();
+            createdStocks.add(new Stock(1, "Flat Nail", "Nail", 100, 1));
+            createdStocks.add(new Stock(2, "Poire", "Fruit", 20, 1));
+            when(stockService.createBatch(eq(1), anyList())).thenReturn(createdStocks);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.POST,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "[" +
+                        "{\"id\":1,\"name\":\"Flat Nail\",\"type\":\"Nail\",\"value\":100,\"storeId\":1}," +
+                        "{\"id\":2,\"name\":\"Poire\",\"type\":\"Fruit\",\"value\":20,\"storeId\":1}" +
+                    "]"
+            );
+        }
+
+        @Test
+        void givenInvalidStockInBody_whenCalled_returnsBadRequest() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks:batch";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            String requestJson = "[{\"name\":\"\",\"type\":\"Nail\",\"value\":100}]";
+            HttpEntity<String> httpEntity = new HttpEntity<>(requestJson, headers);
+
+            when(stockService.createBatch(eq(1), anyList())).thenThrow(StockNotValidException.class);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.POST,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                            "\"msg\":\"Invalid stock\"" +
+                    "}"
+            );
+        }
+    }
+
     @Nested
     class Test_listStock {
 
@@ -367,6 +458,212 @@ public class StockControllerTest {
             assertThat(storeIdArgumentCaptor.getValue()).isEqualTo(1);
             assertThat(stockTypeArgumentCaptor.getValue()).isEqualTo("Nail");
         }
+
+        @Test
+        void givenCurrentStoreVersionInIfNoneMatch_whenCalled_returnsNotModifiedWithoutListing() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfNoneMatch("\"7\"");
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+
+            when(stockService.getStoreVersion(1)).thenReturn(7L);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(NOT_MODIFIED);
+            assertThat(responseEntity.getHeaders().getETag()).isEqualTo("\"7\"");
+            assertThat(responseEntity.getBody()).isNull();
+            verify(stockService, never()).getStoreStockByType(anyInt(), anyString());
+        }
+
+        @Test
+        void givenOlderStoreVersionInIfNoneMatch_whenCalled_returnsStocksWithCurrentETag() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfNoneMatch("\"6\"");
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+
+            List<Stock> stockList = new ArrayList<>();
+            stockList.add(new Stock(1, "Flat Nail", "Nail", 100, 1));
+
+            when(stockService.getStoreVersion(1)).thenReturn(7L);
+            when(stockService.getStoreStockByType(1, "")).thenReturn(stockList);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getHeaders().getETag()).isEqualTo("\"7\"");
+            assertThat(responseEntity.getBody()).contains("Flat Nail");
+        }
+    }
+
+    @Nested
+    class Test_listStockPage {
+
+        @Test
+        void givenLimitAndCursor_whenCalled_getStockPage() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks?limit=1&after=3";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+
+            List<Stock> stockList = new ArrayList<>();
+            stockList.add(new Stock(4, "Flat Nail", "Nail", 100, 1));
+
+            when(stockService.getStoreStockPage(1, "", 3, 1)).thenReturn(new StockPage(stockList, 4));
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                        "\"stocks\":[" +
+                            "{" +
+                                "\"id\":4," +
+                                "\"name\":\"Flat Nail\"," +
+                                "\"type\":\"Nail\"," +
+                                "\"value\":100," +
+                                "\"storeId\":1" +
+                            "}" +
+                        "]," +
+                        "\"nextCursor\":4" +
+                    "}"
+            );
+            verify(stockService).getStoreStockPage(1, "", 3, 1);
+        }
+    }
+
+    @Nested
+    class Test_exportStock {
+
+        @Test
+        void givenStoreWithStocks_whenCalled_streamsOneJsonStockPerLine() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks/export";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(new HttpHeaders());
+
+            doAnswer(invocation -> {
+                Consumer<Stock> consumer = invocation.getArgument(1);
+                consumer.accept(new Stock(1, "Flat Nail", "Nail", 100, 1));
+                consumer.accept(new Stock(2, "Poire", "Fruit", 20, 1));
+                return null;
+            }).when(stockService).exportStoreStock(eq(1), any());
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getHeaders().getContentType().toString()).isEqualTo("application/x-ndjson");
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{\"id\":1,\"name\":\"Flat Nail\",\"type\":\"Nail\",\"value\":100,\"storeId\":1}\n" +
+                    "{\"id\":2,\"name\":\"Poire\",\"type\":\"Fruit\",\"value\":20,\"storeId\":1}\n"
+            );
+        }
+    }
+
+    @Nested
+    class Test_getStockSummary {
+
+        @Test
+        void givenStoreWithStocks_whenCalled_returnsFiguresPerType() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/1/stocks/summary";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(new HttpHeaders());
+
+            List<StockTypeSummary> summaries = new ArrayList<>();
+            summaries.add(new StockTypeSummary("Fruit", 2L, 30L, 10, 20));
+            when(stockService.getStoreStockSummary(1)).thenReturn(summaries);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "[{\"type\":\"Fruit\",\"stockCount\":2,\"totalValue\":30,\"minValue\":10,\"maxValue\":20,\"averageValue\":15.0}]"
+            );
+        }
+
+        @Test
+        void givenStocksInSeveralStores_whenCalledWithoutStore_returnsFiguresPerTypeAcrossStores() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stocks/summary";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(new HttpHeaders());
+
+            List<StockTypeSummary> summaries = new ArrayList<>();
+            summaries.add(new StockTypeSummary("Nail", 4L, 10L, 1, 4));
+            when(stockService.getStockSummary()).thenReturn(summaries);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "[{\"type\":\"Nail\",\"stockCount\":4,\"totalValue\":10,\"minValue\":1,\"maxValue\":4,\"averageValue\":2.5}]"
+            );
+        }
     }
 
     @Nested
@@ -433,4 +730,84 @@ public class StockControllerTest {
             verify(stockService).deleteStockById(13);
         }
     }
+
+    @Nested
+    class Test_streamStockEvents {
+
+        @Test
+        void givenSubscriber_whenEventSent_streamsItAsServerSentEvent() throws Exception {
+            // given
+            SseEmitter emitter = new SseEmitter(10_000L);
+            when(stockService.getStoreVersion(12)).thenReturn(0L);
+            when(stockEventBroadcaster.subscribe(12)).thenReturn(emitter);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/stores/12/stocks/events"))
+                    .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                    .build();
+
+            // When
+            CompletableFuture<HttpResponse<Stream<String>>> response = HttpClient.newHttpClient()
+                    .sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+            // headers are only flushed with the first event
+            emitter.send(SseEmitter.event().name(StockEventBroadcaster.CREATED).data(new Stock(3, "Pomme", "Fruit", 8, 12)));
+            emitter.complete();
+            Stream<String> lines = response.get(10, TimeUnit.SECONDS).body();
+
+            // Then
+            assertThat(response.get().headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValueSatisfying(
+                    contentType -> assertThat(contentType).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+            assertThat(lines.collect(Collectors.toList())).containsSequence(
+                    "event:created",
+                    "data:{\"id\":3,\"name\":\"Pomme\",\"type\":\"Fruit\",\"value\":8,\"storeId\":12}");
+        }
+
+        @Test
+        void givenTooManySubscribers_whenCalled_returnsServiceUnavailable() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/12/stocks/events";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            when(stockService.getStoreVersion(12)).thenReturn(0L);
+            when(stockEventBroadcaster.subscribe(12)).thenReturn(null);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    new HttpEntity<>(new HttpHeaders()),
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+            assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        }
+
+        @Test
+        void givenUnknownStore_whenCalled_returnsNotFound() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/12/stocks/events";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            when(stockService.getStoreVersion(12)).thenReturn(null);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    new HttpEntity<>(new HttpHeaders()),
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(NOT_FOUND);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                            "\"msg\":\"Store not found\"" +
+                    "}"
+            );
+            verify(stockEventBroadcaster, never()).subscribe(12);
+        }
+    }
 }
@@ -1,11 +1,15 @@
 package com.scholanova.projectstore.controllers;
 
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
 import com.scholanova.projectstore.exceptions.ModelNotFoundException;
 import com.scholanova.projectstore.exceptions.StoreNameCannotBeEmptyException;
 import com.scholanova.projectstore.exceptions.StoreNotFoundException;
 import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreValuation;
+import com.scholanova.projectstore.models.StoreValueBucket;
 import com.scholanova.projectstore.models.StoreWithTotalValue;
 import com.scholanova.projectstore.services.StoreService;
+import com.scholanova.projectstore.services.StoreValuationService;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,6 +23,7 @@ import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -39,6 +44,9 @@ class StoreControllerTest {
     @MockBean
     private StoreService storeService;
 
+    @MockBean
+    private StoreValuationService storeValuationService;
+
     @Captor
     ArgumentCaptor<Store> createStoreArgumentCaptor;
 
@@ -121,6 +129,58 @@ class StoreControllerTest {
         }
     }
 
+    @Nested
+    class Test_createStoreIdempotently {
+
+        @Test
+        void givenSameIdempotencyKey_whenRetried_createsStoreOnce() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("Idempotency-Key", "store-controller-test-" + System.nanoTime());
+            HttpEntity<String> httpEntity = new HttpEntity<>("{\"name\":\"Boulangerie\"}", headers);
+
+            when(storeService.create(any())).thenReturn(new Store(123, "Boulangerie"));
+
+            // When
+            ResponseEntity<String> firstResponse = template.exchange(url, HttpMethod.POST, httpEntity, String.class, urlVariables);
+            ResponseEntity<String> retryResponse = template.exchange(url, HttpMethod.POST, httpEntity, String.class, urlVariables);
+
+            // Then
+            assertThat(firstResponse.getStatusCode()).isEqualTo(OK);
+            assertThat(retryResponse.getStatusCode()).isEqualTo(OK);
+            assertThat(retryResponse.getBody()).isEqualTo("{\"id\":123,\"name\":\"Boulangerie\"}");
+            verify(storeService, times(1)).create(any());
+        }
+
+        @Test
+        void givenTooLongIdempotencyKey_whenCalled_isRejected() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("Idempotency-Key", "k".repeat(256));
+            HttpEntity<String> httpEntity = new HttpEntity<>("{\"name\":\"Boulangerie\"}", headers);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url, HttpMethod.POST, httpEntity, String.class, urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+            assertThat(responseEntity.getBody()).isEqualTo("{\"msg\":\"Invalid Idempotency-Key\"}");
+            verify(storeService, never()).create(any());
+        }
+    }
+
     @Nested
     class Test_getStore {
 
@@ -137,7 +197,7 @@ class StoreControllerTest {
 
             HttpEntity<String> httpEntity = new HttpEntity<>(headers);
 
-            StoreWithTotalValue returnedStore = new StoreWithTotalValue(12, "boulangerie", 12);
+            StoreWithTotalValue returnedStore = new StoreWithTotalValue(12, "boulangerie", 12L);
             when(storeService.getStore(getStoreArgumentCaptor.capture())).thenReturn(returnedStore);
 
             // When
@@ -160,6 +220,25 @@ class StoreControllerTest {
             assertThat(storeToGet).isEqualTo(12);
         }
 
+        @Test
+        void givenDatabaseOverloaded_whenCalled_returnsServiceUnavailable() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/12";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            when(storeService.getStore(12)).thenThrow(new DatabaseOverloadedException("Database concurrency limit of 2 reached"));
+
+            // When
+            ResponseEntity<String> responseEntity = template.getForEntity(url, String.class, urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+            assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+            assertThat(responseEntity.getBody()).isEqualTo("{\"msg\":\"Service overloaded\"}");
+        }
+
         @Test
         void givenNonExistingStoreId_whenCalled_getStore() throws Exception {
             // given
@@ -191,6 +270,78 @@ class StoreControllerTest {
             );
             verify(storeService).getStore(13);
         }
+
+        @Test
+        void givenCurrentStoreVersionInIfNoneMatch_whenCalled_returnsNotModified() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/12";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfNoneMatch("\"3\"");
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+
+            StoreWithTotalValue returnedStore = new StoreWithTotalValue(12, "boulangerie", 12L);
+            returnedStore.setVersion(3L);
+            when(storeService.getStore(12)).thenReturn(returnedStore);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(NOT_MODIFIED);
+            assertThat(responseEntity.getHeaders().getETag()).isEqualTo("\"3\"");
+            assertThat(responseEntity.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    class Test_getValuation {
+
+        @Test
+        void givenBucketsAndRanked_whenCalled_returnsValuation() throws Exception {
+            // given
+            String url = "http://localhost:{port}/stores/valuation?buckets=1&ranked=1";
+
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("port", String.valueOf(port));
+
+            HttpEntity<String> httpEntity = new HttpEntity<>(new HttpHeaders());
+
+            StoreWithTotalValue store = new StoreWithTotalValue(12, "boulangerie", 40L);
+            StoreValuation valuation = new StoreValuation(1L, 40L, 40L, 40L, 40.0,
+                    Collections.singletonMap("p50", 40L),
+                    Collections.singletonList(new StoreValueBucket(40L, 40L, 1L)),
+                    Collections.singletonList(store),
+                    Collections.singletonList(store));
+            when(storeValuationService.valuate(1, 1)).thenReturn(valuation);
+
+            // When
+            ResponseEntity<String> responseEntity = template.exchange(url,
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class,
+                    urlVariables);
+
+            // Then
+            assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+            assertThat(responseEntity.getBody()).isEqualTo(
+                    "{" +
+                            "\"storeCount\":1,\"totalValue\":40,\"minValue\":40,\"maxValue\":40,\"meanValue\":40.0," +
+                            "\"percentiles\":{\"p50\":40}," +
+                            "\"buckets\":[{\"fromValue\":40,\"toValue\":40,\"storeCount\":1}]," +
+                            "\"top\":[{\"id\":12,\"name\":\"boulangerie\",\"stockTotalValue\":40}]," +
+                            "\"bottom\":[{\"id\":12,\"name\":\"boulangerie\",\"stockTotalValue\":40}]" +
+                            "}"
+            );
+        }
     }
 
     @Nested
@@ -0,0 +1,112 @@
+package com.scholanova.projectstore.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void givenSaturatedWithSteadyRtt_whenSampled_growsLimit() {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 4, 2, 64, 10, Duration.ofMillis(10));
+
+        // WHEN
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, TimeUnit.MILLISECONDS.toNanos(2));
+        }
+
+        // THEN
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void givenRttRising_whenSampled_shrinksLimit() {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 32, 2, 64, 10, Duration.ofMillis(10));
+        for (int i = 0; i < 20; i++) {
+            saturate(limiter, TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        int limitBefore = limiter.getLimit();
+
+        // WHEN
+        for (int i = 0; i < 2; i++) {
+            saturate(limiter, TimeUnit.MILLISECONDS.toNanos(40));
+        }
+
+        // THEN
+        assertThat(limiter.getLimit()).isLessThanOrEqualTo(limitBefore / 2);
+        assertThat(meterRegistry.get("repository.concurrency.limit").gauge().value()).isEqualTo(limiter.getLimit());
+    }
+
+    @Test
+    void givenLimitReached_whenNoPermitFreedInTime_rejects() {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 1, 1, 1, 10, Duration.ofMillis(20));
+        assertThat(limiter.acquire()).isTrue();
+
+        // WHEN
+        boolean acquired = limiter.acquire();
+
+        // THEN
+        assertThat(acquired).isFalse();
+        assertThat(meterRegistry.get("repository.concurrency.rejections").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenLimitReached_whenPermitReleased_admitsQueuedCall() throws Exception {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 1, 1, 1, 10, Duration.ofSeconds(5));
+        assertThat(limiter.acquire()).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limiter::acquire);
+        while (meterRegistry.get("repository.concurrency.queued").gauge().value() == 0) {
+            Thread.sleep(1);
+        }
+
+        // WHEN
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+
+        // THEN
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void givenQueueFull_whenOverLimit_rejectsWithoutWaiting() {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 1, 1, 1, 0, Duration.ofSeconds(5));
+        assertThat(limiter.acquire()).isTrue();
+
+        // WHEN
+        long start = System.nanoTime();
+        boolean acquired = limiter.acquire();
+
+        // THEN
+        assertThat(acquired).isFalse();
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // takes every permit, then releases them all with the same RTT
+    private void saturate(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        int permits = 0;
+        while (limiter.getInFlight() < limiter.getLimit() && limiter.acquire()) {
+            permits++;
+        }
+        for (int i = 0; i < permits; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+}
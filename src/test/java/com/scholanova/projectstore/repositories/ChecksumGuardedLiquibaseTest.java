@@ -0,0 +1,70 @@
+package com.scholanova.projectstore.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChecksumGuardedLiquibaseTest {
+
+    @Test
+    void givenFreshDatabase_whenStarted_appliesChangelogAndRecordsChecksum() throws Exception {
+        // GIVEN
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:checksum-fresh;DB_CLOSE_DELAY=-1", "sa", "");
+        ChecksumGuardedLiquibase liquibase = liquibase(dataSource);
+
+        // WHEN
+        liquibase.afterPropertiesSet();
+
+        // THEN
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM DATABASECHANGELOG", Integer.class)).isGreaterThan(0);
+        assertThat(jdbcTemplate.queryForObject("SELECT CHECKSUM FROM SCHEMA_CHECKSUM WHERE CHANGELOG = ?",
+                String.class, "classpath:db/changelog/db-changelog.xml")).isEqualTo(liquibase.computeChecksum());
+    }
+
+    @Test
+    void givenChecksumUnchanged_whenStarted_skipsLiquibase() throws Exception {
+        // GIVEN
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:checksum-unchanged;DB_CLOSE_DELAY=-1", "sa", "");
+        liquibase(dataSource).afterPropertiesSet();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // Liquibase would try to replay every changeset if it ran now
+        jdbcTemplate.update("DELETE FROM DATABASECHANGELOG");
+
+        // WHEN
+        liquibase(dataSource).afterPropertiesSet();
+
+        // THEN
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM DATABASECHANGELOG", Integer.class)).isEqualTo(0);
+    }
+
+    @Test
+    void givenChecksumChanged_whenStarted_runsLiquibaseAndRecordsNewChecksum() throws Exception {
+        // GIVEN
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:checksum-changed;DB_CLOSE_DELAY=-1", "sa", "");
+        liquibase(dataSource).afterPropertiesSet();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("UPDATE SCHEMA_CHECKSUM SET CHECKSUM = 'stale'");
+
+        // WHEN
+        ChecksumGuardedLiquibase liquibase = liquibase(dataSource);
+        liquibase.afterPropertiesSet();
+
+        // THEN
+        assertThat(jdbcTemplate.queryForObject("SELECT CHECKSUM FROM SCHEMA_CHECKSUM", String.class))
+                .isEqualTo(liquibase.computeChecksum());
+    }
+
+    private static ChecksumGuardedLiquibase liquibase(DataSource dataSource) {
+        ChecksumGuardedLiquibase liquibase = new ChecksumGuardedLiquibase("classpath*:db/schema/*.sql");
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db-changelog.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        return liquibase;
+    }
+}
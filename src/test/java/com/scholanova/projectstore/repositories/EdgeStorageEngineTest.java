@@ -0,0 +1,291 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
+import com.scholanova.projectstore.exceptions.StoreNotFoundException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.models.Store;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdgeStorageEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private EdgeStorageEngine engine;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Nested
+    class Test_writes {
+
+        @Test
+        void givenStocks_whenAdded_keepsTotalsVersionAndSummary() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+
+            // WHEN
+            engine.addStocks(store.getId(), Arrays.asList(
+                    new Stock(null, "Apple", "Fruit", 4, 0),
+                    new Stock(null, "Pear", "Fruit", 10, 0),
+                    new Stock(null, "Rivet", "Nail", 7, 0)));
+            engine.deleteStock(engine.listStocks(store.getId(), "Fruit", 0, 1).get(0).getId());
+
+            // THEN
+            assertThat(engine.getStoreTotalValue(store.getId())).isEqualTo(17L);
+            assertThat(engine.getStoreVersion(store.getId())).isEqualTo(2L);
+            List<StockTypeSummary> summary = engine.getStoreStockSummary(store.getId());
+            assertThat(summary).extracting(StockTypeSummary::getType).containsExactly("Fruit", "Nail");
+            assertThat(summary.get(0).getStockCount()).isEqualTo(1L);
+            assertThat(summary.get(0).getMinValue()).isEqualTo(10);
+            assertThat(summary.get(0).getMaxValue()).isEqualTo(10);
+        }
+
+        @Test
+        void givenUnknownStoreOrType_whenAdded_failsLikeForeignKey() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+
+            // WHEN / THEN
+            assertThrows(DataIntegrityViolationException.class,
+                    () -> engine.addStocks(404, List.of(new Stock(null, "Apple", "Fruit", 4, 0))));
+            assertThrows(DataIntegrityViolationException.class,
+                    () -> engine.addStocks(store.getId(), List.of(new Stock(null, "Screw", "Screw", 4, 0))));
+            assertThat(engine.getStoreVersion(store.getId())).isEqualTo(0L);
+        }
+
+        @Test
+        void givenStoreWithStocks_whenDeleted_failsLikeForeignKey() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+            engine.addStocks(store.getId(), List.of(new Stock(null, "Apple", "Fruit", 4, 0)));
+
+            // WHEN / THEN
+            assertThrows(DataIntegrityViolationException.class, () -> engine.deleteStore(store.getId()));
+            assertThrows(StoreNotFoundException.class, () -> engine.deleteStore(404));
+            assertThrows(StockNotFoundException.class, () -> engine.deleteStock(404));
+        }
+    }
+
+    @Nested
+    class Test_reads {
+
+        @Test
+        void givenStocks_whenListedAfterId_returnsNextPageInIdOrder() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+            Store otherStore = engine.createStore("Leclerc");
+            List<Stock> stocks = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                stocks.add(new Stock(null, "Stock " + i, i % 2 == 0 ? "Fruit" : "Nail", i, 0));
+            }
+            List<Stock> created = engine.addStocks(store.getId(), stocks);
+            engine.addStocks(otherStore.getId(), stocks);
+
+            // WHEN
+            List<Stock> page = engine.listStocks(store.getId(), "Fruit", created.get(2).getId(), 2);
+
+            // THEN
+            assertThat(page).extracting(Stock::getName).containsExactly("Stock 4", "Stock 6");
+            assertThat(engine.listStocks(store.getId(), "Screw", 0, 10)).isEmpty();
+            assertThrows(ModelNotFoundException.class, () -> engine.getStock(otherStore.getId(), created.get(0).getId()));
+        }
+
+        @Test
+        void givenSeveralStores_whenSummarized_foldsPerStoreRollups() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+            Store otherStore = engine.createStore("Leclerc");
+            engine.createStore("Empty");
+            engine.addStocks(store.getId(), List.of(new Stock(null, "Apple", "Fruit", 4, 0)));
+            engine.addStocks(otherStore.getId(), List.of(new Stock(null, "Pear", "Fruit", 9, 0)));
+
+            // WHEN
+            List<StockTypeSummary> summary = engine.getStockSummary();
+
+            // THEN
+            assertThat(summary).hasSize(1);
+            assertThat(summary.get(0).getStockCount()).isEqualTo(2L);
+            assertThat(summary.get(0).getTotalValue()).isEqualTo(13L);
+            assertThat(engine.getStoresWithMinimumValue(5)).extracting(s -> s.getName()).containsExactly("Leclerc");
+        }
+    }
+
+    @Nested
+    class Test_journal {
+
+        @Test
+        void givenWrites_whenReopened_replaysThemAndKeepsGeneratingNewIds() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+            Store deletedStore = engine.createStore("Leclerc");
+            List<Stock> created = engine.addStocks(store.getId(), List.of(
+                    new Stock(null, "Apple", "Fruit", 4, 0),
+                    new Stock(null, "Rivet", "Nail", 7, 0)));
+            engine.deleteStock(created.get(1).getId());
+            engine.deleteStore(deletedStore.getId());
+            engine.close();
+
+            // WHEN
+            engine = open();
+
+            // THEN
+            assertThat(engine.getStoreWithTotalValue(store.getId()).getStockTotalValue()).isEqualTo(4L);
+            assertThat(engine.getStoreVersion(store.getId())).isEqualTo(2L);
+            assertThat(engine.getStoreIdRange()).containsExactly(store.getId(), store.getId());
+            assertThat(engine.getStock(created.get(0).getId()).getType()).isEqualTo("Fruit");
+            assertThat(engine.createStore("Auchan").getId()).isGreaterThan(deletedStore.getId());
+            assertThat(engine.addStocks(store.getId(), List.of(new Stock(null, "Pear", "Fruit", 1, 0))).get(0).getId())
+                    .isGreaterThan(created.get(1).getId());
+        }
+
+        @Test
+        void givenConcurrentCreatesAndDeletes_whenReopened_replaysEveryRecordInOrder() throws Exception {
+            // GIVEN
+            engine = open();
+            AtomicBoolean creating = new AtomicBoolean(true);
+            AtomicInteger deleted = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> creators = new ArrayList<>();
+            List<Future<?>> deleters = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                creators.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        Store store = engine.createStore("Store");
+                        engine.addStocks(store.getId(), List.of(new Stock(null, "Apple", "Fruit", 4, 0)));
+                    }
+                    return null;
+                }));
+                // deletes the newest stock it can see, which may not have been journaled yet by its creator
+                deleters.add(executor.submit(() -> {
+                    while (creating.get()) {
+                        List<Stock> newest = engine.listStocks(engine.getStoreIdRange() == null ? 0 : engine.getStoreIdRange()[1], null, 0, 1);
+                        if (!newest.isEmpty()) {
+                            try {
+                                engine.deleteStock(newest.get(0).getId());
+                                deleted.incrementAndGet();
+                            } catch (StockNotFoundException alreadyDeleted) {
+                                // another deleter got there first
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> creator : creators) {
+                creator.get(30, TimeUnit.SECONDS);
+            }
+            creating.set(false);
+            for (Future<?> deleter : deleters) {
+                deleter.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+            engine.close();
+
+            // WHEN
+            engine = open();
+
+            // THEN
+            assertThat(deleted.get()).isGreaterThan(0);
+            long remaining = engine.getStockSummary().stream().mapToLong(StockTypeSummary::getStockCount).sum();
+            assertThat(remaining).isEqualTo(800L - deleted.get());
+        }
+
+        @Test
+        void givenNameLongerThan64KB_whenReopened_replaysIt() throws Exception {
+            // GIVEN
+            engine = open();
+            String name = "é".repeat(40_000);
+            Store store = engine.createStore(name);
+            engine.close();
+
+            // WHEN
+            engine = open();
+
+            // THEN
+            assertThat(engine.getStore(store.getId()).getName()).isEqualTo(name);
+        }
+
+        @Test
+        void givenManyWrites_whenReopened_compactsJournal() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+            for (int i = 0; i < 200; i++) {
+                Stock stock = engine.addStocks(store.getId(), List.of(new Stock(null, "Apple", "Fruit", 4, 0))).get(0);
+                engine.deleteStock(stock.getId());
+            }
+            engine.addStocks(store.getId(), List.of(new Stock(null, "Pear", "Fruit", 9, 0)));
+            long sizeBefore = Files.size(directory.resolve(EdgeJournal.FILE_NAME));
+            engine.close();
+
+            // WHEN
+            engine = open();
+
+            // THEN
+            assertThat(Files.size(directory.resolve(EdgeJournal.FILE_NAME))).isLessThan(sizeBefore / 10);
+            assertThat(engine.getStoreVersion(store.getId())).isEqualTo(401L);
+            assertThat(engine.listStocks(store.getId(), null, 0, 10)).extracting(Stock::getName).containsExactly("Pear");
+        }
+
+        @Test
+        void givenTornLastRecord_whenReopened_dropsOnlyThatRecord() throws Exception {
+            // GIVEN
+            engine = open();
+            Store store = engine.createStore("Carrefour");
+            engine.addStocks(store.getId(), List.of(new Stock(null, "Apple", "Fruit", 4, 0)));
+            engine.addStocks(store.getId(), List.of(new Stock(null, "Pear", "Fruit", 9, 0)));
+            engine.close();
+            Path journal = directory.resolve(EdgeJournal.FILE_NAME);
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(Files.size(journal) - 3);
+            }
+
+            // WHEN
+            engine = open();
+
+            // THEN
+            assertThat(engine.listStocks(store.getId(), null, 0, 10).stream().map(Stock::getName).collect(Collectors.toList()))
+                    .containsExactly("Apple");
+            assertThat(engine.getStoreTotalValue(store.getId())).isEqualTo(4L);
+            assertThat(engine.getStoreVersion(store.getId())).isEqualTo(1L);
+        }
+    }
+
+    private EdgeStorageEngine open() throws IOException {
+        return new EdgeStorageEngine(directory, List.of("Fruit", "Nail"), 16);
+    }
+}
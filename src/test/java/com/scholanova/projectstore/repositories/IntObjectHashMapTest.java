@@ -0,0 +1,36 @@
+package com.scholanova.projectstore.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntObjectHashMapTest {
+
+    @Test
+    void givenRandomPutsAndRemoves_behavesLikeHashMap() {
+        // GIVEN
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // WHEN
+        for (int i = 0; i < 100_000; i++) {
+            int key = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+            }
+        }
+
+        // THEN
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (int key = 1; key <= 2_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+}
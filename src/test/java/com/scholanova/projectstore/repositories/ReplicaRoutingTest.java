@@ -0,0 +1,146 @@
+package com.scholanova.projectstore.repositories;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.services.StoreService;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.replica.url=jdbc:h2:mem:project-store-replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa",
+        "spring.datasource.replica.hikari.maximum-pool-size=3",
+        "store.replica.read-your-writes-window=1m"
+})
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private HikariDataSource primaryDataSource;
+    private HikariDataSource replicaDataSource;
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(dataSource);
+        primaryDataSource = (HikariDataSource) routingDataSource.getPrimary();
+        replicaDataSource = (HikariDataSource) routingDataSource.getReplica();
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTestUtils.deleteFromTables(primary, "STOCK", "STORES");
+        JdbcTestUtils.deleteFromTables(replica, "STOCK", "STORES");
+    }
+
+    @Test
+    void givenPools_haveTheirOwnSizing() {
+        assertThat(primaryDataSource.getMaximumPoolSize()).isEqualTo(2);
+        assertThat(replicaDataSource.getMaximumPoolSize()).isEqualTo(3);
+    }
+
+    @Test
+    void whenStoreCreated_writesGoToPrimary() {
+        // WHEN
+        storeRepository.create(new Store(null, "Carrefour"));
+
+        // THEN
+        assertThat(JdbcTestUtils.countRowsInTable(primary, "STORES")).isEqualTo(1);
+        assertThat(JdbcTestUtils.countRowsInTable(replica, "STORES")).isEqualTo(0);
+    }
+
+    @Test
+    void givenStoreOnlyOnReplica_whenRead_readsGoToReplica() throws ModelNotFoundException {
+        // GIVEN
+        replica.update("INSERT INTO STORES (ID, NAME) VALUES (42, 'Replicated')");
+        replica.update("INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE) VALUES (42, 30)");
+
+        // WHEN
+        Store store = storeRepository.getById(42);
+        StoreWithTotalValue storeWithTotalValue = storeRepository.getStoreWithTotalValue(42);
+        Long totalValue = stockRepository.getStoreTotalValue(42);
+
+        // THEN
+        assertThat(store.getName()).isEqualTo("Replicated");
+        assertThat(storeWithTotalValue.getStockTotalValue()).isEqualTo(30L);
+        assertThat(totalValue).isEqualTo(30L);
+    }
+
+    @Test
+    void givenStoreNotYetReplicated_whenReadFromRepository_isNotFound() {
+        // GIVEN
+        Store createdStore = storeRepository.create(new Store(null, "Carrefour"));
+
+        // WHEN / THEN
+        assertThrows(ModelNotFoundException.class, () -> {
+            storeRepository.getById(createdStore.getId());
+        });
+    }
+
+    @Test
+    void givenStoreJustCreated_whenReadThroughService_readsOwnWriteFromPrimary() throws Exception {
+        // GIVEN
+        Store createdStore = storeService.create(new Store(null, "Carrefour"));
+
+        // WHEN
+        StoreWithTotalValue store = storeService.getStore(createdStore.getId());
+
+        // THEN
+        assertThat(store.getName()).isEqualTo("Carrefour");
+    }
+
+    private static ReplicaRoutingDataSource routingDataSource(DataSource dataSource) {
+        return (ReplicaRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+    }
+
+    @TestConfiguration
+    static class ReplicaSchemaConfiguration {
+
+        @Bean
+        InitializingBean replicaSchema(DataSource dataSource) {
+            return () -> {
+                SpringLiquibase liquibase = new SpringLiquibase();
+                liquibase.setDataSource(routingDataSource(dataSource).getReplica());
+                liquibase.setChangeLog("classpath:db/changelog/db-changelog.xml");
+                liquibase.setResourceLoader(new DefaultResourceLoader());
+                liquibase.afterPropertiesSet();
+            };
+        }
+    }
+}
@@ -6,6 +6,8 @@ import com.scholanova.projectstore.exceptions.StockNotValidException;
 import com.scholanova.projectstore.exceptions.StoreNotFoundException;
 import com.scholanova.projectstore.models.Store;
 import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockTypeSummary;
+import com.scholanova.projectstore.models.StoreTotalCheck;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -22,7 +24,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@SpringJUnitConfig(StockRepository.class)
+@SpringJUnitConfig({JdbcStockRepository.class, StockTypeRegistry.class})
 @JdbcTest
 public class StockRepositoryTest {
 
@@ -108,6 +110,110 @@ public class StockRepositoryTest {
         }
     }
 
+    @Nested
+    class Test_listStocksByStoreIdAfter {
+
+        @Test
+        void whenStoreHasMoreStocksThanLimit_thenReturnsFirstPageOrderedById() throws Exception {
+            // Given
+            int storeId = 1;
+            Store store = new Store(storeId, "Carrefour");
+            insertStore(store);
+            insertStock(new Stock(3, "Poire", "Fruit", 50, storeId));
+            insertStock(new Stock(1, "Pomme", "Fruit", 49, storeId));
+            insertStock(new Stock(2, "Clou", "Nail", 10, storeId));
+
+            // When
+            List<Stock> extractedStocks = stockRepository.listStocksByStoreIdAfter(storeId, null, 0, 2);
+
+            // Then
+            assertThat(extractedStocks.size()).isEqualTo(2);
+            assertThat(extractedStocks.get(0).getId()).isEqualTo(1);
+            assertThat(extractedStocks.get(1).getId()).isEqualTo(2);
+        }
+
+        @Test
+        void whenGivenCursor_thenReturnsStocksAfterCursorOnly() throws Exception {
+            // Given
+            int storeId = 1;
+            Store store = new Store(storeId, "Carrefour");
+            insertStore(store);
+            Store otherStore = new Store(2, "Auchan");
+            insertStore(otherStore);
+            insertStock(new Stock(1, "Pomme", "Fruit", 49, storeId));
+            insertStock(new Stock(2, "Clou", "Nail", 10, storeId));
+            insertStock(new Stock(3, "Poire", "Fruit", 50, storeId));
+            insertStock(new Stock(4, "Kiwi", "Fruit", 20, 2));
+
+            // When
+            List<Stock> extractedStocks = stockRepository.listStocksByStoreIdAfter(storeId, null, 2, 10);
+
+            // Then
+            assertThat(extractedStocks.size()).isEqualTo(1);
+            assertThat(extractedStocks.get(0).getId()).isEqualTo(3);
+        }
+
+        @Test
+        void whenGivenType_thenReturnsOnlyStocksOfThatType() throws Exception {
+            // Given
+            int storeId = 1;
+            Store store = new Store(storeId, "Carrefour");
+            insertStore(store);
+            insertStock(new Stock(1, "Pomme", "Fruit", 49, storeId));
+            insertStock(new Stock(2, "Clou", "Nail", 10, storeId));
+            insertStock(new Stock(3, "Poire", "Fruit", 50, storeId));
+
+            // When
+            List<Stock> extractedStocks = stockRepository.listStocksByStoreIdAfter(storeId, "Fruit", 0, 10);
+
+            // Then
+            assertThat(extractedStocks.size()).isEqualTo(2);
+            assertThat(extractedStocks.get(0).getId()).isEqualTo(1);
+            assertThat(extractedStocks.get(1).getId()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    class Test_streamStocksByStoreId {
+
+        @Test
+        void whenStoreHasStocks_thenEachStockIsPassedToConsumerOrderedById() throws Exception {
+            // Given
+            int storeId = 1;
+            Store store = new Store(storeId, "Carrefour");
+            insertStore(store);
+            Store otherStore = new Store(2, "Auchan");
+            insertStore(otherStore);
+            Stock stock = new Stock(2, "Poire", "Fruit", 50, storeId);
+            insertStock(stock);
+            Stock stock2 = new Stock(1, "Pomme", "Fruit", 49, storeId);
+            insertStock(stock2);
+            insertStock(new Stock(3, "Kiwi", "Fruit", 20, 2));
+
+            List<Stock> streamedStocks = new ArrayList<>();
+
+            // When
+            stockRepository.streamStocksByStoreId(storeId, streamedStocks::add);
+
+            // Then
+            assertThat(streamedStocks.size()).isEqualTo(2);
+            assertThat(streamedStocks.get(0)).isEqualToComparingFieldByField(stock2);
+            assertThat(streamedStocks.get(1)).isEqualToComparingFieldByField(stock);
+        }
+
+        @Test
+        void whenStoreHasNoStock_thenConsumerIsNeverCalled() throws Exception {
+            // Given
+            List<Stock> streamedStocks = new ArrayList<>();
+
+            // When
+            stockRepository.streamStocksByStoreId(1000, streamedStocks::add);
+
+            // Then
+            assertThat(streamedStocks).isEmpty();
+        }
+    }
+
     @Nested
     class Test_getStockByStockIdAndStoreId {
 
@@ -200,6 +306,57 @@ public class StockRepositoryTest {
         }
     }
 
+    @Nested
+    class Test_addStocksByStoreId {
+
+        @Test
+        void whenCreateStocks_thenStocksAreInDatabaseWithGeneratedIds() throws ModelNotFoundException {
+            // Given
+            int storeId = 5;
+            insertStore(new Store(storeId, "Auchan"));
+            List<Stock> stocks = new ArrayList<>();
+            stocks.add(new Stock(null, "Poire", "Fruit", 50, storeId));
+            stocks.add(new Stock(null, "Clou", "Nail", 10, storeId));
+
+            // When
+            List<Stock> createdStocks = stockRepository.addStocksByStoreId(storeId, stocks);
+
+            // Then
+            assertThat(createdStocks.size()).isEqualTo(2);
+            assertThat(createdStocks.get(0).getId()).isNotEqualTo(createdStocks.get(1).getId());
+            assertThat(stockRepository.getById(createdStocks.get(0).getId())).isEqualToComparingFieldByField(createdStocks.get(0));
+            assertThat(stockRepository.getById(createdStocks.get(1).getId())).isEqualToComparingFieldByField(createdStocks.get(1));
+        }
+
+        @Test
+        void whenCreateMoreStocksThanOneBatch_thenAllStocksAreCreated() {
+            // Given
+            int storeId = 5;
+            insertStore(new Store(storeId, "Auchan"));
+            List<Stock> stocks = new ArrayList<>();
+            for (int i = 0; i < 2500; i++) {
+                stocks.add(new Stock(null, "Poire " + i, "Fruit", 1, storeId));
+            }
+
+            // When
+            List<Stock> createdStocks = stockRepository.addStocksByStoreId(storeId, stocks);
+
+            // Then
+            assertThat(createdStocks.size()).isEqualTo(2500);
+            assertThat(createdStocks.get(2499).getName()).isEqualTo("Poire 2499");
+            assertThat(JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "STOCK", "STOREID = " + storeId)).isEqualTo(2500);
+        }
+
+        @Test
+        void whenCreateNoStock_thenReturnsEmptyList() {
+            // When
+            List<Stock> createdStocks = stockRepository.addStocksByStoreId(5, new ArrayList<>());
+
+            // Then
+            assertThat(createdStocks).isEmpty();
+        }
+    }
+
     @Nested
     class Test_deleteById {
 
@@ -242,16 +399,51 @@ public class StockRepositoryTest {
             int mockedStoreId = 5;
             Store mockedStore = new Store(mockedStoreId, "Auchan");
             insertStore(mockedStore);
-            Stock mockedStock = new Stock(1, "Poire", "Fruit", 50, 5);
-            insertStock(mockedStock);
-            Stock mockedStock2 = new Stock(2, "Pomme", "Fruit", 55, 5);
-            insertStock(mockedStock2);
+            Stock mockedStock = new Stock(null, "Poire", "Fruit", 50, 5);
+            stockRepository.addStockByStoreId(mockedStoreId, mockedStock);
+            Stock mockedStock2 = new Stock(null, "Pomme", "Fruit", 55, 5);
+            stockRepository.addStockByStoreId(mockedStoreId, mockedStock2);
 
             // When
-            int totalStoreValue = stockRepository.getStoreTotalValue(mockedStoreId);
+            long totalStoreValue = stockRepository.getStoreTotalValue(mockedStoreId);
 
             // Then
-            assertThat(totalStoreValue).isEqualTo(105);
+            assertThat(totalStoreValue).isEqualTo(105L);
+        }
+
+        @Test
+        void whenStocksAreAddedInBatchAndDeleted_thenReturnUpdatedStockTotalValue() throws Exception {
+            // Given
+            int mockedStoreId = 5;
+            Store mockedStore = new Store(mockedStoreId, "Auchan");
+            insertStore(mockedStore);
+            List<Stock> stocks = new ArrayList<>();
+            stocks.add(new Stock(null, "Poire", "Fruit", 50, 5));
+            stocks.add(new Stock(null, "Pomme", "Fruit", 55, 5));
+            List<Stock> createdStocks = stockRepository.addStocksByStoreId(mockedStoreId, stocks);
+            stockRepository.deleteById(createdStocks.get(0).getId());
+
+            // When
+            long totalStoreValue = stockRepository.getStoreTotalValue(mockedStoreId);
+
+            // Then
+            assertThat(totalStoreValue).isEqualTo(55L);
+        }
+
+        @Test
+        void whenTotalExceedsIntegerRange_thenReturnStockTotalValueWithoutOverflow() throws Exception {
+            // Given
+            int mockedStoreId = 5;
+            Store mockedStore = new Store(mockedStoreId, "Auchan");
+            insertStore(mockedStore);
+            stockRepository.addStockByStoreId(mockedStoreId, new Stock(null, "Poire", "Fruit", Integer.MAX_VALUE, 5));
+            stockRepository.addStockByStoreId(mockedStoreId, new Stock(null, "Pomme", "Fruit", Integer.MAX_VALUE, 5));
+
+            // When
+            long totalStoreValue = stockRepository.getStoreTotalValue(mockedStoreId);
+
+            // Then
+            assertThat(totalStoreValue).isEqualTo(2L * Integer.MAX_VALUE);
         }
 
         @Test
@@ -262,10 +454,244 @@ public class StockRepositoryTest {
             insertStore(mockedStore);
 
             // When
-            Integer totalStoreValue = stockRepository.getStoreTotalValue(mockedStoreId);
+            Long totalStoreValue = stockRepository.getStoreTotalValue(mockedStoreId);
+
+            // Then
+            assertThat(totalStoreValue).isEqualTo(0L);
+        }
+    }
+
+    @Nested
+    class Test_getStoreVersion {
+
+        @Test
+        void whenStoreHasNoTotalYet_thenReturnsNull() {
+            // Given
+            insertStore(new Store(5, "Auchan"));
+
+            // When
+            Long version = stockRepository.getStoreVersion(5);
+
+            // Then
+            assertThat(version).isNull();
+        }
+
+        @Test
+        void whenStocksAreAddedAndDeleted_thenVersionIncreasesOnEveryChange() throws Exception {
+            // Given
+            insertStore(new Store(5, "Auchan"));
+            Stock createdStock = stockRepository.addStockByStoreId(5, new Stock(null, "Poire", "Fruit", 50, 5));
+            Long versionAfterCreate = stockRepository.getStoreVersion(5);
+            List<Stock> batch = new ArrayList<>();
+            batch.add(new Stock(null, "Pomme", "Fruit", 55, 5));
+            stockRepository.addStocksByStoreId(5, batch);
+            Long versionAfterBatch = stockRepository.getStoreVersion(5);
+
+            // When
+            stockRepository.deleteById(createdStock.getId());
+
+            // Then
+            assertThat(versionAfterBatch).isGreaterThan(versionAfterCreate);
+            assertThat(stockRepository.getStoreVersion(5)).isGreaterThan(versionAfterBatch);
+        }
+    }
+
+    @Nested
+    class Test_checkStoreTotals {
+
+        @Test
+        void whenStocksWereWrittenOutsideTheRepository_thenReportsDrift() {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            insertStore(new Store(2, "Auchan"));
+            insertStore(new Store(3, "Lidl"));
+            insertStock(new Stock(1, "Poire", "Fruit", 50, 1));
+            insertStock(new Stock(2, "Pomme", "Fruit", 55, 1));
+
+            // When
+            List<StoreTotalCheck> checks = stockRepository.checkStoreTotals(0, 2);
+
+            // Then
+            assertThat(checks.size()).isEqualTo(2);
+            assertThat(checks.get(0).getStoreId()).isEqualTo(1);
+            assertThat(checks.get(0).getRecordedTotal()).isEqualTo(0L);
+            assertThat(checks.get(0).getActualTotal()).isEqualTo(105L);
+            assertThat(checks.get(0).hasDrifted()).isTrue();
+            assertThat(checks.get(1).getStoreId()).isEqualTo(2);
+            assertThat(checks.get(1).hasDrifted()).isFalse();
+        }
+
+        @Test
+        void whenOnlyTypeTotalsDrifted_thenReportsDrift() throws Exception {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Kiwi", "Fruit", 10, 1));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Clou", "Nail", 5, 1));
+            assertThat(stockRepository.checkStoreTotals(0, 1).get(0).hasDrifted()).isFalse();
+            jdbcTemplate.execute("UPDATE STORE_TYPE_TOTALS SET MAX_VALUE = 99 WHERE STOREID = 1");
+
+            // When
+            List<StoreTotalCheck> checks = stockRepository.checkStoreTotals(0, 1);
+
+            // Then
+            assertThat(checks.get(0).getRecordedTotal()).isEqualTo(checks.get(0).getActualTotal());
+            assertThat(checks.get(0).isTypeTotalsDrifted()).isTrue();
+            assertThat(checks.get(0).hasDrifted()).isTrue();
+        }
+    }
+
+    @Nested
+    class Test_repairStoreTotal {
+
+        @Test
+        void whenTotalHasDrifted_thenTotalIsRecomputedFromStock() throws Exception {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Kiwi", "Fruit", 10, 1));
+            insertStock(new Stock(1000, "Poire", "Fruit", 50, 1));
+
+            // When
+            stockRepository.repairStoreTotal(1);
+
+            // Then
+            assertThat(stockRepository.getStoreTotalValue(1)).isEqualTo(60L);
+        }
+
+        @Test
+        void whenStoreHasNoTotalYet_thenTotalIsCreated() {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            insertStock(new Stock(1, "Poire", "Fruit", 50, 1));
+
+            // When
+            stockRepository.repairStoreTotal(1);
+
+            // Then
+            assertThat(stockRepository.getStoreTotalValue(1)).isEqualTo(50L);
+        }
+
+        @Test
+        void whenTypeTotalsHaveDrifted_thenTypeTotalsAreRecomputedFromStock() throws Exception {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Kiwi", "Fruit", 10, 1));
+            insertStock(new Stock(1000, "Clou", "Nail", 5, 1));
+
+            // When
+            stockRepository.repairStoreTotal(1);
+
+            // Then
+            List<StockTypeSummary> summaries = stockRepository.getStoreStockSummary(1);
+            assertThat(summaries).extracting(StockTypeSummary::getType).containsExactly("Fruit", "Nail");
+            assertThat(summaries.get(1).getTotalValue()).isEqualTo(5L);
+        }
+    }
+
+    @Nested
+    class Test_getStoreStockSummary {
+
+        @Test
+        void whenStoreHasNoStock_thenReturnsEmptyList() {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+
+            // When
+            List<StockTypeSummary> summaries = stockRepository.getStoreStockSummary(1);
+
+            // Then
+            assertThat(summaries).isEmpty();
+        }
+
+        @Test
+        void whenStocksAreAdded_thenReturnsFiguresPerType() {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Poire", "Fruit", 50, 1));
+            List<Stock> stocks = new ArrayList<>();
+            stocks.add(new Stock(null, "Pomme", "Fruit", 10, 1));
+            stocks.add(new Stock(null, "Clou", "Nail", 5, 1));
+            stocks.add(new Stock(null, "Kiwi", "Fruit", 30, 1));
+            stockRepository.addStocksByStoreId(1, stocks);
+
+            // When
+            List<StockTypeSummary> summaries = stockRepository.getStoreStockSummary(1);
+
+            // Then
+            assertThat(summaries).hasSize(2);
+            StockTypeSummary fruits = summaries.get(0);
+            assertThat(fruits.getType()).isEqualTo("Fruit");
+            assertThat(fruits.getStockCount()).isEqualTo(3L);
+            assertThat(fruits.getTotalValue()).isEqualTo(90L);
+            assertThat(fruits.getMinValue()).isEqualTo(10);
+            assertThat(fruits.getMaxValue()).isEqualTo(50);
+            assertThat(fruits.getAverageValue()).isEqualTo(30.0);
+            assertThat(summaries.get(1).getType()).isEqualTo("Nail");
+            assertThat(summaries.get(1).getStockCount()).isEqualTo(1L);
+        }
+
+        @Test
+        void whenStockHoldingMinAndMaxIsDeleted_thenMinAndMaxAreRecomputed() throws Exception {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            Stock cheapest = stockRepository.addStockByStoreId(1, new Stock(null, "Poire", "Fruit", 5, 1));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Pomme", "Fruit", 20, 1));
+            Stock dearest = stockRepository.addStockByStoreId(1, new Stock(null, "Kiwi", "Fruit", 40, 1));
+
+            // When
+            stockRepository.deleteById(cheapest.getId());
+            stockRepository.deleteById(dearest.getId());
+
+            // Then
+            StockTypeSummary fruits = stockRepository.getStoreStockSummary(1).get(0);
+            assertThat(fruits.getStockCount()).isEqualTo(1L);
+            assertThat(fruits.getTotalValue()).isEqualTo(20L);
+            assertThat(fruits.getMinValue()).isEqualTo(20);
+            assertThat(fruits.getMaxValue()).isEqualTo(20);
+        }
+
+        @Test
+        void whenLastStockOfTypeIsDeletedAndAddedAgain_thenTypeStartsOver() throws Exception {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            Stock nail = stockRepository.addStockByStoreId(1, new Stock(null, "Clou", "Nail", 5, 1));
+            stockRepository.deleteById(nail.getId());
+            assertThat(stockRepository.getStoreStockSummary(1)).isEmpty();
+
+            // When
+            stockRepository.addStockByStoreId(1, new Stock(null, "Vis", "Nail", 8, 1));
+
+            // Then
+            StockTypeSummary nails = stockRepository.getStoreStockSummary(1).get(0);
+            assertThat(nails.getStockCount()).isEqualTo(1L);
+            assertThat(nails.getMinValue()).isEqualTo(8);
+            assertThat(nails.getMaxValue()).isEqualTo(8);
+        }
+    }
+
+    @Nested
+    class Test_getStockSummary {
+
+        @Test
+        void whenSeveralStoresHaveStocks_thenReturnsFiguresPerTypeAcrossStores() {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            insertStore(new Store(2, "Auchan"));
+            stockRepository.addStockByStoreId(1, new Stock(null, "Poire", "Fruit", 50, 1));
+            stockRepository.addStockByStoreId(2, new Stock(null, "Pomme", "Fruit", 10, 2));
+            stockRepository.addStockByStoreId(2, new Stock(null, "Clou", "Nail", 5, 2));
+
+            // When
+            List<StockTypeSummary> summaries = stockRepository.getStockSummary();
 
             // Then
-            assertThat(totalStoreValue).isEqualTo(0);
+            assertThat(summaries).hasSize(2);
+            StockTypeSummary fruits = summaries.get(0);
+            assertThat(fruits.getType()).isEqualTo("Fruit");
+            assertThat(fruits.getStockCount()).isEqualTo(2L);
+            assertThat(fruits.getTotalValue()).isEqualTo(60L);
+            assertThat(fruits.getMinValue()).isEqualTo(10);
+            assertThat(fruits.getMaxValue()).isEqualTo(50);
+            assertThat(summaries.get(1).getTotalValue()).isEqualTo(5L);
         }
     }
 
@@ -316,8 +742,8 @@ public class StockRepositoryTest {
 
     private void insertStock(Stock stock) {
         String query = "INSERT INTO STOCK " +
-                "(ID, NAME, TYPE, VALUE, STOREID) " +
-                "VALUES ('%d', '%s', '%s', '%d', '%d')";
+                "(ID, NAME, TYPE_ID, VALUE, STOREID) " +
+                "VALUES ('%d', '%s', (SELECT ID FROM STOCK_TYPE WHERE NAME = '%s'), '%d', '%d')";
         jdbcTemplate.execute(
                 String.format(query, stock.getId(), stock.getName(),  stock.getType(),  stock.getValue(),  stock.getStoreId()));
     }
@@ -0,0 +1,51 @@
+package com.scholanova.projectstore.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(StockTypeRegistry.class)
+@JdbcTest
+class StockTypeRegistryTest {
+
+    @Autowired
+    private StockTypeRegistry stockTypes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM STOCK_TYPE WHERE NAME = 'Screw'");
+        stockTypes.refresh();
+    }
+
+    @Test
+    void whenLoaded_thenKnowsTheSeededTypes() {
+        // THEN
+        assertThat(stockTypes.getId("Fruit")).isEqualTo(1);
+        assertThat(stockTypes.getId("Nail")).isEqualTo(2);
+        assertThat(stockTypes.contains("Nails")).isFalse();
+        assertThat(stockTypes.contains(null)).isFalse();
+    }
+
+    @Test
+    void givenTypeInsertedInTable_whenRefreshed_thenKnowsIt() {
+        // GIVEN
+        jdbcTemplate.update("INSERT INTO STOCK_TYPE (NAME) VALUES ('Screw')");
+        Integer id = jdbcTemplate.queryForObject("SELECT ID FROM STOCK_TYPE WHERE NAME = 'Screw'", Integer.class);
+        assertThat(stockTypes.contains("Screw")).isFalse();
+
+        // WHEN
+        stockTypes.refresh();
+
+        // THEN
+        assertThat(id).isGreaterThan(2);
+        assertThat(stockTypes.getId("Screw")).isEqualTo(id);
+    }
+}
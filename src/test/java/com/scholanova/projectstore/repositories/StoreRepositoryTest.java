@@ -14,12 +14,13 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.springframework.test.jdbc.JdbcTestUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@SpringJUnitConfig(StoreRepository.class)
+@SpringJUnitConfig(JdbcStoreRepository.class)
 @JdbcTest
 class StoreRepositoryTest {
 
@@ -63,11 +64,52 @@ class StoreRepositoryTest {
         }
     }
 
+    @Nested
+    class Test_getStoreWithTotalValue {
+
+        @Test
+        void whenNoStoresWithThatId_thenThrowsException() {
+            // When & Then
+            assertThrows(ModelNotFoundException.class, () -> {
+                storeRepository.getStoreWithTotalValue(1000);
+            });
+        }
+
+        @Test
+        void whenStoreHasTotal_thenReturnsStoreWithItsTotal() throws Exception {
+            // Given
+            Store store = new Store(1, "Carrefour");
+            insertStore(store);
+            jdbcTemplate.execute("INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE) VALUES (1, 105)");
+
+            // When
+            StoreWithTotalValue extractedStore = storeRepository.getStoreWithTotalValue(1);
+
+            // Then
+            assertThat(extractedStore.getId()).isEqualTo(1);
+            assertThat(extractedStore.getName()).isEqualTo("Carrefour");
+            assertThat(extractedStore.getStockTotalValue()).isEqualTo(105L);
+        }
+
+        @Test
+        void whenStoreHasNoTotalYet_thenReturnsStoreWithZeroTotal() throws Exception {
+            // Given
+            Store store = new Store(1, "Carrefour");
+            insertStore(store);
+
+            // When
+            StoreWithTotalValue extractedStore = storeRepository.getStoreWithTotalValue(1);
+
+            // Then
+            assertThat(extractedStore.getStockTotalValue()).isEqualTo(0L);
+        }
+    }
+
     @Nested
     class Test_create {
 
         @Test
-        void whenCreateStore_thenStoreIsInDatabaseWithId() {
+        void whenCreateStore_thenStoreIsInDatabaseWithId() throws Exception {
             // Given
             String storeName = "Auchan";
             Store storeToCreate = new Store(null, storeName);
@@ -78,6 +120,7 @@ class StoreRepositoryTest {
             // Then
             assertThat(createdStore.getId()).isNotNull();
             assertThat(createdStore.getName()).isEqualTo(storeName);
+            assertThat(storeRepository.getStoreWithTotalValue(createdStore.getId()).getStockTotalValue()).isEqualTo(0L);
         }
     }
 
@@ -130,6 +173,7 @@ class StoreRepositoryTest {
             insertStock(mockedStock1);
             insertStock(mockedStock2);
             insertStock(mockedStock3);
+            recordTotals();
 
             //WHEN
             List<StoreWithTotalValue> storeList = storeRepository.getStoreWithMinimumStockValue(minimumStockTotalValue);
@@ -137,6 +181,7 @@ class StoreRepositoryTest {
             //THEN
             assertThat(storeList.get(0).getName()).isEqualTo(store1.getName());
             assertThat(storeList.get(0).getId()).isEqualTo(store1.getId());
+            assertThat(storeList.get(0).getStockTotalValue()).isEqualTo(130L);
             assertThat(storeList.size()).isEqualTo(1);
         }
 
@@ -155,6 +200,7 @@ class StoreRepositoryTest {
             insertStock(mockedStock1);
             insertStock(mockedStock2);
             insertStock(mockedStock3);
+            recordTotals();
 
             //WHEN
             List<StoreWithTotalValue> storeList = storeRepository.getStoreWithMinimumStockValue(minimumStockTotalValue);
@@ -182,6 +228,7 @@ class StoreRepositoryTest {
             insertStock(mockedStock1);
             insertStock(mockedStock2);
             insertStock(mockedStock3);
+            recordTotals();
 
             //WHEN
             List<StoreWithTotalValue> storeList = storeRepository.getStoreWithMinimumStockValue(minimumStockTotalValue);
@@ -189,6 +236,73 @@ class StoreRepositoryTest {
             //THEN
             assertThat(storeList.size()).isEqualTo(0);
         }
+
+        @Test
+        void whenCorrectCalled_givenStoreWithoutStock_leavesItOut() throws ModelNotFoundException {
+            //Given
+            Store store1 = new Store(1, "carrefour");
+            Store store2 = new Store(2, "auchan");
+            insertStore(store1);
+            insertStore(store2);
+
+            insertStock(new Stock(1, "Poire", "Fruit", 40, 1 ));
+            recordTotals();
+
+            //WHEN
+            List<StoreWithTotalValue> storeList = storeRepository.getStoreWithMinimumStockValue(0);
+
+            //THEN
+            assertThat(storeList.size()).isEqualTo(1);
+            assertThat(storeList.get(0).getId()).isEqualTo(store1.getId());
+        }
+    }
+
+    @Nested
+    class Test_getStoreIdRange {
+
+        @Test
+        void whenNoStore_thenReturnsNull() {
+            // When
+            int[] storeIdRange = storeRepository.getStoreIdRange();
+
+            // Then
+            assertThat(storeIdRange).isNull();
+        }
+
+        @Test
+        void whenStoresExist_thenReturnsLowestAndHighestId() {
+            // Given
+            insertStore(new Store(4, "Carrefour"));
+            insertStore(new Store(9, "Auchan"));
+            insertStore(new Store(7, "Lidl"));
+
+            // When
+            int[] storeIdRange = storeRepository.getStoreIdRange();
+
+            // Then
+            assertThat(storeIdRange).containsExactly(4, 9);
+        }
+    }
+
+    @Nested
+    class Test_streamStoreValues {
+
+        @Test
+        void whenStoresExist_thenOnlyStoresOfTheIdRangeArePassedWithTheirTotal() {
+            // Given
+            insertStore(new Store(1, "Carrefour"));
+            insertStore(new Store(2, "Auchan"));
+            insertStore(new Store(3, "Lidl"));
+            jdbcTemplate.execute("INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE) VALUES (2, 105)");
+            List<StoreWithTotalValue> stores = new ArrayList<>();
+
+            // When
+            storeRepository.streamStoreValues(2, 3, stores::add);
+
+            // Then
+            assertThat(stores).extracting(StoreWithTotalValue::getId).containsExactlyInAnyOrder(2, 3);
+            assertThat(stores).extracting(StoreWithTotalValue::getStockTotalValue).containsExactlyInAnyOrder(105L, 0L);
+        }
     }
 
     private void insertStore(Store store) {
@@ -201,9 +315,17 @@ class StoreRepositoryTest {
 
     private void insertStock(Stock stock) {
         String query = "INSERT INTO STOCK " +
-                "(ID, NAME, TYPE, VALUE, STOREID) " +
-                "VALUES ('%d', '%s', '%s', '%d', '%d')";
+                "(ID, NAME, TYPE_ID, VALUE, STOREID) " +
+                "VALUES ('%d', '%s', (SELECT ID FROM STOCK_TYPE WHERE NAME = '%s'), '%d', '%d')";
         jdbcTemplate.execute(
                 String.format(query, stock.getId(), stock.getName(),  stock.getType(),  stock.getValue(),  stock.getStoreId()));
     }
-}
\ No newline at end of file
+
+    // the stocks above are inserted directly, so their totals are recorded the way the repositories keep them
+    private void recordTotals() {
+        jdbcTemplate.execute("INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE) " +
+                "SELECT sr.ID, COALESCE(SUM(st.VALUE), 0) FROM STORES sr LEFT JOIN STOCK st ON st.STOREID = sr.ID GROUP BY sr.ID");
+        jdbcTemplate.execute("INSERT INTO STORE_TYPE_TOTALS (STOREID, TYPE_ID, STOCK_COUNT, TOTAL_VALUE, MIN_VALUE, MAX_VALUE) " +
+                "SELECT STOREID, TYPE_ID, COUNT(*), SUM(VALUE), MIN(VALUE), MAX(VALUE) FROM STOCK GROUP BY STOREID, TYPE_ID");
+    }
+}
@@ -0,0 +1,60 @@
+package com.scholanova.projectstore.repositories;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WaitTrackingDataSourceTest {
+
+    private WaitTrackingDataSource waitTrackingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:wait-tracking;DB_CLOSE_DELAY=-1");
+        h2.setUser("sa");
+        DelegatingDataSource slowPool = new DelegatingDataSource(h2) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getConnection();
+            }
+        };
+        waitTrackingDataSource = new WaitTrackingDataSource(slowPool, Duration.ofMillis(200));
+    }
+
+    @Test
+    void givenSlowAcquisition_whenAsked_reportsRecentWait() throws Exception {
+        // GIVEN
+        waitTrackingDataSource.getConnection().close();
+
+        // WHEN
+        long recentWaitNanos = waitTrackingDataSource.getRecentWaitNanos();
+
+        // THEN
+        assertThat(recentWaitNanos).isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    void givenNoAcquisitionForTwoWindows_whenAsked_reportsNoWait() throws Exception {
+        // GIVEN
+        waitTrackingDataSource.getConnection().close();
+
+        // WHEN
+        Thread.sleep(450);
+
+        // THEN
+        assertThat(waitTrackingDataSource.getRecentWaitNanos()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,228 @@
+package com.scholanova.projectstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
+import com.scholanova.projectstore.models.Store;
+import com.scholanova.projectstore.repositories.IdempotencyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// concurrent retries run on their own connections, so the keys are committed and cleaned up after each test
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotencyRepository idempotencyRepository;
+    private AtomicInteger creations;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyRepository = new IdempotencyRepository(new NamedParameterJdbcTemplate(jdbcTemplate));
+        creations = new AtomicInteger();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM IDEMPOTENCY_KEY");
+    }
+
+    @Test
+    void givenKeyAlreadyUsed_whenRetried_replaysResponseWithoutCreatingAgain() {
+        // GIVEN
+        IdempotencyService idempotencyService = newNode();
+        Store store = new Store(null, "Carrefour");
+        ResponseEntity<?> first = idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // WHEN
+        ResponseEntity<?> retry = idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(creations.get()).isEqualTo(1);
+        assertThat(retry.getStatusCodeValue()).isEqualTo(200);
+        assertThat(retry.getBody()).isEqualTo(first.getBody()).isEqualTo("{\"id\":1,\"name\":\"Carrefour\"}");
+    }
+
+    @Test
+    void givenKeyUsedOnAnotherNode_whenRetried_replaysResponseFromTable() {
+        // GIVEN
+        Store store = new Store(null, "Carrefour");
+        newNode().execute("store", "key-1", store, () -> create(store));
+
+        // WHEN
+        ResponseEntity<?> retry = newNode().execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(creations.get()).isEqualTo(1);
+        assertThat(retry.getBody()).isEqualTo("{\"id\":1,\"name\":\"Carrefour\"}");
+    }
+
+    @Test
+    void givenKeyUsedForAnotherRequest_whenCalled_isRefused() {
+        // GIVEN
+        IdempotencyService idempotencyService = newNode();
+        Store store = new Store(null, "Carrefour");
+        idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // WHEN
+        Store otherStore = new Store(null, "Auchan");
+        ResponseEntity<?> response = idempotencyService.execute("store", "key-1", otherStore, () -> create(otherStore));
+
+        // THEN
+        assertThat(creations.get()).isEqualTo(1);
+        assertThat(response.getStatusCodeValue()).isEqualTo(422);
+    }
+
+    @Test
+    void givenConcurrentRetries_whenCalled_createsOnce() throws Exception {
+        // GIVEN
+        IdempotencyService idempotencyService = newNode();
+        Store store = new Store(null, "Carrefour");
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch retried = new CountDownLatch(1);
+
+        // WHEN
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<ResponseEntity<?>> first = executor.submit(() ->
+                idempotencyService.execute("store", "key-1", store, () -> {
+                    creating.countDown();
+                    retried.await(5, TimeUnit.SECONDS);
+                    return create(store);
+                }));
+        creating.await(5, TimeUnit.SECONDS);
+        Future<ResponseEntity<?>> retry = executor.submit(() ->
+                idempotencyService.execute("store", "key-1", store, () -> create(store)));
+        Thread.sleep(100);
+        retried.countDown();
+
+        // THEN
+        assertThat(retry.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(first.get(5, TimeUnit.SECONDS).getBody());
+        assertThat(creations.get()).isEqualTo(1);
+        executor.shutdown();
+    }
+
+    @Test
+    void givenKeyReservedByRunningRequestOnAnotherNode_whenRetried_isConflict() {
+        // GIVEN
+        Store store = new Store(null, "Carrefour");
+        IdempotencyService idempotencyService = newNode();
+        idempotencyService.execute("store", "key-0", store, () -> create(store));
+        String requestHash = jdbcTemplate.queryForObject("SELECT REQUEST_HASH FROM IDEMPOTENCY_KEY", String.class);
+        Instant now = Instant.now();
+        idempotencyRepository.reserve("store", "key-1", requestHash, now, now.minus(Duration.ofHours(1)));
+
+        // WHEN
+        ResponseEntity<?> retry = idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(retry.getStatusCodeValue()).isEqualTo(409);
+        assertThat(creations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenKeyReservedByRequestThatDied_whenRetried_isNotRunAgain() {
+        // GIVEN
+        Store store = new Store(null, "Carrefour");
+        IdempotencyService idempotencyService = newNode();
+        idempotencyService.execute("store", "key-0", store, () -> create(store));
+        String requestHash = jdbcTemplate.queryForObject("SELECT REQUEST_HASH FROM IDEMPOTENCY_KEY", String.class);
+        Instant reservedAt = Instant.now().minus(Duration.ofMinutes(10));
+        idempotencyRepository.reserve("store", "key-1", requestHash, reservedAt, reservedAt.minus(Duration.ofHours(1)));
+
+        // WHEN
+        ResponseEntity<?> retry = idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(retry.getStatusCodeValue()).isEqualTo(409);
+        assertThat(retry.getBody().toString()).contains("outcome is unknown");
+        assertThat(creations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCreationTurnedAway_whenRetried_createsAgain() {
+        // GIVEN
+        IdempotencyService idempotencyService = newNode();
+        Store store = new Store(null, "Carrefour");
+        assertThrows(DatabaseOverloadedException.class, () -> idempotencyService.execute("store", "key-1", store, () -> {
+            throw new DatabaseOverloadedException("Database concurrency limit of 2 reached");
+        }));
+
+        // WHEN
+        ResponseEntity<?> retry = idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(retry.getStatusCodeValue()).isEqualTo(200);
+        assertThat(creations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCreationFailedAfterCreating_whenRetriedOnAnyNode_isNotRunAgain() {
+        // GIVEN
+        IdempotencyService idempotencyService = newNode();
+        Store store = new Store(null, "Carrefour");
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("store", "key-1", store, () -> {
+            create(store);
+            throw new IllegalStateException("event broadcast failed");
+        }));
+
+        // WHEN
+        ResponseEntity<?> retry = idempotencyService.execute("store", "key-1", store, () -> create(store));
+        ResponseEntity<?> retryOnAnotherNode = newNode().execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(retry.getStatusCodeValue()).isEqualTo(409);
+        assertThat(retryOnAnotherNode.getStatusCodeValue()).isEqualTo(409);
+        assertThat(retryOnAnotherNode.getBody().toString()).contains("outcome is unknown");
+        assertThat(creations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenServerErrorResponse_whenRetried_isNotRunAgain() {
+        // GIVEN
+        IdempotencyService idempotencyService = newNode();
+        Store store = new Store(null, "Carrefour");
+        ResponseEntity<?> first = idempotencyService.execute("store", "key-1", store,
+                () -> ResponseEntity.status(500).body(Collections.singletonMap("msg", "Internal error")));
+
+        // WHEN
+        ResponseEntity<?> retry = idempotencyService.execute("store", "key-1", store, () -> create(store));
+
+        // THEN
+        assertThat(first.getStatusCodeValue()).isEqualTo(500);
+        assertThat(retry.getStatusCodeValue()).isEqualTo(409);
+        assertThat(creations.get()).isEqualTo(0);
+    }
+
+    private IdempotencyService newNode() {
+        return new IdempotencyService(idempotencyRepository, new ObjectMapper(), new SimpleMeterRegistry(),
+                100, Duration.ofHours(24), Duration.ofMinutes(1));
+    }
+
+    private ResponseEntity<?> create(Store store) {
+        return ResponseEntity.ok(new Store(creations.incrementAndGet(), store.getName()));
+    }
+}
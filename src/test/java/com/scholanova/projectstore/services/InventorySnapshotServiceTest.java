@@ -0,0 +1,180 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.InventoryNotEmptyException;
+import com.scholanova.projectstore.exceptions.InventoryNotExportableException;
+import com.scholanova.projectstore.models.InventorySnapshot;
+import com.scholanova.projectstore.repositories.InventorySnapshotRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// restoring moves the id sequences, which H2 commits straight away, so the test cleans up after itself
+@SpringJUnitConfig({InventorySnapshotService.class, InventorySnapshotRepository.class, StockTypeRegistry.class})
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventorySnapshotServiceTest {
+
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Autowired
+    private StockTypeRegistry stockTypes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void cleanUp() {
+        deleteInventory();
+        jdbcTemplate.update("DELETE FROM STOCK_TYPE WHERE ID > 2");
+        stockTypes.refresh();
+    }
+
+    @Test
+    void givenExportedInventory_whenRestoredIntoEmptyDatabase_thenRowsTotalsAndSequencesAreBack() throws Exception {
+        // GIVEN
+        jdbcTemplate.update("INSERT INTO STOCK_TYPE (ID, NAME) VALUES (3, 'Screw')");
+        jdbcTemplate.update("INSERT INTO STORES (ID, NAME) VALUES (1, 'Carrefour'), (2, 'Auchan \"Nord\"')");
+        jdbcTemplate.update("INSERT INTO STOCK (ID, NAME, TYPE_ID, VALUE, STOREID) VALUES " +
+                "(10, 'Poire', 1, 20, 1), (11, 'Clou', 2, 5, 1), (12, 'Vis à bois', 3, 7, 2)");
+        Path snapshot = tempDir.resolve("inventory.snapshot");
+        InventorySnapshot exported = inventorySnapshotService.export(snapshot);
+        deleteInventory();
+        jdbcTemplate.update("DELETE FROM STOCK_TYPE WHERE ID = 3");
+        stockTypes.refresh();
+
+        // WHEN
+        InventorySnapshot restored = inventorySnapshotService.restore(snapshot);
+
+        // THEN
+        assertThat(exported.getStoreCount()).isEqualTo(2L);
+        assertThat(exported.getStockCount()).isEqualTo(3L);
+        assertThat(restored.getStoreCount()).isEqualTo(2L);
+        assertThat(restored.getStockCount()).isEqualTo(3L);
+
+        List<Map<String, Object>> stocks = jdbcTemplate.queryForList(
+                "SELECT s.ID, s.NAME, t.NAME AS TYPE, s.VALUE, s.STOREID FROM STOCK s " +
+                        "JOIN STOCK_TYPE t ON t.ID = s.TYPE_ID ORDER BY s.ID");
+        assertThat(stocks).extracting(stock -> stock.get("NAME")).containsExactly("Poire", "Clou", "Vis à bois");
+        assertThat(stocks).extracting(stock -> stock.get("TYPE")).containsExactly("Fruit", "Nail", "Screw");
+        assertThat(jdbcTemplate.queryForObject("SELECT NAME FROM STORES WHERE ID = 2", String.class)).isEqualTo("Auchan \"Nord\"");
+        assertThat(jdbcTemplate.queryForObject("SELECT TOTAL_VALUE FROM STORE_TOTALS WHERE STOREID = 1", Long.class)).isEqualTo(25L);
+        assertThat(jdbcTemplate.queryForObject("SELECT STOCK_COUNT FROM STORE_TYPE_TOTALS WHERE STOREID = 1 AND TYPE_ID = 1", Long.class)).isEqualTo(1L);
+        assertThat(stockTypes.contains("Screw")).isTrue();
+
+        jdbcTemplate.update("INSERT INTO STORES (NAME) VALUES ('Lidl')");
+        assertThat(jdbcTemplate.queryForObject("SELECT ID FROM STORES WHERE NAME = 'Lidl'", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void givenStoresSpanningSeveralRowGroups_whenExportedAndRestored_thenEveryRowIsBack() throws Exception {
+        // GIVEN
+        int storeCount = InventorySnapshotService.ROW_GROUP_SIZE + 10;
+        jdbcTemplate.batchUpdate("INSERT INTO STORES (ID, NAME) VALUES (?, ?)",
+                java.util.stream.IntStream.rangeClosed(1, storeCount)
+                        .mapToObj(id -> new Object[]{id, "Store " + id})
+                        .collect(java.util.stream.Collectors.toList()));
+        Path snapshot = tempDir.resolve("inventory.snapshot");
+        inventorySnapshotService.export(snapshot);
+        deleteInventory();
+
+        // WHEN
+        InventorySnapshot restored = inventorySnapshotService.restore(snapshot);
+
+        // THEN
+        assertThat(restored.getStoreCount()).isEqualTo(storeCount);
+        assertThat(jdbcTemplate.queryForObject("SELECT MAX(ID) FROM STORES", Integer.class)).isEqualTo(storeCount);
+    }
+
+    @Test
+    void givenStocksWithNullValueOrStore_whenExported_thenRefusedRatherThanWrittenAsZero() throws Exception {
+        // GIVEN
+        jdbcTemplate.update("INSERT INTO STORES (ID, NAME) VALUES (1, 'Carrefour')");
+        jdbcTemplate.update("INSERT INTO STOCK (ID, NAME, TYPE_ID, VALUE, STOREID) VALUES " +
+                "(10, 'Poire', 1, NULL, 1), (11, 'Clou', 2, 5, NULL)");
+        Path snapshot = tempDir.resolve("inventory.snapshot");
+
+        // WHEN & THEN
+        assertThrows(InventoryNotExportableException.class, () -> inventorySnapshotService.export(snapshot));
+        assertThat(snapshot).doesNotExist();
+
+        // WHEN
+        jdbcTemplate.update("UPDATE STOCK SET VALUE = 20 WHERE VALUE IS NULL");
+        jdbcTemplate.update("DELETE FROM STOCK WHERE STOREID IS NULL");
+        inventorySnapshotService.export(snapshot);
+        deleteInventory();
+        inventorySnapshotService.restore(snapshot);
+
+        // THEN
+        assertThat(jdbcTemplate.queryForList("SELECT ID, VALUE, STOREID FROM STOCK"))
+                .containsExactly(Map.of("ID", 10, "VALUE", 20, "STOREID", 1));
+    }
+
+    @Test
+    void givenInventoryNotEmpty_whenRestored_thenFailsWithoutWriting() throws Exception {
+        // GIVEN
+        jdbcTemplate.update("INSERT INTO STORES (ID, NAME) VALUES (1, 'Carrefour')");
+        Path snapshot = tempDir.resolve("inventory.snapshot");
+        inventorySnapshotService.export(snapshot);
+
+        // WHEN & THEN
+        assertThrows(InventoryNotEmptyException.class, () -> inventorySnapshotService.restore(snapshot));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM STORES", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void givenFileThatIsNotASnapshot_whenRestored_thenFailsWithIOException() throws Exception {
+        // GIVEN
+        Path snapshot = Files.write(tempDir.resolve("inventory.snapshot"), "not a snapshot".getBytes());
+
+        // WHEN & THEN
+        IOException ex = assertThrows(IOException.class, () -> inventorySnapshotService.restore(snapshot));
+        assertThat(ex.getMessage()).isEqualTo("Not an inventory snapshot");
+    }
+
+    @Test
+    void givenSnapshotWithCorruptRowCount_whenRestored_thenFailsWithoutAllocatingIt() throws Exception {
+        // GIVEN
+        jdbcTemplate.update("INSERT INTO STORES (ID, NAME) VALUES (1, 'Carrefour')");
+        Path snapshot = tempDir.resolve("inventory.snapshot");
+        inventorySnapshotService.export(snapshot);
+        deleteInventory();
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            // header, then the stock type section, then the store rows count
+            int storesSection = 8 + 5 + file.getInt(8 + 1);
+            file.putInt(storesSection + 5, Integer.MAX_VALUE / 2);
+        }
+
+        // WHEN & THEN
+        IOException ex = assertThrows(IOException.class, () -> inventorySnapshotService.restore(snapshot));
+        assertThat(ex.getMessage()).isEqualTo("Corrupt inventory snapshot");
+    }
+
+    private void deleteInventory() {
+        jdbcTemplate.update("DELETE FROM STOCK");
+        jdbcTemplate.update("DELETE FROM STORES");
+    }
+}
@@ -0,0 +1,110 @@
+package com.scholanova.projectstore.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateLimiterTest {
+
+    private AtomicLong clock;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        // 10 requests per second, bursts of 4, 1 while overloaded
+        rateLimiter = new RateLimiter(Collections.singletonMap("write", new RateLimiter.Budget(10, 4)), 100, 0.25, clock::get);
+    }
+
+    @Test
+    void givenBurstUsed_whenCalledAgain_isThrottledUntilNextToken() {
+        // GIVEN
+        for (int i = 0; i < 4; i++) {
+            assertThat(rateLimiter.tryAcquire("partner", "write", false).isAdmitted()).isTrue();
+        }
+
+        // WHEN
+        RateLimiter.Decision decision = rateLimiter.tryAcquire("partner", "write", false);
+
+        // THEN
+        assertThat(decision.isAdmitted()).isFalse();
+        assertThat(decision.isShed()).isFalse();
+        assertThat(decision.getRetryAfterNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(rateLimiter.tryAcquire("partner", "write", false).isAdmitted()).isTrue();
+    }
+
+    @Test
+    void givenOneClientThrottled_whenAnotherClientCalls_isAdmitted() {
+        // GIVEN
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.tryAcquire("partner", "write", false);
+        }
+
+        // WHEN
+        RateLimiter.Decision decision = rateLimiter.tryAcquire("10.0.0.2", "write", false);
+
+        // THEN
+        assertThat(decision.isAdmitted()).isTrue();
+    }
+
+    @Test
+    void givenOverloaded_whenClientBursts_isShedWhileSteadyClientIsAdmitted() {
+        // GIVEN
+        assertThat(rateLimiter.tryAcquire("bursting", "write", true).isAdmitted()).isTrue();
+
+        // WHEN
+        RateLimiter.Decision burst = rateLimiter.tryAcquire("bursting", "write", true);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        RateLimiter.Decision steady = rateLimiter.tryAcquire("bursting", "write", true);
+
+        // THEN
+        assertThat(burst.isAdmitted()).isFalse();
+        assertThat(burst.isShed()).isTrue();
+        assertThat(steady.isAdmitted()).isTrue();
+    }
+
+    @Test
+    void givenConcurrentRequests_whenCalled_admitsExactlyTheBurst() throws Exception {
+        // GIVEN
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+
+        // WHEN
+        for (int i = 0; i < 64; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (rateLimiter.tryAcquire("partner", "write", false).isAdmitted()) {
+                    admitted.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertThat(admitted.get()).isEqualTo(4);
+    }
+
+    @Test
+    void givenUnknownBudget_whenCalled_fails() {
+        // WHEN / THEN
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter.tryAcquire("partner", "reports", false));
+    }
+}
@@ -0,0 +1,131 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<Integer, String> singleFlight;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void givenConcurrentCallsForSameKey_whenExecuted_thenReadRunsOnceAndResultIsShared() throws Exception {
+        // GIVEN
+        AtomicInteger reads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // WHEN
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(1, () -> {
+                reads.incrementAndGet();
+                release.await();
+                return "Carrefour";
+            })));
+        }
+        awaitCalls(CALLERS);
+        release.countDown();
+
+        // THEN
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Carrefour");
+        }
+        assertThat(reads.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("singleflight.calls", "name", "test", "outcome", "executed").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("singleflight.calls", "name", "test", "outcome", "coalesced").count()).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void givenSharedReadFails_whenExecuted_thenEveryCallerGetsTheFailure() throws Exception {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute(1, () -> {
+            release.await();
+            throw new ModelNotFoundException();
+        }));
+        awaitCalls(1);
+
+        // WHEN
+        Future<String> follower = executor.submit(() -> singleFlight.<ModelNotFoundException>execute(1, () -> "never read"));
+        awaitCalls(2);
+        release.countDown();
+
+        // THEN
+        for (Future<String> result : List.of(leader, follower)) {
+            Exception ex = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertThat(ex.getCause()).isInstanceOf(ModelNotFoundException.class);
+        }
+    }
+
+    @Test
+    void givenPreviousCallCompleted_whenExecuted_thenReadRunsAgain() throws Exception {
+        // GIVEN
+        AtomicInteger reads = new AtomicInteger();
+        singleFlight.execute(1, () -> "v" + reads.incrementAndGet());
+
+        // WHEN
+        String value = singleFlight.execute(1, () -> "v" + reads.incrementAndGet());
+
+        // THEN
+        assertThat(value).isEqualTo("v2");
+        assertThat(meterRegistry.get("singleflight.in.flight").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    void givenForgottenKey_whenExecuted_thenNewCallerDoesNotJoinTheRunningRead() throws Exception {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> stale = executor.submit(() -> singleFlight.execute(1, () -> {
+            release.await();
+            return "before";
+        }));
+        awaitCalls(1);
+
+        // WHEN
+        singleFlight.forget(key -> key == 1);
+        String fresh = singleFlight.execute(1, () -> "after");
+        release.countDown();
+
+        // THEN
+        assertThat(fresh).isEqualTo("after");
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+    }
+
+    private void awaitCalls(int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.find("singleflight.calls").counters().stream().mapToDouble(c -> c.count()).sum() < calls
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
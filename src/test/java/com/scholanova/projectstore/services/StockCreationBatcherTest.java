@@ -0,0 +1,228 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.exceptions.DatabaseOverloadedException;
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.repositories.StockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockCreationBatcherTest {
+
+    private static final int CALLERS = 6;
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+    private StockCreationBatcher batcher;
+    private final AtomicInteger generatedIds = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    void givenDisabled_whenCreated_writesStraightThrough() {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, false, CALLERS, Duration.ofSeconds(5), 100, Duration.ofSeconds(30));
+        Stock stock = new Stock(null, "Poire", "Fruit", 20, 1);
+        when(stockRepository.addStockByStoreId(1, stock)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 1));
+
+        // WHEN
+        Stock createdStock = batcher.create(1, stock);
+
+        // THEN
+        assertThat(createdStock.getId()).isEqualTo(3);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void givenConcurrentCallers_whenCreated_writesOneBatchPerStoreInOneTransaction() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, CALLERS, Duration.ofSeconds(5), 100, Duration.ofSeconds(30));
+        when(stockRepository.addStocksByStoreId(anyInt(), anyList())).thenAnswer(invocation -> withGeneratedIds(invocation.getArgument(0), invocation.getArgument(1)));
+
+        // WHEN
+        List<Future<Stock>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            int storeId = i % 2 + 1;
+            String name = "Stock " + i;
+            results.add(executor.submit(() -> batcher.create(storeId, new Stock(null, name, "Fruit", 10, storeId))));
+        }
+
+        // THEN
+        for (int i = 0; i < CALLERS; i++) {
+            Stock createdStock = results.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(createdStock.getName()).isEqualTo("Stock " + i);
+            assertThat(createdStock.getStoreId()).isEqualTo(i % 2 + 1);
+        }
+        verify(stockRepository).addStocksByStoreId(eq(1), argThat(stocks -> stocks.size() == CALLERS / 2));
+        verify(stockRepository).addStocksByStoreId(eq(2), argThat(stocks -> stocks.size() == CALLERS / 2));
+        verify(stockRepository, never()).addStockByStoreId(anyInt(), any());
+        verify(transactionManager, times(1)).commit(any());
+        assertThat(meterRegistry.summary("stocks.group.commit.batch.size").max()).isEqualTo(CALLERS);
+    }
+
+    @Test
+    void givenBatchFails_whenCreated_onlyTheFailingCallerGetsTheError() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, 2, Duration.ofSeconds(5), 100, Duration.ofSeconds(30));
+        when(stockRepository.addStocksByStoreId(anyInt(), anyList())).thenAnswer(invocation -> {
+            if (invocation.<Integer>getArgument(0) == 404) {
+                throw new DataIntegrityViolationException("unknown store");
+            }
+            return withGeneratedIds(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        when(stockRepository.addStockByStoreId(eq(1), any())).thenReturn(new Stock(7, "Poire", "Fruit", 10, 1));
+        when(stockRepository.addStockByStoreId(eq(404), any())).thenThrow(new DataIntegrityViolationException("unknown store"));
+
+        // WHEN
+        Future<Stock> valid = executor.submit(() -> batcher.create(1, new Stock(null, "Poire", "Fruit", 10, 1)));
+        Future<Stock> invalid = executor.submit(() -> batcher.create(404, new Stock(null, "Pomme", "Fruit", 10, 404)));
+
+        // THEN
+        assertThat(valid.get(5, TimeUnit.SECONDS).getId()).isEqualTo(7);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> invalid.get(5, TimeUnit.SECONDS));
+        assertThat(ex.getCause()).isInstanceOf(DataIntegrityViolationException.class);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void givenStopped_whenCreated_writesStraightThrough() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, CALLERS, Duration.ofSeconds(5), 100, Duration.ofSeconds(30));
+        batcher.stop();
+        Stock stock = new Stock(null, "Poire", "Fruit", 20, 1);
+        when(stockRepository.addStockByStoreId(1, stock)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 1));
+
+        // WHEN
+        Stock createdStock = executor.submit(() -> batcher.create(1, stock)).get(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertThat(createdStock.getId()).isEqualTo(3);
+        verify(stockRepository, never()).addStocksByStoreId(anyInt(), anyList());
+    }
+
+    @Test
+    void givenWriterDiesOfError_whenCreated_failsCallerThenWritesStraightThrough() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, 1, Duration.ZERO, 100, Duration.ofSeconds(30));
+        when(stockRepository.addStocksByStoreId(anyInt(), anyList())).thenThrow(new StackOverflowError());
+        when(stockRepository.addStockByStoreId(eq(1), any())).thenReturn(new Stock(7, "Pomme", "Fruit", 10, 1));
+
+        // WHEN
+        Future<Stock> failed = executor.submit(() -> batcher.create(1, new Stock(null, "Poire", "Fruit", 10, 1)));
+
+        // THEN
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertThat(ex.getCause()).isInstanceOf(StackOverflowError.class);
+        assertThat(executor.submit(() -> batcher.create(1, new Stock(null, "Pomme", "Fruit", 10, 1))).get(5, TimeUnit.SECONDS).getId())
+                .isEqualTo(7);
+    }
+
+    @Test
+    void givenStillQueuedAtTimeout_whenCreated_failsAsOverloadedAndIsNeverWritten() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, 1, Duration.ZERO, 100, Duration.ofMillis(100));
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        when(stockRepository.addStocksByStoreId(anyInt(), anyList())).thenAnswer(invocation -> {
+            firstBatchStarted.countDown();
+            releaseFirstBatch.await(5, TimeUnit.SECONDS);
+            return withGeneratedIds(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        Future<Stock> first = executor.submit(() -> batcher.create(1, new Stock(null, "Poire", "Fruit", 10, 1)));
+        firstBatchStarted.await(5, TimeUnit.SECONDS);
+
+        // WHEN
+        Future<Stock> queued = executor.submit(() -> batcher.create(1, new Stock(null, "Pomme", "Fruit", 10, 1)));
+
+        // THEN
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertThat(ex.getCause()).isInstanceOf(DatabaseOverloadedException.class);
+        releaseFirstBatch.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1);
+        batcher.stop();
+        verify(stockRepository, times(1)).addStocksByStoreId(anyInt(), anyList());
+    }
+
+    @Test
+    void givenWriteFinishingAfterTimeout_whenCreated_returnsTheCreatedStock() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, 1, Duration.ZERO, 100, Duration.ofMillis(300));
+        when(stockRepository.addStocksByStoreId(anyInt(), anyList())).thenAnswer(invocation -> {
+            Thread.sleep(450);
+            return withGeneratedIds(invocation.getArgument(0), invocation.getArgument(1));
+        });
+
+        // WHEN
+        Future<Stock> result = executor.submit(() -> batcher.create(1, new Stock(null, "Poire", "Fruit", 10, 1)));
+
+        // THEN
+        assertThat(result.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1);
+    }
+
+    @Test
+    void givenWriteSlowerThanTimeout_whenCreated_failsWithTimeout() throws Exception {
+        // GIVEN
+        batcher = new StockCreationBatcher(stockRepository, transactionManager, meterRegistry, true, 1, Duration.ZERO, 100, Duration.ofMillis(50));
+        when(stockRepository.addStocksByStoreId(anyInt(), anyList())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return withGeneratedIds(invocation.getArgument(0), invocation.getArgument(1));
+        });
+
+        // WHEN
+        Future<Stock> result = executor.submit(() -> batcher.create(1, new Stock(null, "Poire", "Fruit", 10, 1)));
+
+        // THEN
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertThat(ex.getCause()).isInstanceOf(QueryTimeoutException.class);
+    }
+
+    private List<Stock> withGeneratedIds(int storeId, List<Stock> stocks) {
+        List<Stock> createdStocks = new ArrayList<>();
+        for (Stock stock : stocks) {
+            createdStocks.add(new Stock(generatedIds.incrementAndGet(), stock.getName(), stock.getType(), stock.getValue(), storeId));
+        }
+        return createdStocks;
+    }
+}
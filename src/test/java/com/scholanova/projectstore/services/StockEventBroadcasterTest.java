@@ -0,0 +1,174 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.Stock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockEventBroadcasterTest {
+
+    private Queue<Runnable> pendingWrites;
+    private SimpleMeterRegistry meterRegistry;
+    private StockEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        pendingWrites = new ArrayDeque<>();
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = new StockEventBroadcaster(meterRegistry, 2, 2, Duration.ofMinutes(1), Duration.ofSeconds(5), pendingWrites::add);
+    }
+
+    @Test
+    void givenSubscribersOfSeveralStores_whenStockCreated_sendsItOnlyToItsStore() {
+        // GIVEN
+        RecordingEmitter storeSubscriber = new RecordingEmitter();
+        RecordingEmitter otherStoreSubscriber = new RecordingEmitter();
+        broadcaster.subscribe(1, storeSubscriber);
+        broadcaster.subscribe(2, otherStoreSubscriber);
+
+        // WHEN
+        broadcaster.stockCreated(1, new Stock(10, "Pomme", "Fruit", 3, 1));
+        broadcaster.stockDeleted(new Stock(10, "Pomme", "Fruit", 3, 1));
+        runPendingWrites();
+
+        // THEN
+        assertThat(storeSubscriber.events).containsExactly("created:Pomme", "deleted:Pomme");
+        assertThat(otherStoreSubscriber.events).isEmpty();
+    }
+
+    @Test
+    void givenSlowSubscriber_whenBufferOverflows_dropsEventsAndSendsResync() {
+        // GIVEN
+        RecordingEmitter subscriber = new RecordingEmitter();
+        broadcaster.subscribe(1, subscriber);
+
+        // WHEN
+        List<Stock> stocks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            stocks.add(new Stock(i + 1, "Stock " + i, "Fruit", 3, 1));
+        }
+        broadcaster.stocksCreated(1, stocks);
+        runPendingWrites();
+        broadcaster.stockCreated(1, new Stock(6, "Poire", "Fruit", 3, 1));
+        runPendingWrites();
+
+        // THEN
+        assertThat(subscriber.events).containsExactly("resync:1", "created:Poire");
+        assertThat(meterRegistry.counter("stocks.events.resyncs").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void givenMaximumSubscribers_whenSubscribing_isRejectedUntilOneLeaves() {
+        // GIVEN
+        RecordingEmitter disconnected = new RecordingEmitter();
+        disconnected.failing = true;
+        broadcaster.subscribe(1, disconnected);
+        broadcaster.subscribe(2, new RecordingEmitter());
+
+        // WHEN
+        SseEmitter rejected = broadcaster.subscribe(1, new RecordingEmitter());
+        broadcaster.stockCreated(1, new Stock(10, "Pomme", "Fruit", 3, 1));
+        runPendingWrites();
+
+        // THEN
+        assertThat(rejected).isNull();
+        assertThat(broadcaster.getSubscriberCount(1)).isEqualTo(0);
+        RecordingEmitter next = new RecordingEmitter();
+        assertThat(broadcaster.subscribe(1, next)).isSameAs(next);
+    }
+
+    @Test
+    void givenSubscriberBlockingItsWrite_whenWriteTimesOut_otherStoresStillReceiveEvents() throws Exception {
+        // GIVEN
+        ThreadPoolExecutor writers = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        StockEventBroadcaster broadcaster = new StockEventBroadcaster(meterRegistry, 2, 2, Duration.ofMinutes(1), Duration.ofMillis(10), writers);
+        BlockingEmitter stalled = new BlockingEmitter();
+        CountDownLatch delivered = new CountDownLatch(1);
+        RecordingEmitter healthy = new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                super.send(builder);
+                delivered.countDown();
+            }
+        };
+        broadcaster.subscribe(1, stalled);
+        broadcaster.subscribe(2, healthy);
+        broadcaster.stockCreated(1, new Stock(10, "Pomme", "Fruit", 3, 1));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        broadcaster.stockCreated(2, new Stock(11, "Poire", "Fruit", 3, 2));
+        Thread.sleep(20);
+
+        // WHEN
+        broadcaster.dropStalledSubscribers();
+
+        // THEN
+        try {
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(healthy.events).containsExactly("created:Poire");
+            assertThat(broadcaster.getSubscriberCount(1)).isEqualTo(0);
+            assertThat(meterRegistry.counter("stocks.events.write.timeouts").count()).isEqualTo(1.0);
+        } finally {
+            stalled.release.countDown();
+            writers.shutdown();
+        }
+        assertThat(writers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(writers.getCorePoolSize()).isEqualTo(1);
+    }
+
+    private void runPendingWrites() {
+        Runnable write;
+        while ((write = pendingWrites.poll()) != null) {
+            write.run();
+        }
+    }
+
+    private static class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // records what would be written, the emitter is never bound to a response here
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            String event = builder.build().stream()
+                    .map(data -> data.getData() instanceof Stock ? ((Stock) data.getData()).getName() : String.valueOf(data.getData()))
+                    .collect(Collectors.joining())
+                    .replace("event:", "")
+                    .replace("\ndata:", ":")
+                    .trim();
+            events.add(event);
+        }
+    }
+}
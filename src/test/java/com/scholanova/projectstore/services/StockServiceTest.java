@@ -1,10 +1,14 @@
 package com.scholanova.projectstore.services;
 
 import com.scholanova.projectstore.exceptions.ModelNotFoundException;
+import com.scholanova.projectstore.exceptions.StockNotFoundException;
 import com.scholanova.projectstore.exceptions.StockNotValidException;
 import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StockPage;
 import com.scholanova.projectstore.models.Store;
 import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,9 +17,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.jdbc.JdbcTestUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,13 +35,18 @@ import static org.mockito.Mockito.*;
 public class StockServiceTest {
 
     private StockService stockService;
+    private SimpleMeterRegistry meterRegistry;
 
     @Mock
     private StockRepository stockRepository;
 
     @BeforeEach
     void setUp() {
-        stockService = new StockService(stockRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        stockService = new StockService(stockRepository, new StoreCache(new ConcurrentMapCacheManager()), meterRegistry, new ReadYourWritesWindow(Duration.ZERO),
+                new StockCreationBatcher(stockRepository, null, meterRegistry, false, 1, Duration.ZERO, 1, Duration.ZERO),
+                new StockTypeRegistry(new NamedParameterJdbcTemplate(jdbcTemplate)),
+                new StockEventBroadcaster(meterRegistry, 1, 0, Duration.ZERO, Duration.ZERO, 1));
     }
 
     @Autowired
@@ -141,6 +154,119 @@ public class StockServiceTest {
         verify(stockRepository).listStocksByStoreId(1);
     }
 
+    @Test
+    void givenMoreStocksThanLimit_whenPageRequested_returnsPageWithNextCursor() {
+        //GIVEN
+        List<Stock> stocks = new ArrayList<>();
+        stocks.add(new Stock(4, "Poire", "Fruit", 50, 1));
+        stocks.add(new Stock(7, "Pomme", "Fruit", 49, 1));
+        stocks.add(new Stock(9, "Kiwi", "Fruit", 20, 1));
+        when(stockRepository.listStocksByStoreIdAfter(1, "Fruit", 0, 3)).thenReturn(stocks);
+
+        //WHEN
+        StockPage page = stockService.getStoreStockPage(1, "Fruit", null, 2);
+
+        //THEN
+        assertThat(page.getStocks().size()).isEqualTo(2);
+        assertThat(page.getNextCursor()).isEqualTo(7);
+    }
+
+    @Test
+    void givenLastPage_whenPageRequested_returnsPageWithoutNextCursor() {
+        //GIVEN
+        List<Stock> stocks = new ArrayList<>();
+        stocks.add(new Stock(9, "Kiwi", "Fruit", 20, 1));
+        when(stockRepository.listStocksByStoreIdAfter(1, null, 7, StockService.DEFAULT_PAGE_SIZE + 1)).thenReturn(stocks);
+
+        //WHEN
+        StockPage page = stockService.getStoreStockPage(1, "", 7, null);
+
+        //THEN
+        assertThat(page.getStocks().size()).isEqualTo(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void givenTooLargeLimit_whenPageRequested_capsPageSize() {
+        //WHEN
+        stockService.getStoreStockPage(1, "", null, 1000000);
+
+        //THEN
+        verify(stockRepository).listStocksByStoreIdAfter(1, null, 0, StockService.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void givenOneInvalidStockInBatch_whenCreated_failsWithStockNotValidError() {
+        // GIVEN
+        List<Stock> stocks = new ArrayList<>();
+        stocks.add(new Stock(null, "Torsadé", "Nail", 20, 1));
+        stocks.add(new Stock(null, "Poire", null, 20, 1));
+
+        // WHEN
+        assertThrows(StockNotValidException.class, () -> {
+            stockService.createBatch(1, stocks);
+        });
+
+        // THEN
+        verify(stockRepository, never()).addStocksByStoreId(anyInt(), anyList());
+    }
+
+    @Test
+    void givenValidBatch_whenCreated_stocksCreatedInOneCall() throws StockNotValidException {
+        // GIVEN
+        List<Stock> stocks = new ArrayList<>();
+        stocks.add(new Stock(null, "Torsadé", "Nail", 20, 1));
+        stocks.add(new Stock(null, "Poire", "Fruit", 20, 1));
+
+        // WHEN
+        stockService.createBatch(1, stocks);
+
+        // THEN
+        verify(stockRepository).addStocksByStoreId(1, stocks);
+    }
+
+    @Test
+    void givenValidBatch_whenCreated_countsCreatedStocks() throws StockNotValidException {
+        // GIVEN
+        List<Stock> stocks = new ArrayList<>();
+        stocks.add(new Stock(null, "Torsadé", "Nail", 20, 1));
+        stocks.add(new Stock(null, "Poire", "Fruit", 20, 1));
+        when(stockRepository.addStocksByStoreId(1, stocks)).thenReturn(stocks);
+
+        // WHEN
+        stockService.createBatch(1, stocks);
+
+        // THEN
+        assertThat(meterRegistry.counter("stocks.created").count()).isEqualTo(2);
+    }
+
+    @Test
+    void givenNotValidStock_whenCreated_countsRejection() {
+        // GIVEN
+        Stock notValidStock = new Stock(null, "Torsadé", "Nails", 20, 1);
+
+        // WHEN
+        assertThrows(StockNotValidException.class, () -> {
+            stockService.create(1, notValidStock);
+        });
+
+        // THEN
+        assertThat(meterRegistry.counter("validation.rejections", "model", "stock").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("stocks.created").count()).isEqualTo(0);
+    }
+
+    @Test
+    void givenExistingStock_whenDeleted_countsDeletion() throws StockNotFoundException {
+        // GIVEN
+        when(stockRepository.deleteById(3)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 1));
+
+        // WHEN
+        stockService.deleteStockById(3);
+
+        // THEN
+        assertThat(meterRegistry.counter("stocks.deleted").count()).isEqualTo(1);
+    }
+
     private void insertStore(Store store) {
         String query = "INSERT INTO STORES " +
                 "(ID, NAME) " +
@@ -0,0 +1,182 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.Stock;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.repositories.StockTypeRegistry;
+import com.scholanova.projectstore.repositories.StoreRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(StoreCacheTest.CacheTestConfiguration.class)
+class StoreCacheTest {
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private StoreRepository storeRepository;
+
+    @MockBean
+    private StockRepository stockRepository;
+
+    @MockBean
+    private StockTypeRegistry stockTypes;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cacheManager.getCache(StoreService.STORE_CACHE).clear();
+        when(storeRepository.getStoreWithTotalValue(1)).thenReturn(new StoreWithTotalValue(1, "Carrefour", 50L));
+        when(stockTypes.contains("Fruit")).thenReturn(true);
+    }
+
+    @Test
+    void givenCachedStore_whenReadAgain_doesNotQueryRepositories() throws Exception {
+        // WHEN
+        storeService.getStore(1);
+        storeService.getStore(1);
+
+        // THEN
+        verify(storeRepository, times(1)).getStoreWithTotalValue(1);
+    }
+
+    @Test
+    void givenCachedStore_whenStockCreated_storeIsReadAgain() throws Exception {
+        // GIVEN
+        storeService.getStore(1);
+        Stock stock = new Stock(null, "Poire", "Fruit", 20, 1);
+        when(stockRepository.addStockByStoreId(1, stock)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 1));
+        when(storeRepository.getStoreWithTotalValue(1)).thenReturn(new StoreWithTotalValue(1, "Carrefour", 70L));
+
+        // WHEN
+        stockService.create(1, stock);
+
+        // THEN
+        assertThat(storeService.getStore(1).getStockTotalValue()).isEqualTo(70L);
+        verify(storeRepository, times(2)).getStoreWithTotalValue(1);
+    }
+
+    @Test
+    void givenCachedStore_whenStockDeleted_storeIsReadAgain() throws Exception {
+        // GIVEN
+        storeService.getStore(1);
+        when(stockRepository.deleteById(3)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 1));
+
+        // WHEN
+        stockService.deleteStockById(3);
+
+        // THEN
+        storeService.getStore(1);
+        verify(storeRepository, times(2)).getStoreWithTotalValue(1);
+    }
+
+    @Test
+    void givenSlowStoreRead_whenStockCreatedMeanwhile_oldTotalIsNotCached() throws Exception {
+        // GIVEN
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch stockCreated = new CountDownLatch(1);
+        when(storeRepository.getStoreWithTotalValue(1)).thenAnswer(invocation -> {
+            readStarted.countDown();
+            stockCreated.await(5, TimeUnit.SECONDS);
+            return new StoreWithTotalValue(1, "Carrefour", 50L);
+        }).thenReturn(new StoreWithTotalValue(1, "Carrefour", 70L));
+        Stock stock = new Stock(null, "Poire", "Fruit", 20, 1);
+        when(stockRepository.addStockByStoreId(1, stock)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<StoreWithTotalValue> slowRead = executor.submit(() -> storeService.getStore(1));
+        readStarted.await(5, TimeUnit.SECONDS);
+
+        // WHEN
+        stockService.create(1, stock);
+        stockCreated.countDown();
+        slowRead.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // THEN
+        assertThat(storeService.getStore(1).getStockTotalValue()).isEqualTo(70L);
+    }
+
+    @Test
+    void givenCachedStore_whenStoreDeleted_storeIsEvicted() throws Exception {
+        // GIVEN
+        storeService.getStore(1);
+
+        // WHEN
+        storeService.deleteStoreById(1);
+
+        // THEN
+        assertThat(cacheManager.getCache(StoreService.STORE_CACHE).get(1)).isNull();
+    }
+
+    @Test
+    void givenCachedStore_whenOtherStoreChanges_storeStaysCached() throws Exception {
+        // GIVEN
+        storeService.getStore(1);
+        when(stockRepository.deleteById(3)).thenReturn(new Stock(3, "Poire", "Fruit", 20, 2));
+
+        // WHEN
+        stockService.deleteStockById(3);
+
+        // THEN
+        storeService.getStore(1);
+        verify(storeRepository, times(1)).getStoreWithTotalValue(1);
+    }
+
+    @Configuration
+    @EnableCaching
+    @Import({StoreService.class, StockService.class, StoreCache.class})
+    static class CacheTestConfiguration {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(StoreService.STORE_CACHE);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ReadYourWritesWindow readYourWritesWindow() {
+            return new ReadYourWritesWindow(Duration.ZERO);
+        }
+
+        @Bean
+        StockCreationBatcher stockCreationBatcher(StockRepository stockRepository, MeterRegistry meterRegistry) {
+            return new StockCreationBatcher(stockRepository, null, meterRegistry, false, 1, Duration.ZERO, 1, Duration.ZERO);
+        }
+
+        @Bean
+        StockEventBroadcaster stockEventBroadcaster(MeterRegistry meterRegistry) {
+            return new StockEventBroadcaster(meterRegistry, 1, 0, Duration.ZERO, Duration.ZERO, 1);
+        }
+    }
+}
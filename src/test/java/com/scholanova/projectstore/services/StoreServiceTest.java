@@ -2,13 +2,17 @@ package com.scholanova.projectstore.services;
 
 import com.scholanova.projectstore.exceptions.StoreNameCannotBeEmptyException;
 import com.scholanova.projectstore.models.Store;
-import com.scholanova.projectstore.repositories.StockRepository;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
 import com.scholanova.projectstore.repositories.StoreRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -18,16 +22,16 @@ import static org.mockito.Mockito.*;
 class StoreServiceTest {
 
     private StoreService storeService;
+    private SimpleMeterRegistry meterRegistry;
 
     @Mock
     private StoreRepository storeRepository;
 
-    @Mock
-    private StockRepository stockRepository;
-
     @BeforeEach
     void setUp() {
-        storeService = new StoreService(storeRepository, stockRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        storeService = new StoreService(storeRepository, meterRegistry, new ReadYourWritesWindow(Duration.ZERO),
+                new StoreCache(new ConcurrentMapCacheManager()));
     }
 
     @Test
@@ -45,6 +49,7 @@ class StoreServiceTest {
 
         // THEN
         verify(storeRepository, never()).create(emptyNameStore);
+        assertThat(meterRegistry.counter("validation.rejections", "model", "store").count()).isEqualTo(1);
     }
 
     @Test
@@ -64,4 +69,18 @@ class StoreServiceTest {
         verify(storeRepository, atLeastOnce()).create(correctStore);
         assertThat(returnedStore).isEqualTo(savedStore);
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenExistingStore_whenRead_returnsStoreWithTotalValueInOneRepositoryCall() throws Exception {
+        // GIVEN
+        StoreWithTotalValue savedStore = new StoreWithTotalValue(12, "BHV", 150L);
+        when(storeRepository.getStoreWithTotalValue(12)).thenReturn(savedStore);
+
+        // WHEN
+        StoreWithTotalValue returnedStore = storeService.getStore(12);
+
+        // THEN
+        assertThat(returnedStore).isEqualTo(savedStore);
+        verify(storeRepository, never()).getById(anyInt());
+    }
+}
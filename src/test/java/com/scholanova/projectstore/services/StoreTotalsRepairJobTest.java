@@ -0,0 +1,65 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.StoreTotalCheck;
+import com.scholanova.projectstore.repositories.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StoreTotalsRepairJobTest {
+
+    private StoreTotalsRepairJob storeTotalsRepairJob;
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @BeforeEach
+    void setUp() {
+        storeTotalsRepairJob = new StoreTotalsRepairJob(stockRepository, 2);
+    }
+
+    @Test
+    void givenDriftedStoresInSeveralChunks_whenRepaired_repairsOnlyDriftedStores() {
+        // GIVEN
+        List<StoreTotalCheck> firstChunk = new ArrayList<>();
+        firstChunk.add(new StoreTotalCheck(1, 10L, 10L));
+        firstChunk.add(new StoreTotalCheck(4, 0L, 105L));
+        List<StoreTotalCheck> secondChunk = new ArrayList<>();
+        secondChunk.add(new StoreTotalCheck(7, 20L, 15L));
+        when(stockRepository.checkStoreTotals(0, 2)).thenReturn(firstChunk);
+        when(stockRepository.checkStoreTotals(4, 2)).thenReturn(secondChunk);
+
+        // WHEN
+        int repairedStores = storeTotalsRepairJob.repair();
+
+        // THEN
+        assertThat(repairedStores).isEqualTo(2);
+        verify(stockRepository).repairStoreTotal(4);
+        verify(stockRepository).repairStoreTotal(7);
+        verify(stockRepository, never()).repairStoreTotal(1);
+    }
+
+    @Test
+    void givenStoreWithOnlyTypeTotalsDrifted_whenRepaired_repairsIt() {
+        // GIVEN
+        List<StoreTotalCheck> chunk = new ArrayList<>();
+        chunk.add(new StoreTotalCheck(3, 10L, 10L, true));
+        when(stockRepository.checkStoreTotals(0, 2)).thenReturn(chunk);
+
+        // WHEN
+        int repairedStores = storeTotalsRepairJob.repair();
+
+        // THEN
+        assertThat(repairedStores).isEqualTo(1);
+        verify(stockRepository).repairStoreTotal(3);
+    }
+}
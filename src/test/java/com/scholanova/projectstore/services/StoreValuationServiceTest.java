@@ -0,0 +1,85 @@
+package com.scholanova.projectstore.services;
+
+import com.scholanova.projectstore.models.StoreValuation;
+import com.scholanova.projectstore.models.StoreValueBucket;
+import com.scholanova.projectstore.models.StoreWithTotalValue;
+import com.scholanova.projectstore.repositories.JdbcStoreRepository;
+import com.scholanova.projectstore.repositories.StoreRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the workers read on their own connections, so the rows have to be committed rather than left in the test transaction
+@SpringJUnitConfig(JdbcStoreRepository.class)
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StoreValuationServiceTest {
+
+    private static final int STORE_COUNT = 100;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private StoreValuationService storeValuationService;
+
+    @BeforeEach
+    void setUp() {
+        // partitions of 7 ids over 3 workers so every worker scans several ranges
+        storeValuationService = new StoreValuationService(storeRepository, 3, 7);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        storeValuationService.stop();
+        jdbcTemplate.update("DELETE FROM STORES");
+    }
+
+    @Test
+    void givenNoStore_whenValuated_thenReturnsEmptyValuation() {
+        // WHEN
+        StoreValuation valuation = storeValuationService.valuate(null, null);
+
+        // THEN
+        assertThat(valuation.getStoreCount()).isEqualTo(0L);
+        assertThat(valuation.getMinValue()).isNull();
+        assertThat(valuation.getBuckets()).isEmpty();
+        assertThat(valuation.getTop()).isEmpty();
+    }
+
+    @Test
+    void givenStoresSpreadOverPartitions_whenValuated_thenFiguresCoverEveryStore() {
+        // GIVEN
+        for (int id = 1; id <= STORE_COUNT; id++) {
+            jdbcTemplate.update("INSERT INTO STORES (ID, NAME) VALUES (?, ?)", id, "Store " + id);
+            jdbcTemplate.update("INSERT INTO STORE_TOTALS (STOREID, TOTAL_VALUE) VALUES (?, ?)", id, id * 10L);
+        }
+
+        // WHEN
+        StoreValuation valuation = storeValuationService.valuate(10, 3);
+
+        // THEN
+        assertThat(valuation.getStoreCount()).isEqualTo(100L);
+        assertThat(valuation.getTotalValue()).isEqualTo(50500L);
+        assertThat(valuation.getMinValue()).isEqualTo(10L);
+        assertThat(valuation.getMaxValue()).isEqualTo(1000L);
+        assertThat(valuation.getMeanValue()).isEqualTo(505.0);
+        assertThat(valuation.getPercentiles().get("p50")).isBetween(495L, 505L);
+        assertThat(valuation.getPercentiles().get("p99")).isBetween(980L, 1000L);
+        assertThat(valuation.getBuckets()).hasSize(10);
+        assertThat(valuation.getBuckets().get(0).getFromValue()).isEqualTo(10L);
+        assertThat(valuation.getBuckets().stream().mapToLong(StoreValueBucket::getStoreCount).sum()).isEqualTo(100L);
+        assertThat(valuation.getTop()).extracting(StoreWithTotalValue::getId).containsExactly(100, 99, 98);
+        assertThat(valuation.getBottom()).extracting(StoreWithTotalValue::getId).containsExactly(1, 2, 3);
+    }
+}